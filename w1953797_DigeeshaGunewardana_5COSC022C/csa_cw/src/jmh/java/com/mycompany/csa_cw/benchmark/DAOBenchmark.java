@@ -0,0 +1,175 @@
+package com.mycompany.csa_cw.benchmark;
+
+import com.mycompany.csa_cw.dao.AppointmentDAO;
+import com.mycompany.csa_cw.dao.DAOFactory;
+import com.mycompany.csa_cw.dao.PatientDAO;
+import com.mycompany.csa_cw.model.Appointment;
+import com.mycompany.csa_cw.model.Doctor;
+import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.persistence.Database;
+import com.mycompany.csa_cw.util.Page;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The in-memory DAOs against the JDBC DAOs on the embedded database, on the
+ * same data: lookups by ID, by health status and by date, paging, and
+ * adding and updating patients.
+ *
+ * Run with: mvn -P benchmarks test-compile exec:exec -Djmh.args="DAOBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DAOBenchmark {
+    private static final String MEMORY = "memory";
+    private static final String JDBC = "jdbc";
+    private static final String[] HEALTH_STATUSES = {"Stable", "Critical", "Recovering", "Good", "Poor", "Serious", "Fair", "Unknown"};
+    private static final int DOCTORS = 20;
+    // Appointments of each doctor per day, half an hour apart from 08:00
+    private static final int SLOTS_PER_DAY = 16;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+
+    @Param({MEMORY, JDBC})
+    public String store;
+
+    @Param({"10000"})
+    public int size;
+
+    private Path directory;
+    private Database database;
+    private PatientDAO patientDAO;
+    private AppointmentDAO appointmentDAO;
+    private List<String> patientIds;
+    // The cursor of every page of patients after the first
+    private List<String> cursors;
+    private int days;
+
+    @Setup
+    public void fill() throws IOException {
+        if (JDBC.equals(store)) {
+            directory = Files.createTempDirectory("csa_cw-dao");
+            Properties settings = new Properties();
+            settings.setProperty(Database.DRIVER, "org.h2.Driver");
+            settings.setProperty(Database.URL, "jdbc:h2:" + directory.resolve("csa_cw").toAbsolutePath() + ";QUERY_CACHE_SIZE=64");
+            settings.setProperty(Database.USER, "sa");
+            database = new Database(settings);
+            DAOFactory.useDatabase(database);
+        } else {
+            DAOFactory.useMemory();
+        }
+        patientDAO = DAOFactory.patientDAO();
+        appointmentDAO = DAOFactory.appointmentDAO();
+
+        List<Patient> patients = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            patients.add(patient(i));
+        }
+        patientDAO.addPatients(patients);
+        patientIds = new ArrayList<>(size);
+        for (Patient patient : patients) {
+            patientIds.add(patient.getId());
+        }
+
+        List<Doctor> doctors = new ArrayList<>(DOCTORS);
+        for (int i = 0; i < DOCTORS; i++) {
+            doctors.add(new Doctor("BENCH" + i + "D", "Doctor " + i, "doctor@example.com", "1 Main Street", "General"));
+        }
+        List<Appointment> appointments = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int slot = i / DOCTORS;
+            LocalDate day = FIRST_DAY.plusDays(slot / SLOTS_PER_DAY);
+            LocalTime time = LocalTime.of(8, 0).plusMinutes(slot % SLOTS_PER_DAY * 30);
+            appointments.add(new Appointment(null, day.toString(), time.toString(), doctors.get(i % DOCTORS), patients.get(i)));
+        }
+        appointmentDAO.addAppointments(appointments);
+        days = size / (DOCTORS * SLOTS_PER_DAY) + 1;
+
+        cursors = new ArrayList<>();
+        for (String cursor = patientDAO.getPatientsPage(null, 50).getNextCursor(); cursor != null;
+                cursor = patientDAO.getPatientsPage(cursor, 50).getNextCursor()) {
+            cursors.add(cursor);
+        }
+    }
+
+    @TearDown
+    public void close() throws IOException {
+        DAOFactory.useMemory();
+        if (database != null) {
+            database.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Patient getPatientById() {
+        return patientDAO.getPatientById(randomPatientId());
+    }
+
+    @Benchmark
+    public List<Patient> getPatientsByHealthStatus() {
+        return patientDAO.getPatientsByHealthStatus(HEALTH_STATUSES[ThreadLocalRandom.current().nextInt(HEALTH_STATUSES.length)]);
+    }
+
+    @Benchmark
+    public Page<Patient> getPatientsPage() {
+        return patientDAO.getPatientsPage(cursors.get(ThreadLocalRandom.current().nextInt(cursors.size())), 50);
+    }
+
+    @Benchmark
+    public List<Appointment> getAppointmentsByDate() {
+        return appointmentDAO.getAppointmentsByDate(FIRST_DAY.plusDays(ThreadLocalRandom.current().nextInt(days)).toString());
+    }
+
+    @Benchmark
+    public Patient addPatient() {
+        Patient patient = patient(ThreadLocalRandom.current().nextInt(size));
+        patientDAO.addPatient(patient);
+        return patient;
+    }
+
+    @Benchmark
+    public Patient updatePatient() {
+        int i = ThreadLocalRandom.current().nextInt(size);
+        Patient patient = patient(i);
+        patientDAO.updatePatient(patientIds.get(i), patient);
+        return patient;
+    }
+
+    private String randomPatientId() {
+        return patientIds.get(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    private static Patient patient(int i) {
+        return new Patient(null, "Patient " + i, "patient" + i + "@example.com", i + " Main Street", "None", HEALTH_STATUSES[i % HEALTH_STATUSES.length]);
+    }
+}
@@ -0,0 +1,92 @@
+package com.mycompany.csa_cw.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.csa_cw.model.Appointment;
+import com.mycompany.csa_cw.model.Billing;
+import com.mycompany.csa_cw.model.Doctor;
+import com.mycompany.csa_cw.model.MedicalRecord;
+import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.model.Prescription;
+import com.mycompany.csa_cw.util.Json;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialize and deserialize throughput of each model class, with a plain
+ * ObjectMapper as Jersey used by default (before) and with the application's
+ * shared mapper (after).
+ *
+ * Run with: mvn -P benchmarks test-compile exec:exec -Djmh.args="JsonBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    private static final String DEFAULT = "default";
+    private static final String SHARED = "shared";
+
+    @Param({DEFAULT, SHARED})
+    public String mapper;
+
+    @Param({"Patient", "Doctor", "Appointment", "Billing", "Prescription", "MedicalRecord"})
+    public String model;
+
+    private ObjectMapper objectMapper;
+    private Object entity;
+    private Class<?> entityClass;
+    private byte[] json;
+
+    @Setup
+    public void prepare() throws IOException {
+        objectMapper = SHARED.equals(mapper) ? Json.mapper() : new ObjectMapper();
+        entity = sample(model);
+        entityClass = entity.getClass();
+        json = objectMapper.writeValueAsBytes(entity);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(entity);
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException {
+        return objectMapper.readValue(json, entityClass);
+    }
+
+    // Helper method to create a typical entity of the named model class, with its references filled in
+    private static Object sample(String model) {
+        Patient patient = new Patient("001P", "Jane Smith", "jane@example.com", "1 Main Street", "Asthma since childhood", "Stable");
+        Doctor doctor = new Doctor("001D", "John Doe", "john@example.com", "2 High Street", "Cardiology");
+        switch (model) {
+            case "Patient":
+                return patient;
+            case "Doctor":
+                return doctor;
+            case "Appointment":
+                return new Appointment("APP001", "2024-05-06", "09:00", doctor, patient);
+            case "Billing":
+                return new Billing("001", "Consultation and blood tests", "Card", 125.5, patient, doctor);
+            case "Prescription":
+                return new Prescription("1", "Salbutamol", "100 micrograms", "Two puffs when needed", "30 days", patient, doctor);
+            case "MedicalRecord":
+                return new MedicalRecord("001", patient, "Mild asthma, seasonal allergies", "Inhaler, antihistamines");
+            default:
+                throw new IllegalArgumentException("Unknown model class: " + model);
+        }
+    }
+}
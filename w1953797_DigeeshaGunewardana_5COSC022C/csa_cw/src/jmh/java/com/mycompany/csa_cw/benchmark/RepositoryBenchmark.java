@@ -0,0 +1,105 @@
+package com.mycompany.csa_cw.benchmark;
+
+import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.repository.Repositories;
+import com.mycompany.csa_cw.repository.Repository;
+import com.mycompany.csa_cw.util.Page;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The same workload run against each repository engine: ID lookups, lookups
+ * through a secondary index, paging, replacing entities, and the snapshot
+ * readers take after a write.
+ *
+ * Run with: mvn -P benchmarks test-compile exec:exec -Djmh.args="RepositoryBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+    private static final String BY_HEALTH_STATUS = "healthStatus";
+    private static final String[] HEALTH_STATUSES = {"Stable", "Critical", "Recovering", "Good", "Poor", "Serious", "Fair", "Unknown"};
+
+    @Param({Repositories.HASH, Repositories.SORTED})
+    public String engine;
+
+    @Param({"10000", "100000"})
+    public int size;
+
+    private Repository<Patient> repository;
+    private List<String> ids;
+    // The cursor of every page after the first
+    private List<String> cursors;
+
+    @Setup
+    public void fill() {
+        Repositories.setEngine(engine);
+        repository = Repositories.create(Patient::getId);
+        repository.addIndex(BY_HEALTH_STATUS, Patient::getHealthStatus);
+        ids = new ArrayList<>(size);
+        List<Patient> patients = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Patient patient = patient(i);
+            patients.add(patient);
+            ids.add(patient.getId());
+        }
+        repository.putAll(patients);
+        cursors = new ArrayList<>();
+        for (String cursor = repository.page(null, 50).getNextCursor(); cursor != null; cursor = repository.page(cursor, 50).getNextCursor()) {
+            cursors.add(cursor);
+        }
+    }
+
+    @Benchmark
+    public Patient get() {
+        return repository.get(randomId());
+    }
+
+    @Benchmark
+    public List<Patient> findBy() {
+        return repository.findBy(BY_HEALTH_STATUS, HEALTH_STATUSES[ThreadLocalRandom.current().nextInt(HEALTH_STATUSES.length)]);
+    }
+
+    @Benchmark
+    public Page<Patient> page() {
+        return repository.page(cursors.get(ThreadLocalRandom.current().nextInt(cursors.size())), 50);
+    }
+
+    @Benchmark
+    public Patient put() {
+        return repository.put(patient(ThreadLocalRandom.current().nextInt(size)));
+    }
+
+    // A write followed by a full read, as when a client lists every entity after each change
+    @Benchmark
+    public List<Patient> putThenSnapshot() {
+        repository.put(patient(ThreadLocalRandom.current().nextInt(size)));
+        return repository.snapshot();
+    }
+
+    private String randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(size));
+    }
+
+    private static Patient patient(int i) {
+        return new Patient(String.format("%07dP", i), "Patient " + i, "patient" + i + "@example.com", i + " Main Street",
+                "None", HEALTH_STATUSES[i % HEALTH_STATUSES.length]);
+    }
+}
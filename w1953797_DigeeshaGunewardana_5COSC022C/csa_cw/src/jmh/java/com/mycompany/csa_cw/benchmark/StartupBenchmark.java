@@ -0,0 +1,120 @@
+package com.mycompany.csa_cw.benchmark;
+
+import com.mycompany.csa_cw.dao.DataStore;
+import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.persistence.Journal;
+import com.mycompany.csa_cw.persistence.SnapshotFile;
+import com.mycompany.csa_cw.persistence.Snapshots;
+import com.mycompany.csa_cw.util.Json;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to restore the data at start-up, from the newest snapshot plus a short
+ * journal tail, against replaying a journal holding every change.
+ *
+ * Both start from the same entities: the replayed journal holds one record per
+ * entity, while the snapshot holds all of them and the journal behind it only
+ * the changes made after it was taken, as it is after a snapshot has trimmed it.
+ *
+ * Run with: mvn -P benchmarks test-compile exec:exec -Djmh.args="StartupBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class StartupBenchmark {
+    // Changes made after the snapshot was taken
+    private static final int TAIL = 1000;
+
+    @Param({"100000", "1000000"})
+    public int entities;
+
+    private Path root;
+    private Path replayJournal;
+    private Path snapshots;
+    private Path tailJournal;
+
+    @Setup(Level.Trial)
+    public void write() throws IOException {
+        root = Files.createTempDirectory("csa_cw-startup");
+        replayJournal = root.resolve("replay");
+        snapshots = root.resolve("snapshots");
+        tailJournal = root.resolve("tail");
+        List<Patient> patients = new ArrayList<>(entities);
+        try (Journal journal = Journal.open(replayJournal, true, record -> { })) {
+            Journal.Ticket last = Journal.Ticket.done();
+            for (int i = 0; i < entities; i++) {
+                Patient patient = patient(i, "Stable");
+                patients.add(patient);
+                last = journal.appendPut(DataStore.PATIENT, patient.getId(), patient);
+            }
+            last.await();
+        }
+        SnapshotFile.write(snapshots, entities, Collections.singletonMap(DataStore.PATIENT, patients), Json.cborMapper()::writeValueAsBytes);
+        try (Journal journal = Journal.open(tailJournal, true, entities, record -> { })) {
+            Journal.Ticket last = Journal.Ticket.done();
+            for (int i = 0; i < TAIL; i++) {
+                Patient patient = patient(i, "Recovering");
+                last = journal.appendPut(DataStore.PATIENT, patient.getId(), patient);
+            }
+            last.await();
+        }
+    }
+
+    // Every restore starts from empty DAOs, as a new process would
+    @Setup(Level.Iteration)
+    public void empty() {
+        DataStore.clear();
+    }
+
+    @Benchmark
+    public long snapshotAndTail() throws IOException {
+        long covered = Snapshots.loadLatest(snapshots);
+        try (Journal journal = Journal.open(tailJournal, true, covered, DataStore::recover)) {
+            return journal.getLastSequence();
+        }
+    }
+
+    @Benchmark
+    public long fullReplay() throws IOException {
+        try (Journal journal = Journal.open(replayJournal, true, 0, DataStore::recover)) {
+            return journal.getLastSequence();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static Patient patient(int i, String healthStatus) {
+        return new Patient(String.format("%07dP", i), "Patient " + i, "patient" + i + "@example.com", i + " Main Street", "None", healthStatus);
+    }
+}
@@ -1,120 +1,498 @@
 package com.mycompany.csa_cw.dao;
 
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import com.mycompany.csa_cw.exception.ScheduleConflictException;
 import com.mycompany.csa_cw.model.Appointment;
+import com.mycompany.csa_cw.model.FreeSlot;
+import com.mycompany.csa_cw.repository.Repositories;
+import com.mycompany.csa_cw.repository.Repository;
+import com.mycompany.csa_cw.repository.RepositoryListener;
 import com.mycompany.csa_cw.util.GenerateId;
+import com.mycompany.csa_cw.util.OccupancyIndex;
+import com.mycompany.csa_cw.util.Page;
+import com.mycompany.csa_cw.util.StripedLock;
 
 public class AppointmentDAO {
-    // Static list to store appointments
-    private static List<Appointment> appointments = new ArrayList<>();
+    // Names of the repository indexes on the ID of the patient and of the doctor
+    private static final String BY_PATIENT = "patient";
+    private static final String BY_DOCTOR = "doctor";
+    // Length of every appointment: two appointments of a doctor clash if they start less than this apart
+    public static final Duration APPOINTMENT_LENGTH = Duration.ofMinutes(30);
+    // Locks making each check-journal-write sequence atomic per ID, so writes to different IDs run in parallel
+    private static final StripedLock locks = new StripedLock();
+    // Locks making each clash check atomic with the booking it allows, per doctor; always taken before the ID lock
+    static final StripedLock doctorLocks = new StripedLock();
     // Object for generating appointment IDs
     private GenerateId idGenerator = new GenerateId();
-    
-    // Initialize some sample data
+
     static {
-        appointments.add(new Appointment("APP001", "2024-05-06", "09:00", null, null));
+        // Move the ID sequence past the sample IDs before any appointment ID is handed out, even one handed out
+        // before the in-memory data is created, so a new appointment is never given a sample's ID
+        for (Appointment appointment : sampleData()) {
+            GenerateId.observe(appointment.getId());
+        }
+    }
+    
+    // The in-memory data, held in its own class so that it is only created and seeded once an
+    // in-memory method first uses it, and not when a JDBC DAO, which extends this class, is loaded
+    private static final class Memory {
+        // Static repository storing the appointments, keyed by appointment ID
+        static Repository<Appointment> appointments = Repositories.create(Appointment::getId);
+        // Appointments sorted by their scheduled date and time, for range queries
+        static NavigableMap<ScheduleKey, Appointment> appointmentsBySchedule = new ConcurrentSkipListMap<>();
+        // Each doctor's appointments sorted by their scheduled date and time, for finding clashing bookings
+        static Map<String, NavigableMap<ScheduleKey, Appointment>> schedulesByDoctor = new ConcurrentHashMap<>();
+        // Each doctor's booked 5-minute slots per day, rebuilt from their schedule after it changes
+        static final OccupancyIndex occupancy = new OccupancyIndex(APPOINTMENT_LENGTH, AppointmentDAO::startsOverlapping);
+
+        static {
+            // Index appointments by the ID of their patient and of their doctor
+            appointments.addIndex(BY_PATIENT, AppointmentDAO::patientIdOf);
+            appointments.addIndex(BY_DOCTOR, AppointmentDAO::doctorIdOf);
+            // Keep the schedule index in step with every write to the repository
+            appointments.addListener(new RepositoryListener<Appointment>() {
+                @Override
+                public void onPut(Appointment previous, Appointment current) {
+                    if (previous != null) {
+                        appointmentsBySchedule.remove(ScheduleKey.of(previous));
+                        unscheduleForDoctor(previous);
+                    }
+                    appointmentsBySchedule.put(ScheduleKey.of(current), current);
+                    scheduleForDoctor(current);
+                }
+
+                @Override
+                public void onRemove(Appointment removed) {
+                    appointmentsBySchedule.remove(ScheduleKey.of(removed));
+                    unscheduleForDoctor(removed);
+                }
+            });
+
+            // Add the sample appointments to the repository
+            for (Appointment appointment : sampleData()) {
+                store(appointment);
+            }
+        }
+    }
+
+    // Method to create the sample appointments, which fill an empty store at start-up
+    static List<Appointment> sampleData() {
+        return Arrays.asList(new Appointment("APP001", "2024-05-06", "09:00", null, null));
     }
     
     // Method to retrieve all appointments
     public List<Appointment> getAllAppointments() {
-        // Return a copy of the list to prevent direct modification
-        return new ArrayList<>(appointments);
+        // Return the shared read-only snapshot, which is only re-copied after a change
+        return Memory.appointments.snapshot();
+    }
+
+    // Method to retrieve one page of appointments in ID order, starting after the given cursor
+    public Page<Appointment> getAppointmentsPage(String cursor, int limit) {
+        return Memory.appointments.page(cursor, limit);
+    }
+
+    // Method to get a live, read-only view of all appointments in ID order, for streaming without a copy
+    public Collection<Appointment> getAppointmentsView() {
+        return Memory.appointments.view();
     }
     
     // Method to get an appointment by ID
     public Appointment getAppointmentById(String appointmentId) {
-        // Iterate through the list to find the appointment with the given ID
-        for (Appointment appointment : appointments) {
-            if (appointment.getId().equals(appointmentId)) {
-                return appointment; // Return the appointment if found
-            }
+        if (appointmentId == null) {
+            return null; // Return null if appointment not found
         }
-        return null; // Return null if appointment not found
+        // Look up the appointment directly by ID
+        return Memory.appointments.get(appointmentId);
     }
 
     // Method to get appointments by date
     public List<Appointment> getAppointmentsByDate(String date) {
-        // Create a list to store appointments on the specified date
-        List<Appointment> appointmentsOnDate = new ArrayList<>();
-        // Iterate through the list to find appointments on the specified date
-        for (Appointment appointment : appointments) {
-            if (appointment.getDate().equals(date)) {
-                appointmentsOnDate.add(appointment); // Add appointment to the list if date matches
-            }
+        LocalDate day;
+        try {
+            day = LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            return new ArrayList<>(); // No stored appointment can match an unparseable date
         }
-        return appointmentsOnDate; // Return the list of appointments on the specified date
+        // Read the whole day from the schedule index
+        return getAppointmentsBetween(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+    
+    // Method to get appointments scheduled from 'from' (inclusive) up to 'to' (exclusive), in time order
+    public List<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return new ArrayList<>(); // Empty range
+        }
+        // Only the entries inside the range are visited
+        return new ArrayList<>(Memory.appointmentsBySchedule.subMap(ScheduleKey.lowest(from), true, ScheduleKey.lowest(to), false).values());
     }
     
     // Method to get appointments by patient ID
     public List<Appointment> getAppointmentsByPatientId(String patientId) {
-        // Create a list to store appointments for the specified patient
-        List<Appointment> appointmentsForPatient = new ArrayList<>();
-        // Iterate through the list to find appointments for the specified patient
-        for (Appointment appointment : appointments) {
-            if (appointment.getId() != null && appointment.getId().equals(patientId)) {
-                appointmentsForPatient.add(appointment); // Add appointment to the list if patient ID matches
-            }
-        }
-        return appointmentsForPatient;
+        // Read the appointments referencing the patient from the index
+        return Memory.appointments.findBy(BY_PATIENT, patientId);
     }
 
     // Method to get appointments by doctor ID
     public List<Appointment> getAppointmentsByDoctorId(String doctorId) {
-        // Create a list to store appointments for the specified doctor
-        List<Appointment> appointmentsForDoctor = new ArrayList<>();
-        // Iterate through the list to find appointments for the specified doctor
-        for (Appointment appointment : appointments) {
-            if (appointment.getId() != null && appointment.getId().equals(doctorId)) {
-                appointmentsForDoctor.add(appointment); // Add appointment to the list if doctor ID matches
+        // Read the appointments referencing the doctor from the index
+        return Memory.appointments.findBy(BY_DOCTOR, doctorId);
+    }
+    
+    // Method to find free appointment slots of the given doctors from 'from' up to 'to', only between the daily
+    // opening and closing times. Returns at most limit slots, earliest first, then by doctor ID.
+    public List<FreeSlot> getFreeSlots(Collection<String> doctorIds, LocalDateTime from, LocalDateTime to, LocalTime opens, LocalTime closes, int limit) {
+        OccupancyIndex index = occupancy();
+        List<FreeSlot> slots = new ArrayList<>();
+        for (LocalDate day = from.toLocalDate(); slots.size() < limit && day.atTime(opens).isBefore(to); day = day.plusDays(1)) {
+            LocalDateTime dayFrom = from.isAfter(day.atTime(opens)) ? from : day.atTime(opens);
+            LocalDateTime dayTo = to.isBefore(day.atTime(closes)) ? to : day.atTime(closes);
+            if (!dayFrom.isBefore(dayTo)) {
+                continue;
+            }
+            // Take each doctor's earliest slots of the day, then merge them in time order
+            List<FreeSlot> daySlots = new ArrayList<>();
+            for (String doctorId : doctorIds) {
+                for (LocalDateTime start : index.freeSlots(doctorId, dayFrom, dayTo, limit - slots.size())) {
+                    daySlots.add(new FreeSlot(doctorId, day.toString(), start.toLocalTime().toString()));
+                }
             }
+            daySlots.sort(Comparator.comparing(FreeSlot::getTime).thenComparing(FreeSlot::getDoctorId));
+            slots.addAll(daySlots.subList(0, Math.min(daySlots.size(), limit - slots.size())));
         }
-        return appointmentsForDoctor; // Return the list of appointments for the specified doctor
+        return slots;
     }
-    
-    // Method to add a new appointment
-    public void addAppointment(Appointment appointment) {
-        // Generate appointment ID
-        String appointmentId = idGenerator.generateAppointmentId();
-        appointment.setId(appointmentId);
-
-        // Add appointment to the list
-        appointments.add(appointment);
-    }
-
-    // Method to update an existing appointment by ID
-    public void updateAppointment(String id, Appointment updatedAppointment) {
-        // Find the index of the appointment with the given ID
-        int index = findAppointmentIndexById(id);
-        // Check if appointment with the given ID exists
-        if (index != -1) {
-            appointments.set(index, updatedAppointment); // Update the appointment at the found index
-        } else {
+
+    // Method to add a new appointment, refusing it if the doctor is already booked at that time
+    public void addAppointment(Appointment appointment) throws ScheduleConflictException {
+        // Validate the schedule before an ID is spent on an invalid appointment
+        parseSchedule(appointment);
+
+        // Add appointment to the repository and the schedule indexes
+        Lock doctorLock = doctorLocks.get(doctorIdOf(appointment));
+        doctorLock.lock();
+        try {
+            // No other booking of the doctor can get in between the check and the write
+            checkClash(appointment, null);
+            // Generate appointment ID
+            String appointmentId = idGenerator.generateAppointmentId();
+            appointment.setId(appointmentId);
+            // New appointments start at version 1
+            appointment.setVersion(1);
+            Lock lock = locks.get(appointmentId);
+            lock.lock();
+            try {
+                // Journal the change first, and make it visible only once it is durable
+                DataStore.put(DataStore.APPOINTMENT, appointmentId, appointment, () -> store(appointment));
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            doctorLock.unlock();
+        }
+    }
+
+    // Method to add a batch of new appointments, with their IDs reserved in one block.
+    // Every schedule is validated before anything is stored. Appointments that clash with a booking of their
+    // doctor, including an earlier one in the batch, are left out and returned with the reason. The accepted
+    // appointments are stored as a single write. Returns once the whole batch is durable.
+    public Map<Appointment, String> addAppointments(List<Appointment> newAppointments) {
+        for (Appointment appointment : newAppointments) {
+            parseSchedule(appointment);
+        }
+        Map<Appointment, String> refused = new IdentityHashMap<>();
+        List<Appointment> accepted = new ArrayList<>(newAppointments.size());
+        // Each doctor's appointments accepted so far, so the batch cannot double-book a doctor either
+        Map<String, NavigableMap<ScheduleKey, Appointment>> booked = new HashMap<>();
+        List<String> appointmentIds = GenerateId.generateAppointmentIds(newAppointments.size());
+        // A batch may book any doctor, so every doctor's lock is held until it is applied
+        doctorLocks.lockAll();
+        try {
+            for (int i = 0; i < newAppointments.size(); i++) {
+                Appointment appointment = newAppointments.get(i);
+                appointment.setId(appointmentIds.get(i));
+                appointment.setVersion(1);
+                try {
+                    checkClash(appointment, null);
+                    String doctorId = doctorIdOf(appointment);
+                    if (doctorId != null) {
+                        NavigableMap<ScheduleKey, Appointment> schedule = booked.computeIfAbsent(doctorId, id -> new TreeMap<>());
+                        Appointment clash = findClash(schedule, parseSchedule(appointment), null);
+                        if (clash != null) {
+                            throw conflictWith(doctorId, clash);
+                        }
+                        schedule.put(ScheduleKey.of(appointment), appointment);
+                    }
+                    accepted.add(appointment);
+                } catch (ScheduleConflictException e) {
+                    refused.put(appointment, e.getMessage());
+                }
+            }
+            // Hold the locks of every accepted ID, then journal the batch as one record and apply it once that is
+            // durable. Readers may see the appointments appear one by one while it is applied.
+            List<String> acceptedIds = new ArrayList<>(accepted.size());
+            for (Appointment appointment : accepted) {
+                acceptedIds.add(appointment.getId());
+            }
+            List<Lock> taken = locks.lock(acceptedIds);
+            try {
+                DataStore.putAll(DataStore.APPOINTMENT, accepted, () -> {
+                    for (Appointment appointment : accepted) {
+                        store(appointment);
+                    }
+                });
+            } finally {
+                locks.unlock(taken);
+            }
+        } finally {
+            doctorLocks.unlockAll();
+        }
+        return refused;
+    }
+
+    // Method to check whether an appointment has a date and time that can be scheduled
+    public boolean hasValidSchedule(Appointment appointment) {
+        try {
+            parseSchedule(appointment);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // Method to update an existing appointment by ID, refusing the update if it clashes with another booking of the doctor
+    public void updateAppointment(String id, Appointment updatedAppointment) throws ScheduleConflictException {
+        if (!update(id, updatedAppointment, null)) {
             System.out.println("Appointment not found with ID: " + id);
         }
     }
+
+    // Method to update an existing appointment only if its stored version is the expected one, as for an If-Match request.
+    // Returns false if there is no appointment with the ID or it has changed since.
+    public boolean updateAppointment(String id, Appointment updatedAppointment, long expectedVersion) throws ScheduleConflictException {
+        return update(id, updatedAppointment, expectedVersion);
+    }
     
     // Method to delete an appointment by ID
     public void deleteAppointment(String id) {
-        // Find the index of the appointment with the given ID
-        int index = findAppointmentIndexById(id);
-        // Check if appointment with the given ID exists
-        if (index != -1) {
-            appointments.remove(index); // Remove the appointment at the found index
-        } else {
-            System.out.println("Appointment not found with ID: " + id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            // Remove the appointment with the given ID, if present
+            if (Memory.appointments.get(id) != null) {
+                // Journal the delete first, and apply it only once it is durable
+                DataStore.delete(DataStore.APPOINTMENT, id, () -> remove(id));
+            } else {
+                System.out.println("Appointment not found with ID: " + id);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
-    // Helper method to find the index of an appointment by ID
-    private int findAppointmentIndexById(String id) {
-        // Iterate through the list to find the index of the appointment with the given ID
-        for (int i = 0; i < appointments.size(); i++) {
-            if (appointments.get(i).getId().equals(id)) {
-                return i; // Return the index if appointment with ID is found
+    // Method used by journal replay to put back an appointment exactly as it was recorded
+    static void restore(Appointment appointment) {
+        parseSchedule(appointment); // Reject a record the schedule index could not hold
+        store(appointment);
+    }
+
+    // Method used by journal replay to drop a deleted appointment
+    static void evict(String id) {
+        remove(id);
+    }
+
+    // Helper method to update an appointment under the lock of its doctor, after checking it clashes with no other booking
+    private boolean update(String id, Appointment updatedAppointment, Long expectedVersion) throws ScheduleConflictException {
+        // Validate the new schedule before touching the stored data
+        parseSchedule(updatedAppointment);
+        Lock doctorLock = doctorLocks.get(doctorIdOf(updatedAppointment));
+        doctorLock.lock();
+        try {
+            checkClash(updatedAppointment, id); // The appointment cannot clash with its own current booking
+            return replace(id, updatedAppointment, expectedVersion);
+        } finally {
+            doctorLock.unlock();
+        }
+    }
+
+    // Helper method to replace a stored appointment and bump its version, atomically with the version check.
+    // Returns false if there is none, or if its version is not the expected one (null for any version).
+    private static boolean replace(String id, Appointment updatedAppointment, Long expectedVersion) {
+        // Keep the stored ID in step with the key
+        updatedAppointment.setId(id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            Appointment current = Memory.appointments.get(id);
+            if (current == null || (expectedVersion != null && current.getVersion() != expectedVersion)) {
+                return false;
+            }
+            updatedAppointment.setVersion(current.getVersion() + 1);
+            // Replace the appointment once the change is durable; the repository re-indexes it
+            DataStore.put(DataStore.APPOINTMENT, id, updatedAppointment, () -> store(updatedAppointment));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Helper method to refuse an appointment that overlaps another booking of its doctor, other than the one with
+    // the ignored ID. Call with the doctor's lock held, so the answer stays true until the write.
+    void checkClash(Appointment appointment, String ignoredId) throws ScheduleConflictException {
+        String doctorId = doctorIdOf(appointment);
+        if (doctorId == null) {
+            return; // Only a doctor's own appointments can clash
+        }
+        Appointment clash = findClash(doctorId, parseSchedule(appointment), ignoredId);
+        if (clash != null) {
+            throw conflictWith(doctorId, clash);
+        }
+    }
+
+    // Helper method to build the error for a booking that clashes with the given appointment of the doctor
+    static ScheduleConflictException conflictWith(String doctorId, Appointment clash) {
+        return new ScheduleConflictException("Doctor with id: " + doctorId + " is already booked at " + clash.getDate() + " "
+                + clash.getTime() + " (appointment " + clash.getId() + ").");
+    }
+
+    // Method to find a stored appointment of the doctor that overlaps one starting at the given time, other than
+    // the one with the ignored ID; returns null if there is none
+    protected Appointment findClash(String doctorId, LocalDateTime start, String ignoredId) {
+        NavigableMap<ScheduleKey, Appointment> schedule = Memory.schedulesByDoctor.get(doctorId);
+        return schedule == null ? null : findClash(schedule, start, ignoredId);
+    }
+
+    // Method to get the index of booked slots that free slot searches read
+    protected OccupancyIndex occupancy() {
+        return Memory.occupancy;
+    }
+
+    // Helper method to read the start times of a doctor's appointments that overlap the given day
+    private static Collection<LocalDateTime> startsOverlapping(String doctorId, LocalDate day) {
+        List<LocalDateTime> starts = new ArrayList<>();
+        NavigableMap<ScheduleKey, Appointment> schedule = Memory.schedulesByDoctor.get(doctorId);
+        if (schedule != null) {
+            LocalDateTime midnight = day.atStartOfDay();
+            for (ScheduleKey key : schedule.subMap(ScheduleKey.lowest(midnight.minus(APPOINTMENT_LENGTH)), true, ScheduleKey.lowest(midnight.plusDays(1)), false).keySet()) {
+                starts.add(key.start);
+            }
+        }
+        return starts;
+    }
+
+    // Helper method to find an appointment in a schedule that starts less than APPOINTMENT_LENGTH before or after
+    // the given time. Only that window of the schedule is visited.
+    static Appointment findClash(NavigableMap<ScheduleKey, Appointment> schedule, LocalDateTime start, String ignoredId) {
+        LocalDateTime earliest = start.minus(APPOINTMENT_LENGTH);
+        for (Map.Entry<ScheduleKey, Appointment> entry : schedule.subMap(ScheduleKey.lowest(earliest), true, ScheduleKey.lowest(start.plus(APPOINTMENT_LENGTH)), false).entrySet()) {
+            // One that ends exactly when this one starts does not clash
+            if (entry.getKey().start.isAfter(earliest) && !Objects.equals(entry.getValue().getId(), ignoredId)) {
+                return entry.getValue();
             }
         }
-        return -1; // Return -1 if appointment with ID is not found
+        return null;
+    }
+
+    // Helper method to remove an appointment from the repository, returning false if it was not there
+    private static boolean remove(String id) {
+        return Memory.appointments.remove(id) != null;
+    }
+
+    // Helper method to put an appointment into the repository, replacing any previous version
+    private static void store(Appointment appointment) {
+        Memory.appointments.put(appointment);
+    }
+
+    // Helper methods to keep the per-doctor schedules in step with the repository
+    private static void scheduleForDoctor(Appointment appointment) {
+        String doctorId = doctorIdOf(appointment);
+        if (doctorId != null) {
+            ScheduleKey key = ScheduleKey.of(appointment);
+            Memory.schedulesByDoctor.computeIfAbsent(doctorId, id -> new ConcurrentSkipListMap<>()).put(key, appointment);
+            Memory.occupancy.invalidate(doctorId, key.start);
+        }
+    }
+
+    private static void unscheduleForDoctor(Appointment appointment) {
+        String doctorId = doctorIdOf(appointment);
+        NavigableMap<ScheduleKey, Appointment> schedule = doctorId == null ? null : Memory.schedulesByDoctor.get(doctorId);
+        if (schedule != null) {
+            ScheduleKey key = ScheduleKey.of(appointment);
+            schedule.remove(key);
+            Memory.occupancy.invalidate(doctorId, key.start);
+        }
+    }
+
+    // Helper methods to read the referenced patient and doctor IDs, if any
+    static String patientIdOf(Appointment appointment) {
+        return appointment.getPatient() == null ? null : appointment.getPatient().getId();
+    }
+
+    static String doctorIdOf(Appointment appointment) {
+        return appointment.getDoctor() == null ? null : appointment.getDoctor().getId();
+    }
+
+    // Helper method to parse the ISO date (yyyy-MM-dd) and time (HH:mm) of an appointment
+    static LocalDateTime parseSchedule(Appointment appointment) {
+        try {
+            return LocalDateTime.of(LocalDate.parse(appointment.getDate()), LocalTime.parse(appointment.getTime()));
+        } catch (DateTimeParseException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid appointment date or time: " + appointment.getDate() + " " + appointment.getTime());
+        }
+    }
+
+    // Sort key of the schedule index: start time first, appointment ID to keep keys unique
+    static final class ScheduleKey implements Comparable<ScheduleKey> {
+        private final LocalDateTime start;
+        private final String id;
+
+        ScheduleKey(LocalDateTime start, String id) {
+            this.start = start;
+            this.id = id;
+        }
+
+        // Key of a stored appointment, whose schedule has already been validated
+        static ScheduleKey of(Appointment appointment) {
+            return new ScheduleKey(parseSchedule(appointment), appointment.getId());
+        }
+
+        // Key that sorts before every appointment starting at the given time
+        static ScheduleKey lowest(LocalDateTime start) {
+            return new ScheduleKey(start, "");
+        }
+
+        @Override
+        public int compareTo(ScheduleKey other) {
+            int byStart = start.compareTo(other.start);
+            return byStart != 0 ? byStart : id.compareTo(other.id);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ScheduleKey && compareTo((ScheduleKey) other) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * start.hashCode() + id.hashCode();
+        }
     }
     
 }
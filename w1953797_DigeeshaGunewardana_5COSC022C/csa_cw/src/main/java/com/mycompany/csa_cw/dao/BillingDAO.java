@@ -1,56 +1,120 @@
 package com.mycompany.csa_cw.dao;
 
 import com.mycompany.csa_cw.model.Billing;
+import com.mycompany.csa_cw.repository.Repositories;
+import com.mycompany.csa_cw.repository.Repository;
+import com.mycompany.csa_cw.repository.RepositoryListener;
 import com.mycompany.csa_cw.util.GenerateId;
-import java.util.ArrayList;
+import com.mycompany.csa_cw.util.Page;
+import com.mycompany.csa_cw.util.StripedLock;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
 
 public class BillingDAO {
-    // List to store billings
-    private static List<Billing> billings = new ArrayList<>();
+    // Names of the repository indexes on the ID of the patient and of the doctor
+    private static final String BY_PATIENT = "patient";
+    private static final String BY_DOCTOR = "doctor";
+    // Locks making each check-journal-write sequence atomic per ID, so writes to different IDs run in parallel
+    private static final StripedLock locks = new StripedLock();
 
-    // Sample Data
-    static {
+    // The in-memory data, held in its own class so that it is only created and seeded once an
+    // in-memory method first uses it, and not when a JDBC DAO, which extends this class, is loaded
+    private static final class Memory {
+        // Repository storing the billings, keyed by billing ID
+        static Repository<Billing> billings = Repositories.create(Billing::getId);
+        // Running outstanding balance per patient, keyed by upper-cased patient ID.
+        // BigDecimal keeps the sums exact regardless of the order billings change in.
+        static Map<String, BigDecimal> totalsByPatient = new ConcurrentHashMap<>();
+
+        static {
+            // Index billings by the ID of their patient and of their doctor
+            billings.addIndex(BY_PATIENT, BillingDAO::patientIdOf);
+            billings.addIndex(BY_DOCTOR, BillingDAO::doctorIdOf);
+            // Keep the running totals in step with every write to the repository
+            billings.addListener(new RepositoryListener<Billing>() {
+                @Override
+                public void onPut(Billing previous, Billing current) {
+                    if (previous != null) {
+                        adjustTotal(previous, false);
+                    }
+                    adjustTotal(current, true);
+                }
+
+                @Override
+                public void onRemove(Billing removed) {
+                    adjustTotal(removed, false);
+                }
+            });
+
+            // Add the sample billings to the repository
+            for (Billing billing : sampleData()) {
+                store(billing);
+            }
+        }
+    }
+
+    // Method to create the sample billings, which fill an empty store at start-up
+    static List<Billing> sampleData() {
         // Sample billings
         Billing billing1 = new Billing("001", "Invoice 001", "Payment 001", 1000, null, null);
         Billing billing2 = new Billing("002", "Invoice 002", "Payment 002", 2000, null, null);
         Billing billing3 = new Billing("003", "Invoice 003", "Payment 003", 3000, null, null);
-
-        // Add sample billings to the list
-        billings.add(billing1);
-        billings.add(billing2);
-        billings.add(billing3);
+        return Arrays.asList(billing1, billing2, billing3);
     }
 
     // Object for generating billing IDs
     private GenerateId idGenerator = new GenerateId();
+
+    static {
+        // Move the ID sequence past the sample IDs before any billing ID is handed out, even one handed out
+        // before the in-memory data is created, so a new billing is never given a sample's ID
+        for (Billing billing : sampleData()) {
+            GenerateId.observe(billing.getId());
+        }
+    }
     
     // Method to retrieve all billings
     public List<Billing> getAllBillings() {
-        // Return a copy of the list to prevent direct modification
-        return new ArrayList<>(billings);
+        // Return the shared read-only snapshot, which is only re-copied after a change
+        return Memory.billings.snapshot();
+    }
+
+    // Method to retrieve one page of billings in ID order, starting after the given cursor
+    public Page<Billing> getBillingsPage(String cursor, int limit) {
+        return Memory.billings.page(cursor, limit);
+    }
+
+    // Method to get a live, read-only view of all billings in ID order, for streaming without a copy
+    public Collection<Billing> getBillingsView() {
+        return Memory.billings.view();
     }
     
     // Method to get a billing by ID
     public Billing getBillingById(String billingId) {
-        // Iterate through the list to find the billing with the given ID
-        for (Billing billing : billings) {
-            if (billing.getId().equals(billingId)) {
-                return billing; // Return the billing if found
-            }
+        if (billingId == null) {
+            return null; // Return null if billing not found
         }
-        return null; // Return null if billing not found
+        // Look up the billing directly by ID
+        return Memory.billings.get(billingId);
     }
 
     // Method to get billings by patient ID
     public List<Billing> getBillingsByPatientId(String patientId) {
-        List<Billing> billingsForPatient = new ArrayList<>();
-        for (Billing billing : billings) {
-            if (billing.getId().equals(patientId)) {
-                billingsForPatient.add(billing);
-            }
-        }
-        return billingsForPatient;
+        // Read the billings referencing the patient from the index
+        return Memory.billings.findBy(BY_PATIENT, patientId);
+    }
+
+    // Method to get billings by doctor ID
+    public List<Billing> getBillingsByDoctorId(String doctorId) {
+        // Read the billings referencing the doctor from the index
+        return Memory.billings.findBy(BY_DOCTOR, doctorId);
     }
     
     // Method to add a new billing
@@ -58,54 +122,163 @@ public class BillingDAO {
         // Generate billing ID
         String billingId = idGenerator.generateBillingId();
         billing.setId(billingId);
+        // New billings start at version 1
+        billing.setVersion(1);
 
-        // Add billing to the list
-        billings.add(billing);
+        // Add billing to the repository
+        Lock lock = locks.get(billingId);
+        lock.lock();
+        try {
+            // Journal the change first, and make it visible only once it is durable
+            DataStore.put(DataStore.BILLING, billingId, billing, () -> store(billing));
+        } finally {
+            lock.unlock();
+        }
     }
 
     // Method to update an existing billing by ID
     public void updateBilling(String id, Billing updatedBilling) {
-        int index = findBillingIndexById(id);
-        if (index != -1) {
-            billings.set(index, updatedBilling);
-        } else {
+        if (!replace(id, updatedBilling, null)) {
             System.out.println("Billing not found with ID: " + id);
         }
     }
+
+    // Method to update an existing billing only if its stored version is the expected one, as for an If-Match request.
+    // Returns false if there is no billing with the ID or it has changed since.
+    public boolean updateBilling(String id, Billing updatedBilling, long expectedVersion) {
+        return replace(id, updatedBilling, expectedVersion);
+    }
     
     // Method to delete a billing by ID
     public void deleteBilling(String id) {
-        // Find the index of the billing with the given ID
-        int index = findBillingIndexById(id);
-        // Check if billing with the given ID exists
-        if (index != -1) {
-            billings.remove(index); // Remove the billing at the found index
-        } else {
-            System.out.println("Billing not found with ID: " + id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            // Remove the billing with the given ID, if present
+            if (Memory.billings.get(id) != null) {
+                // Journal the delete first, and apply it only once it is durable
+                DataStore.delete(DataStore.BILLING, id, () -> remove(id));
+            } else {
+                System.out.println("Billing not found with ID: " + id);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
-    // Helper method to find the index of a billing by ID
-    private int findBillingIndexById(String id) {
-        // Iterate through the list to find the index of the billing with the given ID
-        for (int i = 0; i < billings.size(); i++) {
-            if (billings.get(i).getId().equals(id)) {
-                return i; // Return the index if billing with ID is found
+    // Method used by journal replay to put back a billing exactly as it was recorded
+    static void restore(Billing billing) {
+        store(billing);
+    }
+
+    // Method used by journal replay to drop a deleted billing
+    static void evict(String id) {
+        remove(id);
+    }
+
+    // Helper method to replace a stored billing and bump its version, atomically with the version check.
+    // Returns false if there is none, or if its version is not the expected one (null for any version).
+    private static boolean replace(String id, Billing updatedBilling, Long expectedVersion) {
+        // Keep the stored ID in step with the key
+        updatedBilling.setId(id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            Billing current = Memory.billings.get(id);
+            if (current == null || (expectedVersion != null && current.getVersion() != expectedVersion)) {
+                return false;
             }
+            updatedBilling.setVersion(current.getVersion() + 1);
+            // Replace the billing once the change is durable; the repository re-indexes it
+            DataStore.put(DataStore.BILLING, id, updatedBilling, () -> store(updatedBilling));
+        } finally {
+            lock.unlock();
         }
-        return -1; // Return -1 if billing with ID is not found
+        return true;
+    }
+
+    // Helper method to remove a billing from the repository, returning false if it was not there
+    private static boolean remove(String id) {
+        return Memory.billings.remove(id) != null;
+    }
+
+    // Helper method to put a billing into the repository, replacing any previous version
+    private static void store(Billing billing) {
+        Memory.billings.put(billing);
+    }
+
+    // Helper methods to read the referenced patient and doctor IDs, if any
+    static String patientIdOf(Billing billing) {
+        return billing.getPatient() == null ? null : billing.getPatient().getId();
     }
 
-    // Method to calculate the total bill for a patient based on patient ID
+    static String doctorIdOf(Billing billing) {
+        return billing.getDoctor() == null ? null : billing.getDoctor().getId();
+    }
+
+    // Method to get the total bill for a patient based on patient ID
     public double getTotalBillByPatientId(String patientId) {
-        double totalBill = 0;
-        // Iterate through the list to calculate total bill for the specified patient
-        for (Billing billing : billings) {
-            if (billing.getPatient().getId().equalsIgnoreCase(patientId)) {
-                totalBill += billing.getOutstandingBalance(); // Add outstanding balance to the total bill
+        if (patientId == null) {
+            return 0;
+        }
+        // Read the running total kept up to date by the write methods
+        BigDecimal totalBill = Memory.totalsByPatient.get(totalKey(patientId));
+        return totalBill == null ? 0 : totalBill.doubleValue();
+    }
+
+    // Method to recompute every patient's total from the stored billings and replace the running totals.
+    // Returns the drift found per patient (recomputed minus running total); empty when they agreed.
+    public Map<String, Double> rebuildTotals() {
+        // Hold every stripe so no billing changes while the totals are rebuilt
+        locks.lockAll();
+        try {
+            Map<String, BigDecimal> recomputed = new HashMap<>();
+            for (Billing billing : Memory.billings.view()) {
+                String patientId = patientIdOf(billing);
+                if (patientId != null) {
+                    recomputed.merge(totalKey(patientId), BigDecimal.valueOf(billing.getOutstandingBalance()), BigDecimal::add);
+                }
+            }
+            // Compare both ways so patients missing from either side are reported too
+            Map<String, Double> drift = new HashMap<>();
+            for (Map.Entry<String, BigDecimal> entry : recomputed.entrySet()) {
+                BigDecimal running = Memory.totalsByPatient.getOrDefault(entry.getKey(), BigDecimal.ZERO);
+                if (entry.getValue().compareTo(running) != 0) {
+                    drift.put(entry.getKey(), entry.getValue().subtract(running).doubleValue());
+                }
             }
+            for (Map.Entry<String, BigDecimal> entry : Memory.totalsByPatient.entrySet()) {
+                if (!recomputed.containsKey(entry.getKey()) && entry.getValue().signum() != 0) {
+                    drift.put(entry.getKey(), entry.getValue().negate().doubleValue());
+                }
+            }
+            recomputed.values().removeIf(total -> total.signum() == 0);
+            Memory.totalsByPatient.keySet().retainAll(recomputed.keySet());
+            Memory.totalsByPatient.putAll(recomputed);
+            return drift;
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    // Helper method to add a billing's balance to (or take it off) its patient's running total
+    private static void adjustTotal(Billing billing, boolean add) {
+        String patientId = patientIdOf(billing);
+        if (patientId == null) {
+            return; // Billings without a patient do not count towards any total
         }
-        return totalBill; // Return the total bill for the specified patient
+        BigDecimal amount = BigDecimal.valueOf(billing.getOutstandingBalance());
+        BigDecimal delta = add ? amount : amount.negate();
+        // Drop the entry once it reaches zero so deleted patients do not leak
+        Memory.totalsByPatient.compute(totalKey(patientId), (key, total) -> {
+            BigDecimal updated = total == null ? delta : total.add(delta);
+            return updated.signum() == 0 ? null : updated;
+        });
+    }
+
+    // Helper method to normalise a patient ID for the totals, which match IDs case-insensitively
+    static String totalKey(String patientId) {
+        return patientId.toUpperCase(Locale.ROOT);
     }
     
 }
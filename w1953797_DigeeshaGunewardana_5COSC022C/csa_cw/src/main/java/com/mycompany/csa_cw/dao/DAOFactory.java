@@ -0,0 +1,100 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.persistence.Database;
+import com.mycompany.csa_cw.persistence.JdbcTable;
+import com.mycompany.csa_cw.util.GenerateId;
+import java.util.Collection;
+
+/**
+ * Hands out the DAOs of the configured storage backend.
+ *
+ * By default the in-memory DAOs are used. Once {@link #useDatabase(Database)}
+ * has been called, the JDBC DAOs are handed out instead. DAOs of either kind
+ * hold no request state, so one instance of each is shared.
+ */
+public final class DAOFactory {
+    private static volatile JdbcDAOs jdbc;
+
+    private DAOFactory() {
+    }
+
+    // Method to switch every DAO to the given database, creating the tables if needed
+    public static void useDatabase(Database database) {
+        jdbc = new JdbcDAOs(database);
+    }
+
+    // Method to switch back to the in-memory DAOs
+    public static void useMemory() {
+        jdbc = null;
+    }
+
+    public static PatientDAO patientDAO() {
+        JdbcDAOs current = jdbc;
+        return current == null ? MemoryDAOs.patients : current.patients;
+    }
+
+    public static DoctorDAO doctorDAO() {
+        JdbcDAOs current = jdbc;
+        return current == null ? MemoryDAOs.doctors : current.doctors;
+    }
+
+    public static AppointmentDAO appointmentDAO() {
+        JdbcDAOs current = jdbc;
+        return current == null ? MemoryDAOs.appointments : current.appointments;
+    }
+
+    public static BillingDAO billingDAO() {
+        JdbcDAOs current = jdbc;
+        return current == null ? MemoryDAOs.billings : current.billings;
+    }
+
+    public static PrescriptionDAO prescriptionDAO() {
+        JdbcDAOs current = jdbc;
+        return current == null ? MemoryDAOs.prescriptions : current.prescriptions;
+    }
+
+    public static MedicalRecordDAO medicalRecordDAO() {
+        JdbcDAOs current = jdbc;
+        return current == null ? MemoryDAOs.medicalRecords : current.medicalRecords;
+    }
+
+    // Helper method to get a table ready: a table that was never used gets the sample data in one batch,
+    // and the ID sequences are moved past every ID used so far. A table emptied by deletes stays empty.
+    static <T> void prepare(JdbcTable<T> table, Collection<T> sampleData) {
+        if (table.isUnused()) {
+            table.putAll(sampleData);
+        }
+        for (String id : table.usedIds()) {
+            GenerateId.observe(id);
+        }
+    }
+
+    // Holder of the shared in-memory DAOs, created on first use so that the repository engine
+    // can still be chosen at start-up before any DAO class is loaded
+    private static final class MemoryDAOs {
+        private static final PatientDAO patients = new PatientDAO();
+        private static final DoctorDAO doctors = new DoctorDAO();
+        private static final AppointmentDAO appointments = new AppointmentDAO();
+        private static final BillingDAO billings = new BillingDAO();
+        private static final PrescriptionDAO prescriptions = new PrescriptionDAO();
+        private static final MedicalRecordDAO medicalRecords = new MedicalRecordDAO();
+    }
+
+    private static final class JdbcDAOs {
+        private final JdbcPatientDAO patients;
+        private final JdbcDoctorDAO doctors;
+        private final JdbcAppointmentDAO appointments;
+        private final JdbcBillingDAO billings;
+        private final JdbcPrescriptionDAO prescriptions;
+        private final JdbcMedicalRecordDAO medicalRecords;
+
+        JdbcDAOs(Database database) {
+            patients = new JdbcPatientDAO(database);
+            doctors = new JdbcDoctorDAO(database);
+            appointments = new JdbcAppointmentDAO(database);
+            billings = new JdbcBillingDAO(database);
+            prescriptions = new JdbcPrescriptionDAO(database);
+            medicalRecords = new JdbcMedicalRecordDAO(database);
+        }
+    }
+}
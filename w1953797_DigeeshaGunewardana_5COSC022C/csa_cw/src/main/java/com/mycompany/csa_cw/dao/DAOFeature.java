@@ -0,0 +1,51 @@
+package com.mycompany.csa_cw.dao;
+
+import java.util.function.Supplier;
+import javax.inject.Singleton;
+import javax.ws.rs.core.Feature;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.ext.Provider;
+import org.glassfish.hk2.api.Factory;
+import org.glassfish.hk2.utilities.binding.AbstractBinder;
+
+/**
+ * Makes the DAOs injectable into the resources as application-wide singletons.
+ *
+ * Each DAO is taken from {@link DAOFactory} when it is first injected, which is
+ * after the storage backend has been chosen at start-up, and that same
+ * instance is injected from then on.
+ */
+@Provider
+public class DAOFeature implements Feature {
+
+    @Override
+    public boolean configure(FeatureContext context) {
+        context.register(new AbstractBinder() {
+            @Override
+            protected void configure() {
+                bindShared(PatientDAO.class, DAOFactory::patientDAO);
+                bindShared(DoctorDAO.class, DAOFactory::doctorDAO);
+                bindShared(AppointmentDAO.class, DAOFactory::appointmentDAO);
+                bindShared(BillingDAO.class, DAOFactory::billingDAO);
+                bindShared(PrescriptionDAO.class, DAOFactory::prescriptionDAO);
+                bindShared(MedicalRecordDAO.class, DAOFactory::medicalRecordDAO);
+            }
+
+            // Helper method to bind a type to the single instance the supplier returns on first use
+            private <T> void bindShared(Class<T> type, Supplier<T> supplier) {
+                bindFactory(new Factory<T>() {
+                    @Override
+                    public T provide() {
+                        return supplier.get();
+                    }
+
+                    @Override
+                    public void dispose(T instance) {
+                        // The DAOs are shut down with the storage backend, not by the injector
+                    }
+                }).to(type).in(Singleton.class);
+            }
+        });
+        return true;
+    }
+}
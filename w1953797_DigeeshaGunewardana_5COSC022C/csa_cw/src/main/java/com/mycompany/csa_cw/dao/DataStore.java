@@ -0,0 +1,245 @@
+package com.mycompany.csa_cw.dao;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.csa_cw.model.Appointment;
+import com.mycompany.csa_cw.model.Billing;
+import com.mycompany.csa_cw.model.Doctor;
+import com.mycompany.csa_cw.model.MedicalRecord;
+import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.model.Prescription;
+import com.mycompany.csa_cw.persistence.Journal;
+import com.mycompany.csa_cw.persistence.JournalRecord;
+import com.mycompany.csa_cw.util.GenerateId;
+import com.mycompany.csa_cw.util.Json;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Connects the DAOs to the write-ahead journal and the snapshots.
+ *
+ * The DAOs pass every change through here while holding their write lock, so
+ * the journal sees the changes to an entity in the order they are applied. A
+ * change is journaled first and applied to the DAO only once its record is
+ * durable, so no request is ever served data that a crash could still lose,
+ * and a change the journal refuses is not applied at all. Until a journal is
+ * attached (or if journaling is turned off) changes are only kept in memory,
+ * as before.
+ */
+public final class DataStore {
+    private static final Logger logger = Logger.getLogger(DataStore.class.getName());
+
+    // Entity type names used in the journal
+    public static final String PATIENT = "Patient";
+    public static final String DOCTOR = "Doctor";
+    public static final String APPOINTMENT = "Appointment";
+    public static final String BILLING = "Billing";
+    public static final String PRESCRIPTION = "Prescription";
+    public static final String MEDICAL_RECORD = "MedicalRecord";
+
+    private static final ObjectMapper mapper = Json.mapper();
+    // How each entity type is read back into, and listed from, its DAO
+    private static final Map<String, EntityType<?>> types = new LinkedHashMap<>();
+    private static volatile Journal journal;
+    // Held shared by every change from being journaled to being applied, and exclusively to rotate the journal,
+    // so a rotation never falls between the two
+    private static final ReadWriteLock applyLock = new ReentrantReadWriteLock();
+
+    static {
+        register(PATIENT, Patient.class, Patient::getId, PatientDAO::restore, PatientDAO::evict, () -> new PatientDAO().getAllPatients());
+        register(DOCTOR, Doctor.class, Doctor::getId, DoctorDAO::restore, DoctorDAO::evict, () -> new DoctorDAO().getAllDoctors());
+        register(APPOINTMENT, Appointment.class, Appointment::getId, AppointmentDAO::restore, AppointmentDAO::evict, () -> new AppointmentDAO().getAllAppointments());
+        register(BILLING, Billing.class, Billing::getId, BillingDAO::restore, BillingDAO::evict, () -> new BillingDAO().getAllBillings());
+        register(PRESCRIPTION, Prescription.class, Prescription::getId, PrescriptionDAO::restore, PrescriptionDAO::evict, () -> new PrescriptionDAO().getAllPrescriptions());
+        register(MEDICAL_RECORD, MedicalRecord.class, MedicalRecord::getId, MedicalRecordDAO::restore, MedicalRecordDAO::evict, () -> new MedicalRecordDAO().getAllMedicalRecords());
+    }
+
+    private DataStore() {
+    }
+
+    // Method to start recording DAO changes in the given journal
+    public static void attach(Journal openJournal) {
+        journal = openJournal;
+    }
+
+    // Method to stop recording DAO changes, returning the journal that was attached (or null)
+    public static Journal detach() {
+        Journal detached = journal;
+        journal = null;
+        return detached;
+    }
+
+    /**
+     * Applies one replayed journal record to the DAOs, bypassing ID generation
+     * and journaling. The ID sequences are moved past every replayed ID so new
+     * entities do not reuse them. Every entity of a batch record is read before
+     * any is restored, so a batch comes back whole or not at all.
+     */
+    public static void recover(JournalRecord record) {
+        try {
+            EntityType<?> type = typeOf(record.getType());
+            if (record.getOperation() == JournalRecord.Operation.PUT) {
+                type.restore(mapper.treeToValue(record.getEntity(), type.entityClass));
+            } else if (record.getOperation() == JournalRecord.Operation.PUT_ALL) {
+                List<Object> entities = new ArrayList<>(record.getEntity().size());
+                for (JsonNode entity : record.getEntity()) {
+                    entities.add(mapper.treeToValue(entity, type.entityClass));
+                }
+                for (Object entity : entities) {
+                    type.restore(entity);
+                }
+            } else {
+                type.evict.accept(record.getId());
+            }
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            // One unreadable entity should not stop the rest of the data from loading
+            logger.log(Level.WARNING, "Skipping journal record " + record.getSequence() + " (" + record.getType() + " " + record.getId() + ").", e);
+        }
+    }
+
+    // Method to put back one entity read from a snapshot, in the same way as a replayed journal record.
+    // The reader is the mapper for the format the snapshot was written in.
+    public static void load(String typeName, byte[] data, ObjectMapper reader) {
+        try {
+            EntityType<?> type = typeOf(typeName);
+            type.restore(reader.readValue(data, type.entityClass));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Skipping unreadable " + typeName + " in snapshot.", e);
+        }
+    }
+
+    /**
+     * Drops every entity from the DAOs, including the sample data they start
+     * with, bypassing journaling. A snapshot holds the whole state, so it is
+     * loaded into empty DAOs; otherwise an entity deleted before the snapshot
+     * was taken, whose delete record has since been trimmed from the journal,
+     * would come back.
+     */
+    public static void clear() {
+        for (EntityType<?> type : types.values()) {
+            type.clear();
+        }
+    }
+
+    // Method to get the current entities of every type. Each collection is an unchanging copy,
+    // though the copies of different types may be taken a moment apart.
+    public static Map<String, Collection<?>> contents() {
+        Map<String, Collection<?>> contents = new LinkedHashMap<>();
+        for (Map.Entry<String, EntityType<?>> type : types.entrySet()) {
+            contents.put(type.getKey(), type.getValue().contents.get());
+        }
+        return contents;
+    }
+
+    /**
+     * Rotates the journal for a snapshot once no change is between being
+     * journaled and being applied, so every change up to the returned sequence
+     * number is already visible in the DAOs.
+     *
+     * @param journal the attached journal
+     * @return the sequence number of the last record in the previous segments
+     */
+    public static long rotate(Journal journal) {
+        Lock exclusive = applyLock.writeLock();
+        exclusive.lock();
+        try {
+            return journal.rotate();
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    // Method to journal a created or replaced entity, then apply the change once the record is durable
+    static void put(String type, String id, Object entity, Runnable apply) {
+        write(current -> current.appendPut(type, id, entity), apply);
+    }
+
+    // Method to journal a batch of created or replaced entities of one type as a single record, then apply the
+    // batch once that record is durable. A crash loses all of the batch or none of it.
+    static void putAll(String type, Collection<?> entities, Runnable apply) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        write(current -> current.appendPutAll(type, entities), apply);
+    }
+
+    // Method to journal a deleted entity, then apply the delete once the record is durable
+    static void delete(String type, String id, Runnable apply) {
+        write(current -> current.appendDelete(type, id), apply);
+    }
+
+    // Helper method to append a change's record to the attached journal, wait until it is durable and only
+    // then apply the change. Without a journal the change is applied straight away.
+    private static void write(Function<Journal, Journal.Ticket> append, Runnable apply) {
+        Journal current = journal;
+        if (current == null) {
+            apply.run();
+            return;
+        }
+        Lock shared = applyLock.readLock();
+        shared.lock();
+        try {
+            append.apply(current).await();
+            apply.run();
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    private static <T> void register(String name, Class<T> entityClass, Function<T, String> idOf, Consumer<T> restore,
+            Consumer<String> evict, Supplier<? extends Collection<T>> contents) {
+        types.put(name, new EntityType<>(entityClass, idOf, restore, evict, contents));
+    }
+
+    private static EntityType<?> typeOf(String name) {
+        EntityType<?> type = name == null ? null : types.get(name);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown entity type: " + name);
+        }
+        return type;
+    }
+
+    private static final class EntityType<T> {
+        private final Class<T> entityClass;
+        private final Function<T, String> idOf;
+        private final Consumer<T> restore;
+        private final Consumer<String> evict;
+        private final Supplier<? extends Collection<T>> contents;
+
+        EntityType(Class<T> entityClass, Function<T, String> idOf, Consumer<T> restore, Consumer<String> evict,
+                Supplier<? extends Collection<T>> contents) {
+            this.entityClass = entityClass;
+            this.idOf = idOf;
+            this.restore = restore;
+            this.evict = evict;
+            this.contents = contents;
+        }
+
+        // Restores an entity and moves the ID sequences past its ID
+        void restore(Object entity) {
+            T typed = entityClass.cast(entity);
+            restore.accept(typed);
+            GenerateId.observe(idOf.apply(typed));
+        }
+
+        // Evicts every entity of this type
+        void clear() {
+            for (T entity : contents.get()) {
+                evict.accept(idOf.apply(entity));
+            }
+        }
+    }
+}
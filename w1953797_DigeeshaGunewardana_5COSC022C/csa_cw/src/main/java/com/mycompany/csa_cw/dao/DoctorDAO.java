@@ -1,96 +1,224 @@
 package com.mycompany.csa_cw.dao;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
 import com.mycompany.csa_cw.model.Doctor;
+import com.mycompany.csa_cw.repository.Repositories;
+import com.mycompany.csa_cw.repository.Repository;
+import com.mycompany.csa_cw.repository.RepositoryListener;
+import com.mycompany.csa_cw.util.AttributeIndex;
 import com.mycompany.csa_cw.util.GenerateId;
+import com.mycompany.csa_cw.util.NameIndex;
+import com.mycompany.csa_cw.util.Page;
+import com.mycompany.csa_cw.util.StripedLock;
 
 public class DoctorDAO {
-    // Static list to store doctors
-    private static List<Doctor> doctors = new ArrayList<>();
+    // Locks making each check-journal-write sequence atomic per ID, so writes to different IDs run in parallel
+    private static final StripedLock locks = new StripedLock();
     
     // Object for generating doctor IDs
     private GenerateId idGenerator = new GenerateId();
-    
-    // Initialize some sample data
+
     static {
-        doctors.add(new Doctor("003","Alice Johnson", "alice.johnson@example.com", "123 Main Street, Anytown, USA", "Orthopedics"));
-        doctors.add(new Doctor("004","John Smith", " john.smith@example.com", "456 Elm Avenue, Somewhere City, USA", "Pediatrics"));
+        // Move the ID sequence past the sample IDs before any doctor ID is handed out, even one handed out
+        // before the in-memory data is created, so a new doctor is never given a sample's ID
+        for (Doctor doctor : sampleData()) {
+            GenerateId.observe(doctor.getId());
+        }
+    }
+    
+    // The in-memory data, held in its own class so that it is only created and seeded once an
+    // in-memory method first uses it, and not when a JDBC DAO, which extends this class, is loaded
+    private static final class Memory {
+        // Repository storing the doctors, keyed by doctor ID
+        static Repository<Doctor> doctors = Repositories.create(Doctor::getId);
+        // Index of the doctor names, for searching by part of a name
+        static final NameIndex<Doctor> nameIndex = newNameIndex();
+        // Index of the specialization of each doctor, for filtering and counting by it
+        static final AttributeIndex<Doctor> specializationIndex = newSpecializationIndex();
+
+        static {
+            // Keep the name and specialization indexes in step with every write to the repository
+            doctors.addListener(new RepositoryListener<Doctor>() {
+                @Override
+                public void onPut(Doctor previous, Doctor current) {
+                    nameIndex.put(current);
+                    specializationIndex.put(current);
+                }
+
+                @Override
+                public void onRemove(Doctor removed) {
+                    nameIndex.remove(removed.getId());
+                    specializationIndex.remove(removed.getId());
+                }
+            });
+
+            // Add the sample doctors to the repository
+            for (Doctor doctor : sampleData()) {
+                store(doctor);
+            }
+        }
+    }
+
+    // Method to create the sample doctors, which fill an empty store at start-up
+    static List<Doctor> sampleData() {
+        return Arrays.asList(
+                new Doctor("003","Alice Johnson", "alice.johnson@example.com", "123 Main Street, Anytown, USA", "Orthopedics"),
+                new Doctor("004","John Smith", " john.smith@example.com", "456 Elm Avenue, Somewhere City, USA", "Pediatrics"));
     }
     
     // Method to retrieve all doctors
     public List<Doctor> getAllDoctors() {
-        // Return a copy of the list to prevent direct modification
-        return new ArrayList<>(doctors);
+        // Return the shared read-only snapshot, which is only re-copied after a change
+        return Memory.doctors.snapshot();
+    }
+
+    // Method to retrieve one page of doctors in ID order, starting after the given cursor
+    public Page<Doctor> getDoctorsPage(String cursor, int limit) {
+        return Memory.doctors.page(cursor, limit);
+    }
+
+    // Method to get a live, read-only view of all doctors in ID order, for streaming without a copy
+    public Collection<Doctor> getDoctorsView() {
+        return Memory.doctors.view();
     }
     
     // Method to get a doctor by ID
     public Doctor getDoctorById(String doctorId) {
-        // Iterate through the list to find the doctor with the given ID
-        for (Doctor doctor : doctors) {
-            if (doctor.getId().equals(doctorId)) {
-                return doctor; // Return the doctor if found
-            }
+        if (doctorId == null) {
+            return null; // Doctor not found
         }
-        return null; // Doctor not found
+        // Look up the doctor directly by ID
+        return Memory.doctors.get(doctorId);
     }
     
+    // Method to get the doctors with the given IDs, keyed by ID; IDs with no doctor are left out
+    public Map<String, Doctor> getDoctorsById(Collection<String> doctorIds) {
+        Map<String, Doctor> found = new HashMap<>();
+        for (Doctor doctor : Memory.doctors.getAll(doctorIds)) {
+            found.put(doctor.getId(), doctor);
+        }
+        return found;
+    }
+
     // Method to get doctors by specialization
     public List<Doctor> getDoctorsBySpecialization(String specialization) {
-        // Create a list to store doctors with the specified specialization
-        List<Doctor> doctorsWithSpecialization = new ArrayList<>();
-        // Iterate through the list to find doctors with the specified specialization
-        for (Doctor doctor : doctors) {
-            if (doctor.getSpecialization().equalsIgnoreCase(specialization)) {
-                doctorsWithSpecialization.add(doctor); // Add doctor to the list if specialization matches
-            }
-        }
-        return doctorsWithSpecialization; // Return the list of doctors with the specified specialization
+        // Read the IDs of the doctors with the specialization from its index
+        return Memory.doctors.getAll(Memory.specializationIndex.ids(specialization));
+    }
+
+    // Method to count the doctors with each specialization, most common first
+    public Map<String, Integer> getSpecializationCounts() {
+        return Memory.specializationIndex.counts();
     }
     
+    // Method to find the doctors whose names best match a partly typed name, allowing for typos; at most limit of them
+    public List<Doctor> searchDoctorsByName(String name, int limit) {
+        // Doctors deleted since the search ran are skipped
+        return Memory.doctors.getAll(Memory.nameIndex.search(name, limit));
+    }
+
     // Method to add a new doctor
     public void addDoctor(Doctor doctor) {
         // Generate doctor ID
         String doctorId = idGenerator.generateDoctorId();
         doctor.setId(doctorId);
+        // New doctors start at version 1
+        doctor.setVersion(1);
 
-        // Add doctor to the list
-        doctors.add(doctor);
+        // Add doctor to the repository
+        Lock lock = locks.get(doctorId);
+        lock.lock();
+        try {
+            // Journal the change first, and make it visible only once it is durable
+            DataStore.put(DataStore.DOCTOR, doctorId, doctor, () -> store(doctor));
+        } finally {
+            lock.unlock();
+        }
     }
     
     // Method to update an existing doctor by ID
     public void updateDoctor(String id, Doctor updatedDoctor) {
-        // Find the index of the doctor with the given ID
-        int index = findDoctorIndexById(id);
-        // Check if doctor with the given ID exists
-        if (index != -1) {
-            doctors.set(index, updatedDoctor); // Update the doctor at the found index
-        } else {
+        if (!replace(id, updatedDoctor, null)) {
             System.out.println("Doctor not found with ID: " + id);
         }
     }
 
+    // Method to update an existing doctor only if its stored version is the expected one, as for an If-Match request.
+    // Returns false if there is no doctor with the ID or it has changed since.
+    public boolean updateDoctor(String id, Doctor updatedDoctor, long expectedVersion) {
+        return replace(id, updatedDoctor, expectedVersion);
+    }
+    
     // Method to delete a doctor by ID
     public void deleteDoctor(String id) {
-        // Find the index of the doctor with the given ID
-        int index = findDoctorIndexById(id);
-        // Check if doctor with the given ID exists
-        if (index != -1) {
-            doctors.remove(index); // Remove the doctor at the found index
-        } else {
-            System.out.println("Doctor not found with ID: " + id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            // Remove the doctor with the given ID, if present
+            if (Memory.doctors.get(id) != null) {
+                // Journal the delete first, and apply it only once it is durable
+                DataStore.delete(DataStore.DOCTOR, id, () -> remove(id));
+            } else {
+                System.out.println("Doctor not found with ID: " + id);
+            }
+        } finally {
+            lock.unlock();
         }
     }
-    
-    // Helper method to find the index of a doctor by ID
-    private int findDoctorIndexById(String id) {
-        // Iterate through the list to find the index of the doctor with the given ID
-        for (int i = 0; i < doctors.size(); i++) {
-            if (doctors.get(i).getId().equals(id)) {
-                return i; // Return the index if doctor with ID is found
+
+    // Method used by journal replay to put back a doctor exactly as it was recorded
+    static void restore(Doctor doctor) {
+        store(doctor);
+    }
+
+    // Method used by journal replay to drop a deleted doctor
+    static void evict(String id) {
+        remove(id);
+    }
+
+    // Helper method to replace a stored doctor and bump its version, atomically with the version check.
+    // Returns false if there is none, or if its version is not the expected one (null for any version).
+    private static boolean replace(String id, Doctor updatedDoctor, Long expectedVersion) {
+        // Keep the stored ID in step with the key
+        updatedDoctor.setId(id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            Doctor current = Memory.doctors.get(id);
+            if (current == null || (expectedVersion != null && current.getVersion() != expectedVersion)) {
+                return false;
             }
+            updatedDoctor.setVersion(current.getVersion() + 1);
+            // Replace the doctor once the change is durable; the repository re-indexes it
+            DataStore.put(DataStore.DOCTOR, id, updatedDoctor, () -> store(updatedDoctor));
+        } finally {
+            lock.unlock();
         }
-        return -1; // Return -1 if doctor with ID is not found
+        return true;
+    }
+
+    // Helper method to remove a doctor from the repository, returning false if it was not there
+    private static boolean remove(String id) {
+        return Memory.doctors.remove(id) != null;
+    }
+
+    // Helper method to put a doctor into the repository, replacing any previous version
+    private static void store(Doctor doctor) {
+        Memory.doctors.put(doctor);
+    }
+
+    // Helper method to create an empty index of doctor names
+    static NameIndex<Doctor> newNameIndex() {
+        return new NameIndex<>(Doctor::getId, Doctor::getVersion, Doctor::getName);
+    }
+
+    // Helper method to create an empty index of doctor specialization values
+    static AttributeIndex<Doctor> newSpecializationIndex() {
+        return new AttributeIndex<>(Doctor::getId, Doctor::getVersion, Doctor::getSpecialization);
     }
-    
 }
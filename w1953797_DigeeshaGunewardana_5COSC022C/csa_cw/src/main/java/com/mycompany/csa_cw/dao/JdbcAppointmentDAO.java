@@ -0,0 +1,247 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.exception.ScheduleConflictException;
+import com.mycompany.csa_cw.model.Appointment;
+import com.mycompany.csa_cw.persistence.Database;
+import com.mycompany.csa_cw.persistence.JdbcTable;
+import com.mycompany.csa_cw.util.GenerateId;
+import com.mycompany.csa_cw.util.OccupancyIndex;
+import com.mycompany.csa_cw.util.Page;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Appointment DAO backed by the embedded database instead of the in-memory maps.
+ *
+ * Clashing bookings are found with an indexed query on the doctor and start
+ * time. The check and the write it allows are made atomic with the same
+ * per-doctor locks as the in-memory DAO, which covers every writer since the
+ * database is embedded in this process.
+ */
+public class JdbcAppointmentDAO extends AppointmentDAO {
+    private static final Logger logger = Logger.getLogger(JdbcAppointmentDAO.class.getName());
+    private final JdbcTable<Appointment> table;
+    // Each doctor's booked 5-minute slots per day, rebuilt from the table after one of their appointments changes
+    private final OccupancyIndex occupancy = new OccupancyIndex(APPOINTMENT_LENGTH, this::startsOverlapping);
+
+    JdbcAppointmentDAO(Database database) {
+        table = new JdbcTable<>(database, "appointments", Appointment.class, Appointment::getId,
+                new JdbcTable.Column<>("patient_id", "VARCHAR(64)", AppointmentDAO::patientIdOf),
+                new JdbcTable.Column<>("doctor_id", "VARCHAR(64)", AppointmentDAO::doctorIdOf),
+                new JdbcTable.Column<>("starts_at", "TIMESTAMP", AppointmentDAO::parseSchedule));
+        // Clash checks look up a doctor's appointments around a start time
+        table.addIndex("doctor_id", "starts_at");
+        DAOFactory.prepare(table, sampleData());
+    }
+
+    @Override
+    public List<Appointment> getAllAppointments() {
+        return table.all();
+    }
+
+    @Override
+    public Page<Appointment> getAppointmentsPage(String cursor, int limit) {
+        // Read one entity more than asked for to know whether another page follows
+        return Page.of(table.after(Page.afterId(cursor), limit + 1), limit, Appointment::getId);
+    }
+
+    @Override
+    public Collection<Appointment> getAppointmentsView() {
+        // A result set cannot outlive its connection, so the rows are read up front
+        return table.all();
+    }
+
+    @Override
+    public Appointment getAppointmentById(String appointmentId) {
+        return appointmentId == null ? null : table.get(appointmentId);
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsByDate(String date) {
+        LocalDate day;
+        try {
+            day = LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            return new ArrayList<>(); // No stored appointment can match an unparseable date
+        }
+        return getAppointmentsBetween(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsBetween(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return new ArrayList<>(); // Empty range
+        }
+        return table.between("starts_at", from, to);
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsByPatientId(String patientId) {
+        return table.where("patient_id", patientId);
+    }
+
+    @Override
+    public List<Appointment> getAppointmentsByDoctorId(String doctorId) {
+        return table.where("doctor_id", doctorId);
+    }
+
+    @Override
+    public void addAppointment(Appointment appointment) throws ScheduleConflictException {
+        // Parse the schedule before an ID is spent on an invalid appointment
+        parseSchedule(appointment);
+        Lock doctorLock = doctorLocks.get(doctorIdOf(appointment));
+        doctorLock.lock();
+        try {
+            checkClash(appointment, null);
+            appointment.setId(GenerateId.generateAppointmentId());
+            appointment.setVersion(1);
+            table.put(appointment);
+            invalidate(appointment);
+        } finally {
+            doctorLock.unlock();
+        }
+    }
+
+    @Override
+    public Map<Appointment, String> addAppointments(List<Appointment> newAppointments) {
+        for (Appointment appointment : newAppointments) {
+            parseSchedule(appointment);
+        }
+        Map<Appointment, String> refused = new IdentityHashMap<>();
+        List<Appointment> accepted = new ArrayList<>(newAppointments.size());
+        // Each doctor's appointments accepted so far, so the batch cannot double-book a doctor either
+        Map<String, NavigableMap<ScheduleKey, Appointment>> booked = new HashMap<>();
+        List<String> appointmentIds = GenerateId.generateAppointmentIds(newAppointments.size());
+        // A batch may book any doctor, so every doctor's lock is held until it is written
+        doctorLocks.lockAll();
+        try {
+            for (int i = 0; i < newAppointments.size(); i++) {
+                Appointment appointment = newAppointments.get(i);
+                appointment.setId(appointmentIds.get(i));
+                appointment.setVersion(1);
+                try {
+                    checkClash(appointment, null);
+                    String doctorId = doctorIdOf(appointment);
+                    if (doctorId != null) {
+                        NavigableMap<ScheduleKey, Appointment> schedule = booked.computeIfAbsent(doctorId, id -> new TreeMap<>());
+                        Appointment clash = findClash(schedule, parseSchedule(appointment), null);
+                        if (clash != null) {
+                            throw conflictWith(doctorId, clash);
+                        }
+                        schedule.put(ScheduleKey.of(appointment), appointment);
+                    }
+                    accepted.add(appointment);
+                } catch (ScheduleConflictException e) {
+                    refused.put(appointment, e.getMessage());
+                }
+            }
+            // One transaction of batched statements for the whole batch
+            table.putAll(accepted);
+            for (Appointment appointment : accepted) {
+                invalidate(appointment);
+            }
+        } finally {
+            doctorLocks.unlockAll();
+        }
+        return refused;
+    }
+
+    @Override
+    public void updateAppointment(String id, Appointment updatedAppointment) throws ScheduleConflictException {
+        if (!update(id, updatedAppointment, null)) {
+            logger.log(Level.INFO, "Appointment not found with ID: {0}", id);
+        }
+    }
+
+    @Override
+    public boolean updateAppointment(String id, Appointment updatedAppointment, long expectedVersion) throws ScheduleConflictException {
+        return update(id, updatedAppointment, expectedVersion);
+    }
+
+    @Override
+    public void deleteAppointment(String id) {
+        Appointment existing = table.get(id);
+        if (table.delete(id)) {
+            if (existing != null) {
+                invalidate(existing);
+            }
+        } else {
+            logger.log(Level.INFO, "Appointment not found with ID: {0}", id);
+        }
+    }
+
+    @Override
+    protected OccupancyIndex occupancy() {
+        return occupancy;
+    }
+
+    @Override
+    protected Appointment findClash(String doctorId, LocalDateTime start, String ignoredId) {
+        for (Appointment other : table.whereBetween("doctor_id", doctorId, "starts_at", start.minus(APPOINTMENT_LENGTH), start.plus(APPOINTMENT_LENGTH))) {
+            if (!other.getId().equals(ignoredId)) {
+                return other;
+            }
+        }
+        return null;
+    }
+
+    // Helper method to update an appointment under the lock of its doctor, after checking it clashes with no other booking
+    private boolean update(String id, Appointment updatedAppointment, Long expectedVersion) throws ScheduleConflictException {
+        parseSchedule(updatedAppointment);
+        Lock doctorLock = doctorLocks.get(doctorIdOf(updatedAppointment));
+        doctorLock.lock();
+        try {
+            checkClash(updatedAppointment, id);
+            return replace(id, updatedAppointment, expectedVersion);
+        } finally {
+            doctorLock.unlock();
+        }
+    }
+
+    // Helper method to replace a stored appointment and bump its version while its row is locked
+    private boolean replace(String id, Appointment updatedAppointment, Long expectedVersion) {
+        updatedAppointment.setId(id);
+        List<Appointment> previous = new ArrayList<>(1);
+        boolean replaced = table.replace(updatedAppointment, current -> {
+            if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                return false; // Changed since the client read it
+            }
+            updatedAppointment.setVersion(current.getVersion() + 1);
+            previous.add(current);
+            return true;
+        });
+        if (replaced) {
+            // Both the slot it left and the slot it took
+            invalidate(previous.get(0));
+            invalidate(updatedAppointment);
+        }
+        return replaced;
+    }
+
+    // Helper method to read the start times of a doctor's appointments that overlap the given day
+    private Collection<LocalDateTime> startsOverlapping(String doctorId, LocalDate day) {
+        List<LocalDateTime> starts = new ArrayList<>();
+        LocalDateTime midnight = day.atStartOfDay();
+        for (Appointment appointment : table.whereBetween("doctor_id", doctorId, "starts_at", midnight.minus(APPOINTMENT_LENGTH), midnight.plusDays(1))) {
+            starts.add(parseSchedule(appointment));
+        }
+        return starts;
+    }
+
+    // Helper method to drop the cached occupancy of the days an appointment covers
+    private void invalidate(Appointment appointment) {
+        occupancy.invalidate(doctorIdOf(appointment), parseSchedule(appointment));
+    }
+}
@@ -0,0 +1,122 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.model.Billing;
+import com.mycompany.csa_cw.persistence.Database;
+import com.mycompany.csa_cw.persistence.JdbcTable;
+import com.mycompany.csa_cw.util.GenerateId;
+import com.mycompany.csa_cw.util.Page;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Billing DAO backed by the embedded database instead of the in-memory maps.
+ */
+public class JdbcBillingDAO extends BillingDAO {
+    private static final Logger logger = Logger.getLogger(JdbcBillingDAO.class.getName());
+    private final JdbcTable<Billing> table;
+
+    JdbcBillingDAO(Database database) {
+        table = new JdbcTable<>(database, "billings", Billing.class, Billing::getId,
+                new JdbcTable.Column<>("patient_id", "VARCHAR(64)", BillingDAO::patientIdOf),
+                new JdbcTable.Column<>("doctor_id", "VARCHAR(64)", BillingDAO::doctorIdOf),
+                // Upper-cased patient ID, since totals match patient IDs case-insensitively
+                new JdbcTable.Column<>("patient_key", "VARCHAR(64)", billing -> {
+                    String patientId = patientIdOf(billing);
+                    return patientId == null ? null : totalKey(patientId);
+                }),
+                // DECFLOAT keeps the sums exact, like the BigDecimal totals of the in-memory DAO
+                new JdbcTable.Column<>("balance", "DECFLOAT", billing -> BigDecimal.valueOf(billing.getOutstandingBalance())));
+        DAOFactory.prepare(table, sampleData());
+    }
+
+    @Override
+    public List<Billing> getAllBillings() {
+        return table.all();
+    }
+
+    @Override
+    public Page<Billing> getBillingsPage(String cursor, int limit) {
+        // Read one entity more than asked for to know whether another page follows
+        return Page.of(table.after(Page.afterId(cursor), limit + 1), limit, Billing::getId);
+    }
+
+    @Override
+    public Collection<Billing> getBillingsView() {
+        // A result set cannot outlive its connection, so the rows are read up front
+        return table.all();
+    }
+
+    @Override
+    public Billing getBillingById(String billingId) {
+        return billingId == null ? null : table.get(billingId);
+    }
+
+    @Override
+    public List<Billing> getBillingsByPatientId(String patientId) {
+        return table.where("patient_id", patientId);
+    }
+
+    @Override
+    public List<Billing> getBillingsByDoctorId(String doctorId) {
+        return table.where("doctor_id", doctorId);
+    }
+
+    @Override
+    public void addBilling(Billing billing) {
+        billing.setId(GenerateId.generateBillingId());
+        billing.setVersion(1);
+        table.put(billing);
+    }
+
+    @Override
+    public void updateBilling(String id, Billing updatedBilling) {
+        if (!replace(id, updatedBilling, null)) {
+            logger.log(Level.INFO, "Billing not found with ID: {0}", id);
+        }
+    }
+
+    @Override
+    public boolean updateBilling(String id, Billing updatedBilling, long expectedVersion) {
+        return replace(id, updatedBilling, expectedVersion);
+    }
+
+    @Override
+    public void deleteBilling(String id) {
+        if (!table.delete(id)) {
+            logger.log(Level.INFO, "Billing not found with ID: {0}", id);
+        }
+    }
+
+    @Override
+    public double getTotalBillByPatientId(String patientId) {
+        if (patientId == null) {
+            return 0;
+        }
+        // Summed by the database over the patient_key index
+        Object total = table.value("SELECT SUM(balance) FROM billings WHERE patient_key = ?", totalKey(patientId));
+        return total == null ? 0 : ((BigDecimal) total).doubleValue();
+    }
+
+    @Override
+    public Map<String, Double> rebuildTotals() {
+        // Totals are summed from the stored billings on every read, so they cannot drift
+        return new HashMap<>();
+    }
+
+    // Helper method to replace a stored billing and bump its version while its row is locked
+    private boolean replace(String id, Billing updatedBilling, Long expectedVersion) {
+        updatedBilling.setId(id);
+        return table.replace(updatedBilling, current -> {
+            if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                return false; // Changed since the client read it
+            }
+            updatedBilling.setVersion(current.getVersion() + 1);
+            return true;
+        });
+    }
+}
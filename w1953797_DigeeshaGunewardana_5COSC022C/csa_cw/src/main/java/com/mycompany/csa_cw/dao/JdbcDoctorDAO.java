@@ -0,0 +1,145 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.model.Doctor;
+import com.mycompany.csa_cw.persistence.Database;
+import com.mycompany.csa_cw.persistence.JdbcTable;
+import com.mycompany.csa_cw.util.AttributeIndex;
+import com.mycompany.csa_cw.util.GenerateId;
+import com.mycompany.csa_cw.util.LookupCache;
+import com.mycompany.csa_cw.util.NameIndex;
+import com.mycompany.csa_cw.util.Page;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Doctor DAO backed by the embedded database instead of the in-memory maps.
+ */
+public class JdbcDoctorDAO extends DoctorDAO {
+    private static final Logger logger = Logger.getLogger(JdbcDoctorDAO.class.getName());
+    private final JdbcTable<Doctor> table;
+    // Recently resolved doctors, so checking the references of new appointments and billings rarely reads the table
+    private final LookupCache<Doctor> cache = new LookupCache<>(LookupCache.DEFAULT_CAPACITY, Doctor::getVersion);
+    // Indexes of the doctor names and specializations, built at start-up and updated by every write through this DAO
+    private final NameIndex<Doctor> nameIndex = newNameIndex();
+    private final AttributeIndex<Doctor> specializationIndex = newSpecializationIndex();
+
+    JdbcDoctorDAO(Database database) {
+        table = new JdbcTable<>(database, "doctors", Doctor.class, Doctor::getId);
+        DAOFactory.prepare(table, sampleData());
+        for (Doctor doctor : table.all()) {
+            nameIndex.put(doctor);
+            specializationIndex.put(doctor);
+        }
+    }
+
+    @Override
+    public List<Doctor> getAllDoctors() {
+        return table.all();
+    }
+
+    @Override
+    public Page<Doctor> getDoctorsPage(String cursor, int limit) {
+        // Read one entity more than asked for to know whether another page follows
+        return Page.of(table.after(Page.afterId(cursor), limit + 1), limit, Doctor::getId);
+    }
+
+    @Override
+    public Collection<Doctor> getDoctorsView() {
+        // A result set cannot outlive its connection, so the rows are read up front
+        return table.all();
+    }
+
+    @Override
+    public Doctor getDoctorById(String doctorId) {
+        return doctorId == null ? null : cache.get(doctorId, table::get);
+    }
+
+    @Override
+    public Map<String, Doctor> getDoctorsById(Collection<String> doctorIds) {
+        return cache.getAll(doctorIds, table::getAll, Doctor::getId);
+    }
+
+    @Override
+    public List<Doctor> getDoctorsBySpecialization(String specialization) {
+        // Read straight from the table, as a large result would push the hot entries out of the cache
+        List<Doctor> found = table.getAll(specializationIndex.ids(specialization));
+        found.sort(Comparator.comparing(Doctor::getId));
+        return found;
+    }
+
+    @Override
+    public Map<String, Integer> getSpecializationCounts() {
+        return specializationIndex.counts();
+    }
+
+    @Override
+    public List<Doctor> searchDoctorsByName(String name, int limit) {
+        List<String> ids = nameIndex.search(name, limit);
+        Map<String, Doctor> found = getDoctorsById(ids);
+        // Put the rows back in rank order, skipping any deleted since the search ran
+        List<Doctor> ranked = new ArrayList<>(found.size());
+        for (String id : ids) {
+            if (found.containsKey(id)) {
+                ranked.add(found.get(id));
+            }
+        }
+        return ranked;
+    }
+
+    @Override
+    public void addDoctor(Doctor doctor) {
+        doctor.setId(GenerateId.generateDoctorId());
+        doctor.setVersion(1);
+        table.put(doctor);
+        cache.put(doctor.getId(), doctor);
+        nameIndex.put(doctor);
+        specializationIndex.put(doctor);
+    }
+
+    @Override
+    public void updateDoctor(String id, Doctor updatedDoctor) {
+        if (!replace(id, updatedDoctor, null)) {
+            logger.log(Level.INFO, "Doctor not found with ID: {0}", id);
+        }
+    }
+
+    @Override
+    public boolean updateDoctor(String id, Doctor updatedDoctor, long expectedVersion) {
+        return replace(id, updatedDoctor, expectedVersion);
+    }
+
+    @Override
+    public void deleteDoctor(String id) {
+        if (table.delete(id)) {
+            cache.remove(id);
+            nameIndex.remove(id);
+            specializationIndex.remove(id);
+        } else {
+            logger.log(Level.INFO, "Doctor not found with ID: {0}", id);
+        }
+    }
+
+    // Helper method to replace a stored doctor and bump its version while its row is locked
+    private boolean replace(String id, Doctor updatedDoctor, Long expectedVersion) {
+        updatedDoctor.setId(id);
+        boolean replaced = table.replace(updatedDoctor, current -> {
+            if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                return false; // Changed since the client read it
+            }
+            updatedDoctor.setVersion(current.getVersion() + 1);
+            return true;
+        });
+        if (replaced) {
+            cache.put(id, updatedDoctor);
+            // Ignored by the index if a later update got there first
+            nameIndex.put(updatedDoctor);
+            specializationIndex.put(updatedDoctor);
+        }
+        return replaced;
+    }
+}
@@ -0,0 +1,124 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.model.MedicalRecord;
+import com.mycompany.csa_cw.persistence.Database;
+import com.mycompany.csa_cw.persistence.JdbcTable;
+import com.mycompany.csa_cw.util.GenerateId;
+import com.mycompany.csa_cw.util.Page;
+import com.mycompany.csa_cw.util.TextIndex;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Medical record DAO backed by the embedded database instead of the in-memory maps.
+ */
+public class JdbcMedicalRecordDAO extends MedicalRecordDAO {
+    private static final Logger logger = Logger.getLogger(JdbcMedicalRecordDAO.class.getName());
+    private final JdbcTable<MedicalRecord> table;
+    // Full-text index over the rows, built at start-up and updated by every write through this DAO
+    private final TextIndex<MedicalRecord> searchIndex = newSearchIndex();
+
+    JdbcMedicalRecordDAO(Database database) {
+        table = new JdbcTable<>(database, "medical_records", MedicalRecord.class, MedicalRecord::getId,
+                new JdbcTable.Column<>("patient_id", "VARCHAR(64)", MedicalRecordDAO::patientIdOf));
+        DAOFactory.prepare(table, sampleData());
+        for (MedicalRecord medicalRecord : table.all()) {
+            searchIndex.put(medicalRecord);
+        }
+    }
+
+    @Override
+    public List<MedicalRecord> getAllMedicalRecords() {
+        return table.all();
+    }
+
+    @Override
+    public Page<MedicalRecord> getMedicalRecordsPage(String cursor, int limit) {
+        // Read one entity more than asked for to know whether another page follows
+        return Page.of(table.after(Page.afterId(cursor), limit + 1), limit, MedicalRecord::getId);
+    }
+
+    @Override
+    public Collection<MedicalRecord> getMedicalRecordsView() {
+        // A result set cannot outlive its connection, so the rows are read up front
+        return table.all();
+    }
+
+    @Override
+    public MedicalRecord getMedicalRecordById(String medicalRecordId) {
+        return medicalRecordId == null ? null : table.get(medicalRecordId);
+    }
+
+    @Override
+    public List<MedicalRecord> getMedicalRecordsByPatientId(String patientId) {
+        return table.where("patient_id", patientId);
+    }
+
+    @Override
+    public List<MedicalRecord> searchMedicalRecords(String query, int limit) {
+        List<String> ids = searchIndex.search(query, limit);
+        Map<String, MedicalRecord> rows = new HashMap<>();
+        for (MedicalRecord medicalRecord : table.getAll(ids)) {
+            rows.put(medicalRecord.getId(), medicalRecord);
+        }
+        // Put the rows back in rank order, skipping any deleted since the search ran
+        List<MedicalRecord> found = new ArrayList<>(rows.size());
+        for (String id : ids) {
+            if (rows.containsKey(id)) {
+                found.add(rows.get(id));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void addMedicalRecord(MedicalRecord medicalRecord) {
+        medicalRecord.setId(GenerateId.generateMedicalRecordId());
+        medicalRecord.setVersion(1);
+        table.put(medicalRecord);
+        searchIndex.put(medicalRecord);
+    }
+
+    @Override
+    public void updateMedicalRecord(String id, MedicalRecord updatedMedicalRecord) {
+        if (!replace(id, updatedMedicalRecord, null)) {
+            logger.log(Level.INFO, "Medical record not found with ID: {0}", id);
+        }
+    }
+
+    @Override
+    public boolean updateMedicalRecord(String id, MedicalRecord updatedMedicalRecord, long expectedVersion) {
+        return replace(id, updatedMedicalRecord, expectedVersion);
+    }
+
+    @Override
+    public void deleteMedicalRecord(String id) {
+        if (table.delete(id)) {
+            searchIndex.remove(id);
+        } else {
+            logger.log(Level.INFO, "Medical record not found with ID: {0}", id);
+        }
+    }
+
+    // Helper method to replace a stored medical record and bump its version while its row is locked
+    private boolean replace(String id, MedicalRecord updatedMedicalRecord, Long expectedVersion) {
+        updatedMedicalRecord.setId(id);
+        boolean replaced = table.replace(updatedMedicalRecord, current -> {
+            if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                return false; // Changed since the client read it
+            }
+            updatedMedicalRecord.setVersion(current.getVersion() + 1);
+            return true;
+        });
+        if (replaced) {
+            // Ignored by the index if a later update got there first
+            searchIndex.put(updatedMedicalRecord);
+        }
+        return replaced;
+    }
+}
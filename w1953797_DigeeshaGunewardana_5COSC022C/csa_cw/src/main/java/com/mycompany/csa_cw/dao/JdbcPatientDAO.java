@@ -0,0 +1,161 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.persistence.Database;
+import com.mycompany.csa_cw.persistence.JdbcTable;
+import com.mycompany.csa_cw.util.AttributeIndex;
+import com.mycompany.csa_cw.util.GenerateId;
+import com.mycompany.csa_cw.util.LookupCache;
+import com.mycompany.csa_cw.util.NameIndex;
+import com.mycompany.csa_cw.util.Page;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Patient DAO backed by the embedded database instead of the in-memory maps.
+ */
+public class JdbcPatientDAO extends PatientDAO {
+    private static final Logger logger = Logger.getLogger(JdbcPatientDAO.class.getName());
+    private final JdbcTable<Patient> table;
+    // Recently resolved patients, so checking the references of new appointments and billings rarely reads the table
+    private final LookupCache<Patient> cache = new LookupCache<>(LookupCache.DEFAULT_CAPACITY, Patient::getVersion);
+    // Indexes of the patient names and health statuses, built at start-up and updated by every write through this DAO
+    private final NameIndex<Patient> nameIndex = newNameIndex();
+    private final AttributeIndex<Patient> healthStatusIndex = newHealthStatusIndex();
+
+    JdbcPatientDAO(Database database) {
+        table = new JdbcTable<>(database, "patients", Patient.class, Patient::getId);
+        DAOFactory.prepare(table, sampleData());
+        for (Patient patient : table.all()) {
+            nameIndex.put(patient);
+            healthStatusIndex.put(patient);
+        }
+    }
+
+    @Override
+    public List<Patient> getAllPatients() {
+        return table.all();
+    }
+
+    @Override
+    public Page<Patient> getPatientsPage(String cursor, int limit) {
+        // Read one entity more than asked for to know whether another page follows
+        return Page.of(table.after(Page.afterId(cursor), limit + 1), limit, Patient::getId);
+    }
+
+    @Override
+    public Collection<Patient> getPatientsView() {
+        // A result set cannot outlive its connection, so the rows are read up front
+        return table.all();
+    }
+
+    @Override
+    public Patient getPatientById(String patientId) {
+        return patientId == null ? null : cache.get(patientId, table::get);
+    }
+
+    @Override
+    public Map<String, Patient> getPatientsById(Collection<String> patientIds) {
+        return cache.getAll(patientIds, table::getAll, Patient::getId);
+    }
+
+    @Override
+    public List<Patient> getPatientsByHealthStatus(String healthStatus) {
+        // Read straight from the table, as a large result would push the hot entries out of the cache
+        List<Patient> found = table.getAll(healthStatusIndex.ids(healthStatus));
+        found.sort(Comparator.comparing(Patient::getId));
+        return found;
+    }
+
+    @Override
+    public Map<String, Integer> getHealthStatusCounts() {
+        return healthStatusIndex.counts();
+    }
+
+    @Override
+    public List<Patient> searchPatientsByName(String name, int limit) {
+        List<String> ids = nameIndex.search(name, limit);
+        Map<String, Patient> found = getPatientsById(ids);
+        // Put the rows back in rank order, skipping any deleted since the search ran
+        List<Patient> ranked = new ArrayList<>(found.size());
+        for (String id : ids) {
+            if (found.containsKey(id)) {
+                ranked.add(found.get(id));
+            }
+        }
+        return ranked;
+    }
+
+    @Override
+    public void addPatient(Patient patient) {
+        patient.setId(GenerateId.generatePatientId());
+        patient.setVersion(1);
+        table.put(patient);
+        cache.put(patient.getId(), patient);
+        nameIndex.put(patient);
+        healthStatusIndex.put(patient);
+    }
+
+    @Override
+    public void addPatients(List<Patient> newPatients) {
+        List<String> patientIds = GenerateId.generatePatientIds(newPatients.size());
+        for (int i = 0; i < newPatients.size(); i++) {
+            newPatients.get(i).setId(patientIds.get(i));
+            newPatients.get(i).setVersion(1);
+        }
+        // One transaction of batched statements for the whole batch
+        table.putAll(newPatients);
+        for (Patient patient : newPatients) {
+            cache.put(patient.getId(), patient);
+            nameIndex.put(patient);
+            healthStatusIndex.put(patient);
+        }
+    }
+
+    @Override
+    public void updatePatient(String id, Patient updatedPatient) {
+        if (!replace(id, updatedPatient, null)) {
+            logger.log(Level.INFO, "Patient not found with ID: {0}", id);
+        }
+    }
+
+    @Override
+    public boolean updatePatient(String id, Patient updatedPatient, long expectedVersion) {
+        return replace(id, updatedPatient, expectedVersion);
+    }
+
+    @Override
+    public void deletePatient(String id) {
+        if (table.delete(id)) {
+            cache.remove(id);
+            nameIndex.remove(id);
+            healthStatusIndex.remove(id);
+        } else {
+            logger.log(Level.INFO, "Patient not found with ID: {0}", id);
+        }
+    }
+
+    // Helper method to replace a stored patient and bump its version while its row is locked
+    private boolean replace(String id, Patient updatedPatient, Long expectedVersion) {
+        updatedPatient.setId(id);
+        boolean replaced = table.replace(updatedPatient, current -> {
+            if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                return false; // Changed since the client read it
+            }
+            updatedPatient.setVersion(current.getVersion() + 1);
+            return true;
+        });
+        if (replaced) {
+            cache.put(id, updatedPatient);
+            // Ignored by the index if a later update got there first
+            nameIndex.put(updatedPatient);
+            healthStatusIndex.put(updatedPatient);
+        }
+        return replaced;
+    }
+}
@@ -0,0 +1,96 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.model.Prescription;
+import com.mycompany.csa_cw.persistence.Database;
+import com.mycompany.csa_cw.persistence.JdbcTable;
+import com.mycompany.csa_cw.util.GenerateId;
+import com.mycompany.csa_cw.util.Page;
+import java.util.Collection;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Prescription DAO backed by the embedded database instead of the in-memory maps.
+ */
+public class JdbcPrescriptionDAO extends PrescriptionDAO {
+    private static final Logger logger = Logger.getLogger(JdbcPrescriptionDAO.class.getName());
+    private final JdbcTable<Prescription> table;
+
+    JdbcPrescriptionDAO(Database database) {
+        table = new JdbcTable<>(database, "prescriptions", Prescription.class, Prescription::getId,
+                new JdbcTable.Column<>("patient_id", "VARCHAR(64)", PrescriptionDAO::patientIdOf),
+                new JdbcTable.Column<>("doctor_id", "VARCHAR(64)", PrescriptionDAO::doctorIdOf));
+        DAOFactory.prepare(table, sampleData());
+    }
+
+    @Override
+    public List<Prescription> getAllPrescriptions() {
+        return table.all();
+    }
+
+    @Override
+    public Page<Prescription> getPrescriptionsPage(String cursor, int limit) {
+        // Read one entity more than asked for to know whether another page follows
+        return Page.of(table.after(Page.afterId(cursor), limit + 1), limit, Prescription::getId);
+    }
+
+    @Override
+    public Collection<Prescription> getPrescriptionsView() {
+        // A result set cannot outlive its connection, so the rows are read up front
+        return table.all();
+    }
+
+    @Override
+    public Prescription getPrescriptionById(String prescriptionId) {
+        return prescriptionId == null ? null : table.get(prescriptionId);
+    }
+
+    @Override
+    public List<Prescription> getPrescriptionsByPatientId(String patientId) {
+        return table.where("patient_id", patientId);
+    }
+
+    @Override
+    public List<Prescription> getPrescriptionsByDoctorId(String doctorId) {
+        return table.where("doctor_id", doctorId);
+    }
+
+    @Override
+    public void addPrescription(Prescription prescription) {
+        prescription.setId(GenerateId.generatePrescriptionId());
+        prescription.setVersion(1);
+        table.put(prescription);
+    }
+
+    @Override
+    public void updatePrescription(String id, Prescription updatedPrescription) {
+        if (!replace(id, updatedPrescription, null)) {
+            logger.log(Level.INFO, "Prescription not found with ID: {0}", id);
+        }
+    }
+
+    @Override
+    public boolean updatePrescription(String id, Prescription updatedPrescription, long expectedVersion) {
+        return replace(id, updatedPrescription, expectedVersion);
+    }
+
+    @Override
+    public void deletePrescription(String id) {
+        if (!table.delete(id)) {
+            logger.log(Level.INFO, "Prescription not found with ID: {0}", id);
+        }
+    }
+
+    // Helper method to replace a stored prescription and bump its version while its row is locked
+    private boolean replace(String id, Prescription updatedPrescription, Long expectedVersion) {
+        updatedPrescription.setId(id);
+        return table.replace(updatedPrescription, current -> {
+            if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                return false; // Changed since the client read it
+            }
+            updatedPrescription.setVersion(current.getVersion() + 1);
+            return true;
+        });
+    }
+}
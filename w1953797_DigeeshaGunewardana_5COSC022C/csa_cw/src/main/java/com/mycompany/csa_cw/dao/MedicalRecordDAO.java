@@ -1,101 +1,213 @@
 package com.mycompany.csa_cw.dao;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 import com.mycompany.csa_cw.model.MedicalRecord;
+import com.mycompany.csa_cw.repository.Repositories;
+import com.mycompany.csa_cw.repository.Repository;
+import com.mycompany.csa_cw.repository.RepositoryListener;
 import com.mycompany.csa_cw.util.GenerateId;
+import com.mycompany.csa_cw.util.Page;
+import com.mycompany.csa_cw.util.StripedLock;
+import com.mycompany.csa_cw.util.TextIndex;
 
 public class MedicalRecordDAO {
-    // List to store medical records
-    private static List<MedicalRecord> medicalRecords = new ArrayList<>();
+    // Name of the repository index on the ID of the patient
+    private static final String BY_PATIENT = "patient";
+    // Locks making each check-journal-write sequence atomic per ID, so writes to different IDs run in parallel
+    private static final StripedLock locks = new StripedLock();
 
-    // Sample data
-    static {
+    // The in-memory data, held in its own class so that it is only created and seeded once an
+    // in-memory method first uses it, and not when a JDBC DAO, which extends this class, is loaded
+    private static final class Memory {
+        // Repository storing the medical records, keyed by medical record ID
+        static Repository<MedicalRecord> medicalRecords = Repositories.create(MedicalRecord::getId);
+        // Full-text index over the diagnoses and treatments, where a word in the diagnoses counts double
+        static final TextIndex<MedicalRecord> searchIndex = newSearchIndex();
+
+        static {
+            // Index medical records by the ID of their patient
+            medicalRecords.addIndex(BY_PATIENT, MedicalRecordDAO::patientIdOf);
+            // Keep the full-text index in step with every write to the repository
+            medicalRecords.addListener(new RepositoryListener<MedicalRecord>() {
+                @Override
+                public void onPut(MedicalRecord previous, MedicalRecord current) {
+                    searchIndex.put(current);
+                }
+
+                @Override
+                public void onRemove(MedicalRecord removed) {
+                    searchIndex.remove(removed.getId());
+                }
+            });
+
+            // Add the sample medical records to the repository
+            for (MedicalRecord medicalRecord : sampleData()) {
+                store(medicalRecord);
+            }
+        }
+    }
+
+    // Method to create the sample medical records, which fill an empty store at start-up
+    static List<MedicalRecord> sampleData() {
         // Sample medical records
         MedicalRecord medicalRecord1 = new MedicalRecord("001", null, "Dengue", "Paracetamol");
         MedicalRecord medicalRecord2 = new MedicalRecord("002", null, "Malaria", "Chloroquine");
         MedicalRecord medicalRecord3 = new MedicalRecord("003", null, "Typhoid", "Ciprofloxacin");
-
-        // Add sample medical records to the list
-        medicalRecords.add(medicalRecord1);
-        medicalRecords.add(medicalRecord2);
-        medicalRecords.add(medicalRecord3);
+        return Arrays.asList(medicalRecord1, medicalRecord2, medicalRecord3);
     }
 
     // Object for generating medical record IDs
     private GenerateId idGenerator = new GenerateId();
+
+    static {
+        // Move the ID sequence past the sample IDs before any medical record ID is handed out, even one handed out
+        // before the in-memory data is created, so a new medical record is never given a sample's ID
+        for (MedicalRecord medicalRecord : sampleData()) {
+            GenerateId.observe(medicalRecord.getId());
+        }
+    }
     
     // Method to retrieve all medical records
     public List<MedicalRecord> getAllMedicalRecords() {
-        // Return a copy of the list to prevent direct modification
-        return new ArrayList<>(medicalRecords);
+        // Return the shared read-only snapshot, which is only re-copied after a change
+        return Memory.medicalRecords.snapshot();
+    }
+
+    // Method to retrieve one page of medical records in ID order, starting after the given cursor
+    public Page<MedicalRecord> getMedicalRecordsPage(String cursor, int limit) {
+        return Memory.medicalRecords.page(cursor, limit);
+    }
+
+    // Method to get a live, read-only view of all medical records in ID order, for streaming without a copy
+    public Collection<MedicalRecord> getMedicalRecordsView() {
+        return Memory.medicalRecords.view();
     }
     
     // Method to get a medical record by ID
     public MedicalRecord getMedicalRecordById(String medicalRecordId) {
-        // Iterate through the list to find the medical record with the given ID
-        for (MedicalRecord medicalRecord : medicalRecords) {
-            if (medicalRecord.getId().equals(medicalRecordId)) {
-                return medicalRecord; // Return the medical record if found
-            }
+        if (medicalRecordId == null) {
+            return null; // Return null if medical record not found
         }
-        return null; // Return null if medical record not found
+        // Look up the medical record directly by ID
+        return Memory.medicalRecords.get(medicalRecordId);
     }
 
     // Method to get medical records by patient ID
     public List<MedicalRecord> getMedicalRecordsByPatientId(String patientId) {
-        List<MedicalRecord> medicalRecordsForPatient = new ArrayList<>();
-        for (MedicalRecord medicalRecord : medicalRecords) {
-            if (medicalRecord.getId().equals(patientId)) {
-                medicalRecordsForPatient.add(medicalRecord);
-            }
-        }
-        return medicalRecordsForPatient;
+        // Read the medical records referencing the patient from the index
+        return Memory.medicalRecords.findBy(BY_PATIENT, patientId);
     }
   
+    // Method to search the diagnoses and treatments, returning at most limit medical records, best match first.
+    // See TextIndex for the query syntax.
+    public List<MedicalRecord> searchMedicalRecords(String query, int limit) {
+        // Records deleted since the search ran are skipped
+        return Memory.medicalRecords.getAll(Memory.searchIndex.search(query, limit));
+    }
+
     // Method to add a new medical record
     public void addMedicalRecord(MedicalRecord medicalRecord) {
         // Generate medical record ID
         String medicalRecordId = idGenerator.generateMedicalRecordId();
         medicalRecord.setId(medicalRecordId);
+        // New medical records start at version 1
+        medicalRecord.setVersion(1);
 
-        // Add medical record to the list
-        medicalRecords.add(medicalRecord);
+        // Add medical record to the repository
+        Lock lock = locks.get(medicalRecordId);
+        lock.lock();
+        try {
+            // Journal the change first, and make it visible only once it is durable
+            DataStore.put(DataStore.MEDICAL_RECORD, medicalRecordId, medicalRecord, () -> store(medicalRecord));
+        } finally {
+            lock.unlock();
+        }
     }
 
     // Method to update an existing medical record by ID
     public void updateMedicalRecord(String id, MedicalRecord updatedMedicalRecord) {
-        // Find the index of the medical record with the given ID
-        int index = findMedicalRecordIndexById(id);
-        // Check if medical record with the given ID exists
-        if (index != -1) {
-            medicalRecords.set(index, updatedMedicalRecord); // Update the medical record at the found index
-        } else {
+        if (!replace(id, updatedMedicalRecord, null)) {
             System.out.println("Medical record not found with ID: " + id);
         }
     }
+
+    // Method to update an existing medical record only if its stored version is the expected one, as for an If-Match request.
+    // Returns false if there is no medical record with the ID or it has changed since.
+    public boolean updateMedicalRecord(String id, MedicalRecord updatedMedicalRecord, long expectedVersion) {
+        return replace(id, updatedMedicalRecord, expectedVersion);
+    }
     
     // Method to delete a medical record by ID
     public void deleteMedicalRecord(String id) {
-        // Find the index of the medical record with the given ID
-        int index = findMedicalRecordIndexById(id);
-        // Check if medical record with the given ID exists
-        if (index != -1) {
-            medicalRecords.remove(index); // Remove the medical record at the found index
-        } else {
-            System.out.println("Medical record not found with ID: " + id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            // Remove the medical record with the given ID, if present
+            if (Memory.medicalRecords.get(id) != null) {
+                // Journal the delete first, and apply it only once it is durable
+                DataStore.delete(DataStore.MEDICAL_RECORD, id, () -> remove(id));
+            } else {
+                System.out.println("Medical record not found with ID: " + id);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
-    // Helper method to find the index of a medical record by ID
-    private int findMedicalRecordIndexById(String id) {
-        // Iterate through the list to find the index of the medical record with the given ID
-        for (int i = 0; i < medicalRecords.size(); i++) {
-            if (medicalRecords.get(i).getId().equals(id)) {
-                return i; // Return the index if medical record with ID is found
+    // Method used by journal replay to put back a medical record exactly as it was recorded
+    static void restore(MedicalRecord medicalRecord) {
+        store(medicalRecord);
+    }
+
+    // Method used by journal replay to drop a deleted medical record
+    static void evict(String id) {
+        remove(id);
+    }
+
+    // Helper method to replace a stored medical record and bump its version, atomically with the version check.
+    // Returns false if there is none, or if its version is not the expected one (null for any version).
+    private static boolean replace(String id, MedicalRecord updatedMedicalRecord, Long expectedVersion) {
+        // Keep the stored ID in step with the key
+        updatedMedicalRecord.setId(id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            MedicalRecord current = Memory.medicalRecords.get(id);
+            if (current == null || (expectedVersion != null && current.getVersion() != expectedVersion)) {
+                return false;
             }
+            updatedMedicalRecord.setVersion(current.getVersion() + 1);
+            // Replace the medical record once the change is durable; the repository re-indexes it
+            DataStore.put(DataStore.MEDICAL_RECORD, id, updatedMedicalRecord, () -> store(updatedMedicalRecord));
+        } finally {
+            lock.unlock();
         }
-        return -1; // Return -1 if medical record with ID is not found
+        return true;
+    }
+
+    // Helper method to remove a medical record from the repository, returning false if it was not there
+    private static boolean remove(String id) {
+        return Memory.medicalRecords.remove(id) != null;
+    }
+
+    // Helper method to put a medical record into the repository, replacing any previous version
+    private static void store(MedicalRecord medicalRecord) {
+        Memory.medicalRecords.put(medicalRecord);
+    }
+
+    // Helper method to create an empty full-text index over the diagnoses and treatments
+    static TextIndex<MedicalRecord> newSearchIndex() {
+        return new TextIndex<>(MedicalRecord::getId, MedicalRecord::getVersion,
+                new TextIndex.Field<>(MedicalRecord::getDiagnoses, 2),
+                new TextIndex.Field<>(MedicalRecord::getTreatments, 1));
+    }
+
+    // Helper method to read the referenced patient ID, if any
+    static String patientIdOf(MedicalRecord medicalRecord) {
+        return medicalRecord.getPatient() == null ? null : medicalRecord.getPatient().getId();
     }
     
 }
@@ -1,96 +1,248 @@
 package com.mycompany.csa_cw.dao;
 
 import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.repository.Repositories;
+import com.mycompany.csa_cw.repository.Repository;
+import com.mycompany.csa_cw.repository.RepositoryListener;
+import com.mycompany.csa_cw.util.AttributeIndex;
 import com.mycompany.csa_cw.util.GenerateId;
-import java.util.ArrayList;
+import com.mycompany.csa_cw.util.NameIndex;
+import com.mycompany.csa_cw.util.Page;
+import com.mycompany.csa_cw.util.StripedLock;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 public class PatientDAO {
-    // Static list to store patients
-    private static List<Patient> patients = new ArrayList<>();
+    // Locks making each check-journal-write sequence atomic per ID, so writes to different IDs run in parallel
+    private static final StripedLock locks = new StripedLock();
     
     // Object for generating patient IDs
     private GenerateId idGenerator = new GenerateId();
+
+    static {
+        // Move the ID sequence past the sample IDs before any patient ID is handed out, even one handed out
+        // before the in-memory data is created, so a new patient is never given a sample's ID
+        for (Patient patient : sampleData()) {
+            GenerateId.observe(patient.getId());
+        }
+    }
     
     // Method to retrieve all patients
     public List<Patient> getAllPatients() {
-        // Return a copy of the list to prevent direct modification
-        return new ArrayList<>(patients);
+        // Return the shared read-only snapshot, which is only re-copied after a change
+        return Memory.patients.snapshot();
+    }
+
+    // Method to retrieve one page of patients in ID order, starting after the given cursor
+    public Page<Patient> getPatientsPage(String cursor, int limit) {
+        return Memory.patients.page(cursor, limit);
+    }
+
+    // Method to get a live, read-only view of all patients in ID order, for streaming without a copy
+    public Collection<Patient> getPatientsView() {
+        return Memory.patients.view();
     }
     
-    // Initialize some sample data
-    static {
-        patients.add(new Patient("003","Alice Johnson", "alice.johnson@example.com", "123 Main Street, Anytown, USA", "Fever", "Good"));
-        patients.add(new Patient("004","John Smith", " john.smith@example.com", "456 Elm Avenue, Somewhere City, USA", "Fever", "Bad"));
+    // The in-memory data, held in its own class so that it is only created and seeded once an
+    // in-memory method first uses it, and not when a JDBC DAO, which extends this class, is loaded
+    private static final class Memory {
+        // Repository storing the patients, keyed by patient ID
+        static Repository<Patient> patients = Repositories.create(Patient::getId);
+        // Index of the patient names, for searching by part of a name
+        static final NameIndex<Patient> nameIndex = newNameIndex();
+        // Index of the health status of each patient, for filtering and counting by it
+        static final AttributeIndex<Patient> healthStatusIndex = newHealthStatusIndex();
+
+        static {
+            // Keep the name and health status indexes in step with every write to the repository
+            patients.addListener(new RepositoryListener<Patient>() {
+                @Override
+                public void onPut(Patient previous, Patient current) {
+                    nameIndex.put(current);
+                    healthStatusIndex.put(current);
+                }
+
+                @Override
+                public void onRemove(Patient removed) {
+                    nameIndex.remove(removed.getId());
+                    healthStatusIndex.remove(removed.getId());
+                }
+            });
+
+            // Add the sample patients to the repository
+            for (Patient patient : sampleData()) {
+                store(patient);
+            }
+        }
+    }
+
+    // Method to create the sample patients, which fill an empty store at start-up
+    static List<Patient> sampleData() {
+        return Arrays.asList(
+                new Patient("003","Alice Johnson", "alice.johnson@example.com", "123 Main Street, Anytown, USA", "Fever", "Good"),
+                new Patient("004","John Smith", " john.smith@example.com", "456 Elm Avenue, Somewhere City, USA", "Fever", "Bad"));
     }
     
     // Method to get a patient by ID    
     public Patient getPatientById(String patientId) {
-        // Iterate through the list
-        for (Patient patient : patients) {
-            if (patient.getId().equals(patientId)) {
-                return patient; // Return the patient if found
-            }
+        if (patientId == null) {
+            return null; // Patient not found
         }
-        return null; // Patient not found
+        // Look up the patient directly by ID
+        return Memory.patients.get(patientId);
     }
     
-    // Method to get patients by health status
-    public List<Patient> getPatientsByHealthStatus(String healthStatus) {
-        // Create a list to store patients with the specified health status
-        List<Patient> patientsWithStatus = new ArrayList<>();
-        // Iterate through the list to find patients with the specified health status
-        for (Patient patient : patients) {
-            if (patient.getHealthStatus().equalsIgnoreCase(healthStatus)) {
-                patientsWithStatus.add(patient); // Add patient to the list if health status matches
-            }
+    // Method to get the patients with the given IDs, keyed by ID; IDs with no patient are left out
+    public Map<String, Patient> getPatientsById(Collection<String> patientIds) {
+        Map<String, Patient> found = new HashMap<>();
+        for (Patient patient : Memory.patients.getAll(patientIds)) {
+            found.put(patient.getId(), patient);
         }
-        return patientsWithStatus; // Return the list of patients with the specified health status
+        return found;
+    }
+
+    // Method to get patients by health status, ignoring case
+    public List<Patient> getPatientsByHealthStatus(String healthStatus) {
+        // Read the IDs of the patients with the health status from its index
+        return Memory.patients.getAll(Memory.healthStatusIndex.ids(healthStatus));
+    }
+
+    // Method to count the patients with each health status, most common first
+    public Map<String, Integer> getHealthStatusCounts() {
+        return Memory.healthStatusIndex.counts();
     }
     
+    // Method to find the patients whose names best match a partly typed name, allowing for typos; at most limit of them
+    public List<Patient> searchPatientsByName(String name, int limit) {
+        // Patients deleted since the search ran are skipped
+        return Memory.patients.getAll(Memory.nameIndex.search(name, limit));
+    }
+
     // Method to add a new patient
     public void addPatient(Patient patient) {
         // Generate patient ID
         String patientId = idGenerator.generatePatientId();
         // Set the generated ID to the patient object
         patient.setId(patientId);
+        // New patients start at version 1
+        patient.setVersion(1);
         
-        // Add patient to the list
-        patients.add(patient);
+        // Add patient to the repository
+        Lock lock = locks.get(patientId);
+        lock.lock();
+        try {
+            // Journal the change first, and make it visible only once it is durable
+            DataStore.put(DataStore.PATIENT, patientId, patient, () -> store(patient));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Method to add a batch of new patients, with their IDs reserved in one block, as a single write.
+    // Returns once the whole batch is durable.
+    public void addPatients(List<Patient> newPatients) {
+        List<String> patientIds = GenerateId.generatePatientIds(newPatients.size());
+        for (int i = 0; i < newPatients.size(); i++) {
+            Patient patient = newPatients.get(i);
+            patient.setId(patientIds.get(i));
+            patient.setVersion(1);
+        }
+        // Hold the locks of every new ID, then journal the batch as one record and apply it once that is durable.
+        // Readers may see the patients appear one by one while it is applied.
+        List<Lock> taken = locks.lock(patientIds);
+        try {
+            DataStore.putAll(DataStore.PATIENT, newPatients, () -> {
+                for (Patient patient : newPatients) {
+                    store(patient);
+                }
+            });
+        } finally {
+            locks.unlock(taken);
+        }
     }
 
     // Method to update an existing patient by ID
     public void updatePatient(String id, Patient updatedPatient) {
-        // Find the index of the patient with the given ID
-        int index = findPatientIndexById(id);
-        // Check if patient with the given ID exists
-        if (index != -1) {
-            patients.set(index, updatedPatient); // Update the patient at the found index
-        } else {
+        if (!replace(id, updatedPatient, null)) {
             System.out.println("Patient not found with ID: " + id);
         }
     }
 
+    // Method to update an existing patient only if its stored version is the expected one, as for an If-Match request.
+    // Returns false if there is no patient with the ID or it has changed since.
+    public boolean updatePatient(String id, Patient updatedPatient, long expectedVersion) {
+        return replace(id, updatedPatient, expectedVersion);
+    }
+    
     // Method to delete a patient by ID
     public void deletePatient(String id) {
-        // Find the index of the patient with the given ID
-        int index = findPatientIndexById(id);
-        // Check if patient with the given ID exists
-        if (index != -1) {
-            patients.remove(index); // Remove the patient at the found index
-        } else {
-            System.out.println("Patient not found with ID: " + id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            // Remove the patient with the given ID, if present
+            if (Memory.patients.get(id) != null) {
+                // Journal the delete first, and apply it only once it is durable
+                DataStore.delete(DataStore.PATIENT, id, () -> remove(id));
+            } else {
+                System.out.println("Patient not found with ID: " + id);
+            }
+        } finally {
+            lock.unlock();
         }
     }
-    
-    // Helper method to find the index of a patient by ID
-    private int findPatientIndexById(String id) {
-        // Iterate through the list to find the index of the patient with the given ID
-        for (int i = 0; i < patients.size(); i++) {
-            if (patients.get(i).getId().equals(id)) {
-                return i; // Return the index if patient with ID is found
+
+    // Method used by journal replay to put back a patient exactly as it was recorded
+    static void restore(Patient patient) {
+        store(patient);
+    }
+
+    // Method used by journal replay to drop a deleted patient
+    static void evict(String id) {
+        remove(id);
+    }
+
+    // Helper method to replace a stored patient and bump its version, atomically with the version check.
+    // Returns false if there is none, or if its version is not the expected one (null for any version).
+    private static boolean replace(String id, Patient updatedPatient, Long expectedVersion) {
+        // Keep the stored ID in step with the key
+        updatedPatient.setId(id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            Patient current = Memory.patients.get(id);
+            if (current == null || (expectedVersion != null && current.getVersion() != expectedVersion)) {
+                return false;
             }
+            updatedPatient.setVersion(current.getVersion() + 1);
+            // Replace the patient once the change is durable; the repository re-indexes it
+            DataStore.put(DataStore.PATIENT, id, updatedPatient, () -> store(updatedPatient));
+        } finally {
+            lock.unlock();
         }
-        return -1; // Return -1 if patient with ID is not found.
+        return true;
+    }
+
+    // Helper method to remove a patient from the repository, returning false if it was not there
+    private static boolean remove(String id) {
+        return Memory.patients.remove(id) != null;
+    }
+
+    // Helper method to put a patient into the repository, replacing any previous version
+    private static void store(Patient patient) {
+        Memory.patients.put(patient);
+    }
+
+    // Helper method to create an empty index of patient names
+    static NameIndex<Patient> newNameIndex() {
+        return new NameIndex<>(Patient::getId, Patient::getVersion, Patient::getName);
+    }
+
+    // Helper method to create an empty index of patient health status values
+    static AttributeIndex<Patient> newHealthStatusIndex() {
+        return new AttributeIndex<>(Patient::getId, Patient::getVersion, Patient::getHealthStatus);
     }
 }
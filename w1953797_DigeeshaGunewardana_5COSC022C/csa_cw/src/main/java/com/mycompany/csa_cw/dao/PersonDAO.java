@@ -1,6 +1,7 @@
 package com.mycompany.csa_cw.dao;
 
 import com.mycompany.csa_cw.model.Person;
+import com.mycompany.csa_cw.util.VersionedSnapshot;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -9,6 +10,10 @@ public class PersonDAO {
     
     // Static list to store persons
     private static List<Person> persons = new ArrayList<>();
+    // Immutable snapshot of all persons shared by readers
+    private static VersionedSnapshot<Person> snapshot = new VersionedSnapshot<>();
+    // Lock guarding the list, which is not safe for concurrent access on its own
+    private static final Object writeLock = new Object();
     
     // Initialize some sample data
     static {
@@ -18,43 +23,58 @@ public class PersonDAO {
     
     // Method to retrieve all persons
     public List<Person> getAllPersons() {
-        // Return a copy of the list to prevent direct modification
-        return new ArrayList<>(persons); 
+        // Return the shared read-only snapshot, which is only re-copied after a change
+        return snapshot.get(() -> {
+            synchronized (writeLock) {
+                return new ArrayList<>(persons);
+            }
+        });
     }
     
     // Method to retrieve a specific person by index
     public Person getPerson(int index) {
-        // Check for valid index
-        if (index < 0 || index >= persons.size()) {
-            throw new IllegalArgumentException("Invalid index");
+        synchronized (writeLock) {
+            // Check for valid index
+            if (index < 0 || index >= persons.size()) {
+                throw new IllegalArgumentException("Invalid index");
+            }
+            // Return the person at the specified index
+            return persons.get(index);
         }
-        // Return the person at the specified index
-        return persons.get(index);
     }
     
     // Method to add a new person
     public void addPerson(Person person) {
-        // Add the new person to the list
-        persons.add(person);
+        synchronized (writeLock) {
+            // Add the new person to the list
+            persons.add(person);
+            snapshot.invalidate();
+        }
     }
 
     // Method to update an existing person by index
     public void updatePerson(int index, Person person) {
-        // Check for valid index
-        if (index < 0 || index >= persons.size()) {
-            throw new IllegalArgumentException("Invalid index");
+        synchronized (writeLock) {
+            // Check for valid index
+            if (index < 0 || index >= persons.size()) {
+                throw new IllegalArgumentException("Invalid index");
+            }
+            // Update the person at the given index with the new person object
+            persons.set(index, person);
+            snapshot.invalidate();
         }
-        // Update the person at the given index with the new person object
-        persons.set(index, person);
     }
 
     // Method to delete a person by index
     public void deletePerson(int index) {
-        // Check for valid index
-        if (index < 0 || index >= persons.size()) {
-            throw new IllegalArgumentException("Invalid index");
+        synchronized (writeLock) {
+            // Check for valid index
+            if (index < 0 || index >= persons.size()) {
+                throw new IllegalArgumentException("Invalid index");
+            }
+            // Remove the person at the specified index from the list
+            persons.remove(index);
+            snapshot.invalidate();
         }
-        // Remove the person at the specified index from the list
-        persons.remove(index);
     }
 }
@@ -1,67 +1,96 @@
 package com.mycompany.csa_cw.dao;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 import com.mycompany.csa_cw.model.Prescription;
+import com.mycompany.csa_cw.repository.Repositories;
+import com.mycompany.csa_cw.repository.Repository;
 import com.mycompany.csa_cw.util.GenerateId;
+import com.mycompany.csa_cw.util.Page;
+import com.mycompany.csa_cw.util.StripedLock;
 
 public class PrescriptionDAO {
-    // List to store prescriptions
-    private static List<Prescription> prescriptions = new ArrayList<>();
+    // Names of the repository indexes on the ID of the patient and of the doctor
+    private static final String BY_PATIENT = "patient";
+    private static final String BY_DOCTOR = "doctor";
+    // Locks making each check-journal-write sequence atomic per ID, so writes to different IDs run in parallel
+    private static final StripedLock locks = new StripedLock();
 
-    // Sample data
-    static {
+    // The in-memory data, held in its own class so that it is only created and seeded once an
+    // in-memory method first uses it, and not when a JDBC DAO, which extends this class, is loaded
+    private static final class Memory {
+        // Repository storing the prescriptions, keyed by prescription ID
+        static Repository<Prescription> prescriptions = Repositories.create(Prescription::getId);
+
+        static {
+            // Index prescriptions by the ID of their patient and of their doctor
+            prescriptions.addIndex(BY_PATIENT, PrescriptionDAO::patientIdOf);
+            prescriptions.addIndex(BY_DOCTOR, PrescriptionDAO::doctorIdOf);
+
+            // Add the sample prescriptions to the repository
+            for (Prescription prescription : sampleData()) {
+                store(prescription);
+            }
+        }
+    }
+
+    // Method to create the sample prescriptions, which fill an empty store at start-up
+    static List<Prescription> sampleData() {
         // Sample prescriptions
         Prescription prescription1 = new Prescription("1", "Paracetamol", "500mg", "Take 1 tablet every 4 hours", "5 days", null, null);
         Prescription prescription2 = new Prescription("2", "Ibuprofen", "200mg", "Take 1 tablet every 6 hours", "3 days", null, null);
         Prescription prescription3 = new Prescription("3", "Amoxicillin", "500mg", "Take 1 tablet every 8 hours", "7 days", null, null);
-
-        // Add sample prescriptions to the list
-        prescriptions.add(prescription1);
-        prescriptions.add(prescription2);
-        prescriptions.add(prescription3);
+        return Arrays.asList(prescription1, prescription2, prescription3);
     }
 
     // Object for generating prescription IDs
     private GenerateId idGenerator = new GenerateId();
+
+    static {
+        // Move the ID sequence past the sample IDs before any prescription ID is handed out, even one handed out
+        // before the in-memory data is created, so a new prescription is never given a sample's ID
+        for (Prescription prescription : sampleData()) {
+            GenerateId.observe(prescription.getId());
+        }
+    }
     
     // Method to retrieve all prescriptions
     public List<Prescription> getAllPrescriptions() {
-        // Return a copy of the list to prevent direct modification
-        return new ArrayList<>(prescriptions);
+        // Return the shared read-only snapshot, which is only re-copied after a change
+        return Memory.prescriptions.snapshot();
+    }
+
+    // Method to retrieve one page of prescriptions in ID order, starting after the given cursor
+    public Page<Prescription> getPrescriptionsPage(String cursor, int limit) {
+        return Memory.prescriptions.page(cursor, limit);
+    }
+
+    // Method to get a live, read-only view of all prescriptions in ID order, for streaming without a copy
+    public Collection<Prescription> getPrescriptionsView() {
+        return Memory.prescriptions.view();
     }
     
     // Method to get a prescription by ID
     public Prescription getPrescriptionById(String prescriptionId) {
-        // Iterate through the list to find the prescription with the given ID
-        for (Prescription prescription : prescriptions) {
-            if (prescription.getId().equals(prescriptionId)) {
-                return prescription; // Return the prescription if found
-            }
+        if (prescriptionId == null) {
+            return null; // Return null if prescription not found
         }
-        return null; // Return null if prescription not found
+        // Look up the prescription directly by ID
+        return Memory.prescriptions.get(prescriptionId);
     }
 
     // Method to get prescriptions by patient ID
     public List<Prescription> getPrescriptionsByPatientId(String patientId) {
-        List<Prescription> prescriptionsForPatient = new ArrayList<>();
-        for (Prescription prescription : prescriptions) {
-            if (prescription.getId().equals(patientId)) {
-                prescriptionsForPatient.add(prescription);
-            }
-        }
-        return prescriptionsForPatient;
+        // Read the prescriptions referencing the patient from the index
+        return Memory.prescriptions.findBy(BY_PATIENT, patientId);
     }
     
     // Method to get prescriptions by doctor ID
     public List<Prescription> getPrescriptionsByDoctorId(String doctorId) {
-        List<Prescription> prescriptionsForDoctor = new ArrayList<>();
-        for (Prescription prescription : prescriptions) {
-            if (prescription.getId().equals(doctorId)) {
-                prescriptionsForDoctor.add(prescription);
-            }
-        }
-        return prescriptionsForDoctor;
+        // Read the prescriptions referencing the doctor from the index
+        return Memory.prescriptions.findBy(BY_DOCTOR, doctorId);
     }
     
     // Method to add a new prescription
@@ -69,43 +98,97 @@ public class PrescriptionDAO {
         // Generate prescription ID
         String prescriptionId = idGenerator.generatePrescriptionId();
         prescription.setId(prescriptionId);
+        // New prescriptions start at version 1
+        prescription.setVersion(1);
 
-        // Add prescription to the list
-        prescriptions.add(prescription);
+        // Add prescription to the repository
+        Lock lock = locks.get(prescriptionId);
+        lock.lock();
+        try {
+            // Journal the change first, and make it visible only once it is durable
+            DataStore.put(DataStore.PRESCRIPTION, prescriptionId, prescription, () -> store(prescription));
+        } finally {
+            lock.unlock();
+        }
     }
 
     // Method to update an existing prescription by ID
     public void updatePrescription(String id, Prescription updatedPrescription) {
-        // Find the index of the prescription with the given ID
-        int index = findPrescriptionIndexById(id);
-        // Check if prescription with the given ID exists
-        if (index != -1) {
-            prescriptions.set(index, updatedPrescription); // Update the prescription at the found index
-        } else {
+        if (!replace(id, updatedPrescription, null)) {
             System.out.println("Prescription not found with ID: " + id);
         }
     }
+
+    // Method to update an existing prescription only if its stored version is the expected one, as for an If-Match request.
+    // Returns false if there is no prescription with the ID or it has changed since.
+    public boolean updatePrescription(String id, Prescription updatedPrescription, long expectedVersion) {
+        return replace(id, updatedPrescription, expectedVersion);
+    }
     
     // Method to delete a prescription by ID
     public void deletePrescription(String id) {
-        // Find the index of the prescription with the given ID
-        int index = findPrescriptionIndexById(id);
-        // Check if prescription with the given ID exists
-        if (index != -1) {
-            prescriptions.remove(index); // Remove the prescription at the found index
-        } else {
-            System.out.println("Prescription not found with ID: " + id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            // Remove the prescription with the given ID, if present
+            if (Memory.prescriptions.get(id) != null) {
+                // Journal the delete first, and apply it only once it is durable
+                DataStore.delete(DataStore.PRESCRIPTION, id, () -> remove(id));
+            } else {
+                System.out.println("Prescription not found with ID: " + id);
+            }
+        } finally {
+            lock.unlock();
         }
     }
 
-    // Helper method to find the index of a prescription by ID
-    private int findPrescriptionIndexById(String id) {
-        // Iterate through the list to find the index of the prescription with the given ID
-        for (int i = 0; i < prescriptions.size(); i++) {
-            if (prescriptions.get(i).getId().equals(id)) {
-                return i; // Return the index if prescription with ID is found
+    // Method used by journal replay to put back a prescription exactly as it was recorded
+    static void restore(Prescription prescription) {
+        store(prescription);
+    }
+
+    // Method used by journal replay to drop a deleted prescription
+    static void evict(String id) {
+        remove(id);
+    }
+
+    // Helper method to replace a stored prescription and bump its version, atomically with the version check.
+    // Returns false if there is none, or if its version is not the expected one (null for any version).
+    private static boolean replace(String id, Prescription updatedPrescription, Long expectedVersion) {
+        // Keep the stored ID in step with the key
+        updatedPrescription.setId(id);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            Prescription current = Memory.prescriptions.get(id);
+            if (current == null || (expectedVersion != null && current.getVersion() != expectedVersion)) {
+                return false;
             }
+            updatedPrescription.setVersion(current.getVersion() + 1);
+            // Replace the prescription once the change is durable; the repository re-indexes it
+            DataStore.put(DataStore.PRESCRIPTION, id, updatedPrescription, () -> store(updatedPrescription));
+        } finally {
+            lock.unlock();
         }
-        return -1; // Return -1 if prescription with ID is not found
+        return true;
+    }
+
+    // Helper method to remove a prescription from the repository, returning false if it was not there
+    private static boolean remove(String id) {
+        return Memory.prescriptions.remove(id) != null;
+    }
+
+    // Helper method to put a prescription into the repository, replacing any previous version
+    private static void store(Prescription prescription) {
+        Memory.prescriptions.put(prescription);
+    }
+
+    // Helper methods to read the referenced patient and doctor IDs, if any
+    static String patientIdOf(Prescription prescription) {
+        return prescription.getPatient() == null ? null : prescription.getPatient().getId();
+    }
+
+    static String doctorIdOf(Prescription prescription) {
+        return prescription.getDoctor() == null ? null : prescription.getDoctor().getId();
     }
 }
@@ -1,6 +1,8 @@
 package com.mycompany.csa_cw.exception;
 
 public class InternalServerErrorException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     public InternalServerErrorException(String message) {
         super(message);
     }
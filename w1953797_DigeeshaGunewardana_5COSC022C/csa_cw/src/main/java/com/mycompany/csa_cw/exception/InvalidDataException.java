@@ -1,6 +1,8 @@
 package com.mycompany.csa_cw.exception;
 
 public class InvalidDataException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     public InvalidDataException(String message) {
         super(message);
     }
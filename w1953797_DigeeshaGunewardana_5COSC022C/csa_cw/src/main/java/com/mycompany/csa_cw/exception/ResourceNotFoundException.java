@@ -1,6 +1,8 @@
 package com.mycompany.csa_cw.exception;
 
 public class ResourceNotFoundException extends Exception {
+    private static final long serialVersionUID = 1L;
+
     public ResourceNotFoundException(String message) {
         super(message);
     }
@@ -0,0 +1,9 @@
+package com.mycompany.csa_cw.exception;
+
+public class ScheduleConflictException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public ScheduleConflictException(String message) {
+        super(message);
+    }
+}
@@ -10,6 +10,8 @@ public class Appointment {
     private String time;
     private Doctor doctor;
     private Patient patient;
+    // Incremented on every update; sent to clients in the ETag
+    private long version;
 
     // constructors
     public Appointment(){
@@ -65,6 +67,14 @@ public class Appointment {
     public void setPatient(Patient patient) {
         this.patient = patient;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
     
     
 }
@@ -11,6 +11,8 @@ public class Billing {
     private double outstandingBalance;
     private Patient patient;
     private Doctor doctor;
+    // Incremented on every update; sent to clients in the ETag
+    private long version;
 
     // constructors
     public Billing(){
@@ -73,6 +75,14 @@ public class Billing {
     public void setDoctor(Doctor doctor) {
         this.doctor = doctor;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
     
        
 }
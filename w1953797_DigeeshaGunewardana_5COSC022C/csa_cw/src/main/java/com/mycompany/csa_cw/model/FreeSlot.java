@@ -0,0 +1,46 @@
+package com.mycompany.csa_cw.model;
+
+/**
+ * A free appointment slot of a doctor, as found by an availability search.
+ */
+public class FreeSlot {
+    private String doctorId;
+    private String date;
+    private String time;
+
+    // constructors
+    public FreeSlot() {
+    }
+
+    public FreeSlot(String doctorId, String date, String time) {
+        this.doctorId = doctorId;
+        this.date = date;
+        this.time = time;
+    }
+
+    // getters and setters
+
+    public String getDoctorId() {
+        return doctorId;
+    }
+
+    public void setDoctorId(String doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public void setDate(String date) {
+        this.date = date;
+    }
+
+    public String getTime() {
+        return time;
+    }
+
+    public void setTime(String time) {
+        this.time = time;
+    }
+}
@@ -9,6 +9,8 @@ public class MedicalRecord {
     private Patient patient;
     private String diagnoses;
     private String treatments;
+    // Incremented on every update; sent to clients in the ETag
+    private long version;
 
     // constructors
     public MedicalRecord(){
@@ -54,6 +56,14 @@ public class MedicalRecord {
     public void setPatient(Patient patient) {
         this.patient = patient;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
     
     
 }
@@ -10,6 +10,9 @@ public class Person {
     private String contactInformation;
     private String address;
     
+    // Incremented on every update; sent to clients in the ETag
+    private long version;
+
     // constructors
     public Person(){
     }
@@ -55,5 +58,13 @@ public class Person {
     public void setId(String Id) {
         this.Id = Id;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
            
 }
@@ -12,6 +12,8 @@ public class Prescription {
     private String duration;
     private Patient patient;
     private Doctor doctor;
+    // Incremented on every update; sent to clients in the ETag
+    private long version;
 
     // constructors
     public Prescription(){
@@ -84,6 +86,14 @@ public class Prescription {
     public void setDoctor(Doctor doctor) {
         this.doctor = doctor;
     }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
         
     
 }
@@ -0,0 +1,12 @@
+package com.mycompany.csa_cw.persistence;
+
+/**
+ * Thrown when the database behind the JDBC DAOs fails.
+ */
+public class DataAccessException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public DataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,108 @@
+package com.mycompany.csa_cw.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.csa_cw.util.Json;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Pool of connections to the embedded database used by the JDBC DAOs.
+ *
+ * The connection settings are the properties of the my_persistence_unit
+ * persistence unit in META-INF/persistence.xml. No JPA provider is involved;
+ * the unit is only read for its settings.
+ */
+public class Database implements AutoCloseable {
+    public static final String PERSISTENCE_UNIT = "my_persistence_unit";
+    public static final String DRIVER = "javax.persistence.jdbc.driver";
+    public static final String URL = "javax.persistence.jdbc.url";
+    public static final String USER = "javax.persistence.jdbc.user";
+    public static final String PASSWORD = "javax.persistence.jdbc.password";
+    public static final String POOL_SIZE = "csa_cw.jdbc.poolSize";
+
+    private final HikariDataSource dataSource;
+    private final ObjectMapper mapper = Json.mapper();
+
+    public Database(Properties settings) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("csa_cw");
+        config.setDriverClassName(settings.getProperty(DRIVER));
+        config.setJdbcUrl(settings.getProperty(URL));
+        config.setUsername(settings.getProperty(USER));
+        config.setPassword(settings.getProperty(PASSWORD, ""));
+        config.setMaximumPoolSize(Integer.parseInt(settings.getProperty(POOL_SIZE, "10")));
+        this.dataSource = new HikariDataSource(config);
+    }
+
+    /**
+     * Opens a pool using the settings of the persistence unit, each of which
+     * can be overridden by a system property with the same name.
+     */
+    public static Database fromPersistenceUnit() throws IOException {
+        Properties settings = readPersistenceUnit(PERSISTENCE_UNIT);
+        for (String name : settings.stringPropertyNames()) {
+            settings.setProperty(name, System.getProperty(name, settings.getProperty(name)));
+        }
+        if (settings.getProperty(URL) == null) {
+            throw new IOException("No " + URL + " set for persistence unit " + PERSISTENCE_UNIT + ".");
+        }
+        return new Database(settings);
+    }
+
+    // Method to borrow a connection from the pool; closing it returns it to the pool
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    // Mapper for the JSON stored with each row
+    ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+
+    // Helper method to read the properties of a persistence unit from META-INF/persistence.xml
+    private static Properties readPersistenceUnit(String unitName) throws IOException {
+        URL resource = Database.class.getClassLoader().getResource("META-INF/persistence.xml");
+        if (resource == null) {
+            throw new IOException("META-INF/persistence.xml not found.");
+        }
+        try (InputStream in = resource.openStream()) {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            Document document = factory.newDocumentBuilder().parse(in);
+            NodeList units = document.getElementsByTagNameNS("*", "persistence-unit");
+            for (int i = 0; i < units.getLength(); i++) {
+                Element unit = (Element) units.item(i);
+                if (!unitName.equals(unit.getAttribute("name"))) {
+                    continue;
+                }
+                Properties settings = new Properties();
+                NodeList properties = unit.getElementsByTagNameNS("*", "property");
+                for (int j = 0; j < properties.getLength(); j++) {
+                    Element property = (Element) properties.item(j);
+                    settings.setProperty(property.getAttribute("name"), property.getAttribute("value"));
+                }
+                return settings;
+            }
+            throw new IOException("Persistence unit " + unitName + " not found.");
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Could not read META-INF/persistence.xml.", e);
+        }
+    }
+}
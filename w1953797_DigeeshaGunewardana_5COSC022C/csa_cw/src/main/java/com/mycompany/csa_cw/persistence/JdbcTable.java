@@ -0,0 +1,336 @@
+package com.mycompany.csa_cw.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * One entity type stored in a database table.
+ *
+ * Each row holds the entity ID as primary key, a few indexed columns derived
+ * from the entity for the queries the DAOs run (patient ID, doctor ID, date and
+ * so on), and the entity itself as JSON. Writes use MERGE, so adding an entity
+ * whose ID already exists replaces it, as the in-memory DAOs do. The IDs of
+ * deleted entities are kept in a second table so they are never handed out
+ * again while other rows may still refer to them.
+ *
+ * @param <T> the type of the entities
+ */
+public class JdbcTable<T> {
+    // Rows written per executeBatch call by putAll, and IDs looked up per query by getAll
+    private static final int BATCH_SIZE = 500;
+
+    private final Database database;
+    private final ObjectMapper mapper;
+    private final String table;
+    private final Class<T> entityClass;
+    private final Function<T, String> idOf;
+    private final List<Column<T>> columns;
+    private final String selectBody;
+    private final String merge;
+    private final String update;
+
+    @SafeVarargs
+    public JdbcTable(Database database, String table, Class<T> entityClass, Function<T, String> idOf, Column<T>... columns) {
+        this.database = database;
+        this.mapper = database.getMapper();
+        this.table = table;
+        this.entityClass = entityClass;
+        this.idOf = idOf;
+        // Copied element by element, so the varargs array itself is never kept
+        this.columns = new ArrayList<>(columns.length);
+        for (Column<T> column : columns) {
+            this.columns.add(column);
+        }
+        this.selectBody = "SELECT body FROM " + table;
+        StringBuilder names = new StringBuilder("id");
+        StringBuilder values = new StringBuilder("?");
+        StringBuilder assignments = new StringBuilder();
+        for (Column<T> column : this.columns) {
+            names.append(", ").append(column.name);
+            values.append(", ?");
+            assignments.append(column.name).append(" = ?, ");
+        }
+        this.merge = "MERGE INTO " + table + " (" + names + ", body) KEY (id) VALUES (" + values + ", ?)";
+        this.update = "UPDATE " + table + " SET " + assignments + "body = ? WHERE id = ?";
+        createIfMissing();
+    }
+
+    /**
+     * A column holding a value derived from each entity, with an index for lookups on it.
+     */
+    public static final class Column<T> {
+        private final String name;
+        private final String sqlType;
+        private final Function<T, Object> value;
+
+        public Column(String name, String sqlType, Function<T, Object> value) {
+            this.name = name;
+            this.sqlType = sqlType;
+            this.value = value;
+        }
+    }
+
+    // Method to get every entity in ID order
+    public List<T> all() {
+        return query(selectBody + " ORDER BY id");
+    }
+
+    // Method to get an entity by ID, or null if there is none
+    public T get(String id) {
+        List<T> found = query(selectBody + " WHERE id = ?", id);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    // Method to get the entities with the given IDs, with one query per BATCH_SIZE IDs; IDs that are not stored are skipped
+    public List<T> getAll(Collection<String> ids) {
+        List<String> remaining = new ArrayList<>(ids);
+        List<T> found = new ArrayList<>(remaining.size());
+        for (int from = 0; from < remaining.size(); from += BATCH_SIZE) {
+            List<String> chunk = remaining.subList(from, Math.min(from + BATCH_SIZE, remaining.size()));
+            StringBuilder placeholders = new StringBuilder("?");
+            for (int i = 1; i < chunk.size(); i++) {
+                placeholders.append(", ?");
+            }
+            found.addAll(query(selectBody + " WHERE id IN (" + placeholders + ")", chunk.toArray()));
+        }
+        return found;
+    }
+
+    // Method to get up to count entities in ID order, starting after the given ID (null for the start)
+    public List<T> after(String afterId, int count) {
+        return afterId == null
+                ? query(selectBody + " ORDER BY id LIMIT ?", count)
+                : query(selectBody + " WHERE id > ? ORDER BY id LIMIT ?", afterId, count);
+    }
+
+    // Method to get the entities whose column equals a value, in ID order
+    public List<T> where(String column, Object value) {
+        return query(selectBody + " WHERE " + column + " = ? ORDER BY id", value);
+    }
+
+    // Method to get the entities whose column is from 'from' (inclusive) up to 'to' (exclusive), in column order
+    public List<T> between(String column, Object from, Object to) {
+        return query(selectBody + " WHERE " + column + " >= ? AND " + column + " < ? ORDER BY " + column + ", id", from, to);
+    }
+
+    // Method to get the entities whose key column equals a value and whose other column is strictly between
+    // 'after' and 'before', in column order
+    public List<T> whereBetween(String keyColumn, Object key, String column, Object after, Object before) {
+        return query(selectBody + " WHERE " + keyColumn + " = ? AND " + column + " > ? AND " + column + " < ? ORDER BY " + column + ", id",
+                key, after, before);
+    }
+
+    // Method to add an index over several columns, for queries that filter on all of them
+    public void addIndex(String... indexColumns) {
+        String name = table + "_" + String.join("_", indexColumns) + "_idx";
+        try (Connection connection = database.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX IF NOT EXISTS " + name + " ON " + table + " (" + String.join(", ", indexColumns) + ")");
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not create index " + name + ".", e);
+        }
+    }
+
+    // Method to get the IDs of all stored and deleted entities
+    public List<String> usedIds() {
+        return select("SELECT id FROM " + table + " UNION SELECT id FROM " + table + "_deleted", resultSet -> resultSet.getString(1));
+    }
+
+    // Method to check whether the table holds no entities
+    public boolean isEmpty() {
+        return select("SELECT 1 FROM " + table + " LIMIT 1", resultSet -> resultSet.getInt(1)).isEmpty();
+    }
+
+    // Method to check whether no entity was ever stored, counting the deleted ones
+    public boolean isUnused() {
+        return isEmpty() && select("SELECT 1 FROM " + table + "_deleted LIMIT 1", resultSet -> resultSet.getInt(1)).isEmpty();
+    }
+
+    // Method to run a query returning a single value, such as a count or a sum
+    public Object value(String sql, Object... parameters) {
+        List<Object> values = select(sql, resultSet -> resultSet.getObject(1), parameters);
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    // Method to add or replace an entity
+    public void put(T entity) {
+        try (Connection connection = database.getConnection();
+                PreparedStatement statement = connection.prepareStatement(merge)) {
+            bindRow(statement, entity);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not write to " + table + ".", e);
+        }
+    }
+
+    // Method to add or replace many entities with JDBC batches in a single transaction
+    public void putAll(Collection<T> entities) {
+        try (Connection connection = database.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(merge)) {
+                int pending = 0;
+                for (T entity : entities) {
+                    bindRow(statement, entity);
+                    statement.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not write to " + table + ".", e);
+        }
+    }
+
+    // Method to replace an existing entity. The stored row is locked and passed to the given check, which may
+    // adjust the replacement (e.g. bump its version); returns false if there is no row or the check rejects it.
+    public boolean replace(T entity, Predicate<T> check) {
+        String id = idOf.apply(entity);
+        try (Connection connection = database.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement select = connection.prepareStatement(selectBody + " WHERE id = ? FOR UPDATE");
+                    PreparedStatement statement = connection.prepareStatement(update)) {
+                select.setString(1, id);
+                T current = null;
+                try (ResultSet resultSet = select.executeQuery()) {
+                    if (resultSet.next()) {
+                        current = fromJson(resultSet.getBytes(1));
+                    }
+                }
+                boolean replaced = current != null && check.test(current);
+                if (replaced) {
+                    int index = 1;
+                    for (Column<T> column : columns) {
+                        statement.setObject(index++, column.value.apply(entity));
+                    }
+                    statement.setBytes(index++, toJson(entity));
+                    statement.setString(index, id);
+                    statement.executeUpdate();
+                }
+                connection.commit();
+                return replaced;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not write to " + table + ".", e);
+        }
+    }
+
+    // Method to delete an entity; returns false if there was no entity with the ID
+    public boolean delete(String id) {
+        try (Connection connection = database.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE id = ?");
+                    PreparedStatement retire = connection.prepareStatement("MERGE INTO " + table + "_deleted (id) KEY (id) VALUES (?)")) {
+                delete.setString(1, id);
+                boolean deleted = delete.executeUpdate() > 0;
+                if (deleted) {
+                    retire.setString(1, id);
+                    retire.executeUpdate();
+                }
+                connection.commit();
+                return deleted;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not delete from " + table + ".", e);
+        }
+    }
+
+    // Helper method to create the table and its indexes on first use
+    private void createIfMissing() {
+        StringBuilder create = new StringBuilder("CREATE TABLE IF NOT EXISTS " + table + " (id VARCHAR(64) PRIMARY KEY");
+        for (Column<T> column : columns) {
+            create.append(", ").append(column.name).append(' ').append(column.sqlType);
+        }
+        create.append(", body VARBINARY(1000000) NOT NULL)");
+        try (Connection connection = database.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(create.toString());
+            statement.execute("CREATE TABLE IF NOT EXISTS " + table + "_deleted (id VARCHAR(64) PRIMARY KEY)");
+            for (Column<T> column : columns) {
+                statement.execute("CREATE INDEX IF NOT EXISTS " + table + "_" + column.name + "_idx ON " + table + " (" + column.name + ")");
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not create table " + table + ".", e);
+        }
+    }
+
+    private void bindRow(PreparedStatement statement, T entity) throws SQLException {
+        int index = 1;
+        statement.setString(index++, idOf.apply(entity));
+        for (Column<T> column : columns) {
+            statement.setObject(index++, column.value.apply(entity));
+        }
+        statement.setBytes(index, toJson(entity));
+    }
+
+    private List<T> query(String sql, Object... parameters) {
+        return select(sql, resultSet -> fromJson(resultSet.getBytes(1)), parameters);
+    }
+
+    private <R> List<R> select(String sql, RowReader<R> reader, Object... parameters) {
+        try (Connection connection = database.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            List<R> rows = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(reader.read(resultSet));
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not read from " + table + ".", e);
+        }
+    }
+
+    private byte[] toJson(T entity) {
+        try {
+            return mapper.writeValueAsBytes(entity);
+        } catch (IOException e) {
+            throw new DataAccessException("Could not convert a row of " + table + " to JSON.", e);
+        }
+    }
+
+    private T fromJson(byte[] json) throws SQLException {
+        try {
+            return mapper.readValue(json, entityClass);
+        } catch (IOException e) {
+            throw new SQLException("Unreadable row in " + table + ".", e);
+        }
+    }
+
+    private interface RowReader<R> {
+        R read(ResultSet resultSet) throws SQLException;
+    }
+}
@@ -0,0 +1,470 @@
+package com.mycompany.csa_cw.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.csa_cw.util.Json;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of DAO changes, kept in segment files in a
+ * local directory.
+ *
+ * Each record is one line: the CRC32 of the rest of the line in hex, the
+ * record's sequence number and the record as JSON, separated by spaces. Each
+ * segment file is named after the sequence number of its first record, and
+ * {@link #rotate()} starts a new one so segments covered by a snapshot can be
+ * deleted. Appends are queued in order and written by a single writer
+ * thread. With group commit the writer takes every record that is waiting,
+ * writes them together and makes them durable with one fsync, so concurrent
+ * writers share the cost of a sync instead of queueing behind each other's.
+ *
+ * Creating a segment also syncs the directory, because on Linux an fsync of
+ * a new file does not make its directory entry durable. Where directories
+ * cannot be opened (Windows) this step is skipped and the file system is
+ * relied on to persist the entry.
+ */
+public class Journal implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(Journal.class.getName());
+    // Largest number of records made durable by a single fsync
+    private static final int MAX_BATCH = 4096;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d{20})\\.log");
+
+    private final ObjectMapper mapper = Json.mapper();
+    private final Path directory;
+    // Segment being appended to; only used by the writer thread once it has started
+    private Path file;
+    private FileChannel channel;
+    private final boolean groupCommit;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    // Guards sequence numbering so records are queued in sequence order
+    private final Object appendLock = new Object();
+    private long lastSequence;
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private Journal(Path directory, Path file, FileChannel channel, long lastSequence, boolean groupCommit) {
+        this.directory = directory;
+        this.file = file;
+        this.channel = channel;
+        this.lastSequence = lastSequence;
+        this.groupCommit = groupCommit;
+        this.writer = new Thread(this::writeLoop, "csa_cw-journal-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Replays the journal in the given directory, then opens it for appending.
+     *
+     * A torn or corrupt record at the end of the last segment (left by a crash
+     * mid-write) ends the replay and is cut off, so new records follow the last
+     * good one. Corruption anywhere else, or a gap between segments, is an error.
+     *
+     * @param directory the journal directory, created if missing
+     * @param groupCommit true to share one fsync between all waiting records, false to fsync each record
+     * @param replay receives every intact record in sequence order
+     * @return the open journal
+     * @throws IOException if the journal cannot be read or opened
+     */
+    public static Journal open(Path directory, boolean groupCommit, Consumer<JournalRecord> replay) throws IOException {
+        return open(directory, groupCommit, 0, replay);
+    }
+
+    /**
+     * Same as {@link #open(Path, boolean, Consumer)}, skipping records up to and
+     * including the given sequence number, which are already covered by a snapshot.
+     */
+    public static Journal open(Path directory, boolean groupCommit, long afterSequence, Consumer<JournalRecord> replay) throws IOException {
+        Files.createDirectories(directory);
+        TreeMap<Long, Path> segments = listSegments(directory);
+        if (!segments.isEmpty() && segments.firstKey() > afterSequence + 1) {
+            throw new IOException("Journal records " + (afterSequence + 1) + " to " + (segments.firstKey() - 1)
+                    + " are missing from " + directory + ".");
+        }
+        ObjectMapper mapper = Json.mapper();
+        long lastSequence = afterSequence;
+        int replayed = 0;
+        Path last = null;
+        long validLength = 0;
+        for (Long start : segments.keySet()) {
+            Path segment = segments.get(start);
+            Long next = segments.higherKey(start);
+            last = segment;
+            if (next != null && next <= afterSequence + 1) {
+                continue; // Every record in this segment is already covered
+            }
+            validLength = 0;
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(segment))) {
+                ByteArrayOutputStream line = new ByteArrayOutputStream();
+                long offset = 0;
+                int b;
+                while ((b = in.read()) != -1) {
+                    offset++;
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+                    JournalRecord record = decode(mapper, line.toByteArray());
+                    line.reset();
+                    if (record == null) {
+                        break; // Corrupt record: everything after it is unreliable
+                    }
+                    validLength = offset;
+                    if (record.getSequence() > lastSequence) {
+                        replay.accept(record);
+                        lastSequence = record.getSequence();
+                        replayed++;
+                    }
+                }
+            }
+            if (next != null && validLength < Files.size(segment)) {
+                // Earlier segments are synced before the next one is started, so this is not a torn write
+                throw new IOException("Journal segment " + segment + " is corrupt.");
+            }
+        }
+        boolean created = last == null;
+        if (created) {
+            last = directory.resolve(segmentName(afterSequence + 1));
+        }
+        FileChannel channel = FileChannel.open(last, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (validLength < channel.size()) {
+                logger.log(Level.WARNING, "Discarding {0} byte(s) of incomplete journal data at the end of {1}.",
+                        new Object[]{channel.size() - validLength, last});
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+            channel.position(validLength);
+            if (created) {
+                syncDirectory(directory);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        logger.log(Level.INFO, "Replayed {0} journal record(s) from {1}.", new Object[]{replayed, directory});
+        Journal journal = new Journal(directory, last, channel, lastSequence, groupCommit);
+        journal.writer.start();
+        return journal;
+    }
+
+    // Method to record that an entity was created or replaced
+    public Ticket appendPut(String type, String id, Object entity) {
+        return append(toJson(new JournalRecord(0, JournalRecord.Operation.PUT, type, id, mapper.valueToTree(entity))));
+    }
+
+    // Method to record that a batch of entities of one type was created or replaced together, as one record
+    public Ticket appendPutAll(String type, Collection<?> entities) {
+        return append(toJson(new JournalRecord(0, JournalRecord.Operation.PUT_ALL, type, null, mapper.valueToTree(entities))));
+    }
+
+    // Method to record that an entity was deleted
+    public Ticket appendDelete(String type, String id) {
+        return append(toJson(new JournalRecord(0, JournalRecord.Operation.DELETE, type, id, null)));
+    }
+
+    // Method to get the sequence number of the last record appended
+    public long getLastSequence() {
+        synchronized (appendLock) {
+            return lastSequence;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Starts a new segment for the records appended from now on.
+     *
+     * @return the sequence number of the last record in the previous segments
+     */
+    public long rotate() {
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed.");
+            }
+            queue.add(new Pending(lastSequence + 1));
+            return lastSequence;
+        }
+    }
+
+    /**
+     * Deletes the segments whose records all have a sequence number up to the
+     * given one. The segment being appended to is always kept.
+     */
+    public void deleteSegmentsUpTo(long sequence) throws IOException {
+        TreeMap<Long, Path> segments = listSegments(directory);
+        for (Long start : segments.keySet()) {
+            Long next = segments.higherKey(start);
+            if (next == null || next > sequence + 1) {
+                break;
+            }
+            Files.deleteIfExists(segments.get(start));
+        }
+    }
+
+    // Only numbering and framing happen under the lock; the JSON is encoded by the caller's thread
+    private Ticket append(byte[] json) {
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed.");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Journal is unavailable after an earlier write failure.", failure);
+            }
+            long sequence = ++lastSequence;
+            Pending pending = new Pending(frame(sequence, json));
+            queue.add(pending);
+            return new Ticket(pending.done);
+        }
+    }
+
+    // Writer thread: write waiting records in order, sync, then release their writers
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (groupCommit) {
+                queue.drainTo(batch, MAX_BATCH - 1);
+            }
+            boolean stop = false;
+            try {
+                int from = 0;
+                for (int i = 0; i < batch.size(); i++) {
+                    Pending pending = batch.get(i);
+                    if (pending.line == null) {
+                        // Rotate or stop marker: sync what came before it first
+                        flush(batch, from, i);
+                        from = i + 1;
+                        if (pending == Pending.STOP) {
+                            stop = true;
+                            break;
+                        }
+                        startSegment(pending.segmentStart);
+                    }
+                }
+                flush(batch, from, batch.size());
+                for (Pending pending : batch) {
+                    pending.done.complete(null);
+                }
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Journal write to " + file + " failed; further writes will be refused.", e);
+                failure = e;
+                for (Pending pending : batch) {
+                    pending.done.completeExceptionally(e);
+                }
+            }
+            batch.clear();
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    // Helper method to write the records in batch[from, to) with one gather write and one sync
+    private void flush(List<Pending> batch, int from, int to) throws IOException {
+        if (from == to) {
+            return;
+        }
+        ByteBuffer[] buffers = new ByteBuffer[to - from];
+        for (int i = from; i < to; i++) {
+            buffers[i - from] = ByteBuffer.wrap(batch.get(i).line);
+        }
+        while (buffers[buffers.length - 1].hasRemaining()) {
+            channel.write(buffers);
+        }
+        channel.force(false);
+    }
+
+    // Helper method to close the current segment and continue in a new one
+    private void startSegment(long start) throws IOException {
+        Path next = directory.resolve(segmentName(start));
+        FileChannel nextChannel = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            syncDirectory(directory);
+        } catch (IOException e) {
+            nextChannel.close();
+            throw e;
+        }
+        channel.close();
+        channel = nextChannel;
+        file = next;
+    }
+
+    /**
+     * Stops accepting records, waits until the queued ones are durable and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(Pending.STOP);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    // Helper method to find the segment files in a directory, keyed by their first sequence number
+    private static TreeMap<Long, Path> listSegments(Path directory) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(path -> {
+                Matcher name = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (name.matches()) {
+                    segments.put(Long.parseLong(name.group(1)), path);
+                }
+            });
+        }
+        return segments;
+    }
+
+    // Helper method to make a new segment's directory entry durable, so a synced record cannot be lost with its file
+    private static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Directories cannot be opened on some platforms, such as Windows, which sync them with the file
+            logger.log(Level.FINE, "Cannot open {0} to sync it: {1}", new Object[]{directory, e});
+            return;
+        }
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static String segmentName(long start) {
+        return String.format("journal-%020d.log", start);
+    }
+
+    private byte[] toJson(JournalRecord record) {
+        try {
+            return mapper.writeValueAsBytes(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Line layout: 8 hex digits of CRC32, space, sequence number, space, JSON, newline
+    private static byte[] frame(long sequence, byte[] json) {
+        byte[] prefix = (sequence + " ").getBytes(StandardCharsets.US_ASCII);
+        byte[] line = new byte[9 + prefix.length + json.length + 1];
+        System.arraycopy(prefix, 0, line, 9, prefix.length);
+        System.arraycopy(json, 0, line, 9 + prefix.length, json.length);
+        CRC32 crc = new CRC32();
+        crc.update(line, 9, prefix.length + json.length);
+        byte[] checksum = String.format("%08x ", crc.getValue()).getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(checksum, 0, line, 0, 9);
+        line[line.length - 1] = '\n';
+        return line;
+    }
+
+    // Returns null if the line is not an intact record
+    private static JournalRecord decode(ObjectMapper mapper, byte[] line) {
+        if (line.length < 12 || line[8] != ' ') {
+            return null;
+        }
+        try {
+            long expected = Long.parseLong(new String(line, 0, 8, StandardCharsets.US_ASCII), 16);
+            CRC32 crc = new CRC32();
+            crc.update(line, 9, line.length - 9);
+            if (crc.getValue() != expected) {
+                return null;
+            }
+            int space = 9;
+            while (space < line.length && line[space] != ' ') {
+                space++;
+            }
+            long sequence = Long.parseLong(new String(line, 9, space - 9, StandardCharsets.US_ASCII));
+            JournalRecord record = mapper.readValue(line, space + 1, line.length - space - 1, JournalRecord.class);
+            return record.withSequence(sequence);
+        } catch (NumberFormatException | IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Handle on an appended record; {@link #await()} returns once the record is durable.
+     */
+    public static class Ticket {
+        private static final Ticket DONE = new Ticket(CompletableFuture.completedFuture(null));
+        private final CompletableFuture<Void> done;
+
+        Ticket(CompletableFuture<Void> done) {
+            this.done = done;
+        }
+
+        // Method to get a ticket for a change that is not journaled
+        public static Ticket done() {
+            return DONE;
+        }
+
+        // Method to wait until the record has been synced to disk
+        public void await() {
+            try {
+                done.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the journal.", e);
+            } catch (ExecutionException e) {
+                throw new UncheckedIOException("Journal write failed.", (IOException) e.getCause());
+            }
+        }
+    }
+
+    // A framed record, or (with a null line) a marker to start a new segment or to stop
+    private static final class Pending {
+        static final Pending STOP = new Pending(-1);
+        private final byte[] line;
+        private final long segmentStart;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(byte[] line) {
+            this.line = line;
+            this.segmentStart = 0;
+        }
+
+        Pending(long segmentStart) {
+            this.line = null;
+            this.segmentStart = segmentStart;
+        }
+    }
+}
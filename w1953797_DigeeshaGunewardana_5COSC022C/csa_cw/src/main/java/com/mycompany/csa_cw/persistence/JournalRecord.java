@@ -0,0 +1,79 @@
+package com.mycompany.csa_cw.persistence;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * One change recorded in the {@link Journal}: an entity of some type was put
+ * (created or replaced) or deleted, or a batch of entities of one type was put
+ * together. A batch is a single record, so replay restores all of it or none.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JournalRecord {
+    public enum Operation { PUT, DELETE, PUT_ALL }
+
+    private long sequence;
+    private Operation operation;
+    private String type;
+    private String id;
+    private JsonNode entity;
+
+    // constructors
+    public JournalRecord() {
+    }
+
+    public JournalRecord(long sequence, Operation operation, String type, String id, JsonNode entity) {
+        this.sequence = sequence;
+        this.operation = operation;
+        this.type = type;
+        this.id = id;
+        this.entity = entity;
+    }
+
+    // Method to get a copy of this record with the given sequence number
+    JournalRecord withSequence(long sequence) {
+        return new JournalRecord(sequence, operation, type, id, entity);
+    }
+
+    // getters and setters
+
+    // The sequence number is kept in the journal line, outside the JSON
+    @JsonIgnore
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    // The entity as JSON for PUT records, an array of the entities for PUT_ALL records, null for DELETE records
+    public JsonNode getEntity() {
+        return entity;
+    }
+
+    public void setOperation(Operation operation) {
+        this.operation = operation;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setEntity(JsonNode entity) {
+        this.entity = entity;
+    }
+}
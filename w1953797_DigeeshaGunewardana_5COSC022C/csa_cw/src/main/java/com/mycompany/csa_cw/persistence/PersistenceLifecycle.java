@@ -0,0 +1,136 @@
+package com.mycompany.csa_cw.persistence;
+
+import com.mycompany.csa_cw.dao.DAOFactory;
+import com.mycompany.csa_cw.dao.DataStore;
+import com.mycompany.csa_cw.repository.Repositories;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.ws.rs.ext.Provider;
+import org.glassfish.jersey.server.spi.Container;
+import org.glassfish.jersey.server.spi.ContainerLifecycleListener;
+
+/**
+ * Sets up the storage backend when the application starts and shuts it down
+ * when it stops.
+ *
+ * With the default in-memory backend, the latest snapshot is loaded and the
+ * journal tail replayed into the DAOs at start-up, snapshots are taken while
+ * the application runs, and a final snapshot is taken when it stops. With the
+ * jdbc backend the DAOs read and write the embedded database configured in the
+ * persistence unit instead, and the journal is not used.
+ *
+ * Settings are read from the servlet init-params, falling back to system properties:
+ * <ul>
+ * <li>csa_cw.store - memory or jdbc (default memory)</li>
+ * <li>csa_cw.data.dir - directory of the journal and the snapshots (default ~/.csa_cw)</li>
+ * <li>csa_cw.journal.enabled - false to keep data in memory only (default true)</li>
+ * <li>csa_cw.journal.groupCommit - false to fsync every record on its own (default true)</li>
+ * <li>csa_cw.snapshot.intervalSeconds - time between snapshots, 0 for a snapshot at shutdown only (default 300)</li>
+ * <li>csa_cw.repository.engine - in-memory storage engine, hash or sorted (default hash)</li>
+ * </ul>
+ */
+@Provider
+public class PersistenceLifecycle implements ContainerLifecycleListener {
+    private static final Logger logger = Logger.getLogger(PersistenceLifecycle.class.getName());
+
+    public static final String STORE = "csa_cw.store";
+    public static final String DATA_DIR = "csa_cw.data.dir";
+    public static final String JOURNAL_ENABLED = "csa_cw.journal.enabled";
+    public static final String GROUP_COMMIT = "csa_cw.journal.groupCommit";
+    public static final String SNAPSHOT_INTERVAL = "csa_cw.snapshot.intervalSeconds";
+    static final String JOURNAL_DIR = "journal";
+    static final String SNAPSHOT_DIR = "snapshots";
+
+    private Snapshots snapshots;
+    private ScheduledExecutorService scheduler;
+    private Database database;
+
+    @Override
+    public void onStartup(Container container) {
+        // Chosen before anything below loads a DAO class and creates its repositories
+        Repositories.setEngine(setting(container, Repositories.ENGINE, Repositories.getEngine()));
+        if ("jdbc".equalsIgnoreCase(setting(container, STORE, "memory"))) {
+            try {
+                database = Database.fromPersistenceUnit();
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not configure the database.", e);
+            }
+            DAOFactory.useDatabase(database);
+            return;
+        }
+        if (!Boolean.parseBoolean(setting(container, JOURNAL_ENABLED, "true"))) {
+            logger.info("Journal disabled; data is kept in memory only.");
+            return;
+        }
+        Path dataDir = Paths.get(setting(container, DATA_DIR, Paths.get(System.getProperty("user.home"), ".csa_cw").toString()));
+        boolean groupCommit = Boolean.parseBoolean(setting(container, GROUP_COMMIT, "true"));
+        long interval = Long.parseLong(setting(container, SNAPSHOT_INTERVAL, "300"));
+        try {
+            // Only the journal records after the snapshot need replaying
+            long covered = Snapshots.loadLatest(dataDir.resolve(SNAPSHOT_DIR));
+            Journal journal = Journal.open(dataDir.resolve(JOURNAL_DIR), groupCommit, covered, DataStore::recover);
+            DataStore.attach(journal);
+            snapshots = new Snapshots(dataDir.resolve(SNAPSHOT_DIR), journal, covered);
+        } catch (IOException e) {
+            // Refuse to start rather than accept writes that would not survive a restart
+            throw new IllegalStateException("Could not load the data in " + dataDir, e);
+        }
+        if (interval > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "csa_cw-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::takeSnapshot, interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public void onReload(Container container) {
+        // The DAO data is static, so it carries over a reload together with the open journal
+    }
+
+    @Override
+    public void onShutdown(Container container) {
+        if (database != null) {
+            DAOFactory.useMemory();
+            database.close();
+            return;
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        Journal journal = DataStore.detach();
+        if (journal == null) {
+            return;
+        }
+        // A final snapshot keeps the next start-up short
+        takeSnapshot();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error closing the journal.", e);
+        }
+    }
+
+    // Helper method to take a snapshot, logging rather than throwing on failure since the journal still has the data
+    private void takeSnapshot() {
+        try {
+            snapshots.take();
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.SEVERE, "Error taking a snapshot.", e);
+        }
+    }
+
+    // Helper method to read a setting from the application configuration or the system properties
+    private static String setting(Container container, String name, String defaultValue) {
+        Object value = container.getConfiguration().getProperty(name);
+        return value != null ? value.toString() : System.getProperty(name, defaultValue);
+    }
+}
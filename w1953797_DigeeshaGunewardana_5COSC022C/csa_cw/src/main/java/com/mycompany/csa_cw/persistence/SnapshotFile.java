@@ -0,0 +1,260 @@
+package com.mycompany.csa_cw.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of the DAO data, written and read through memory-mapped files.
+ *
+ * Layout: a 24-byte header (magic, format version, the journal sequence number
+ * the snapshot covers, body length), the body, then the CRC32 of the body as a
+ * long. The body is one section per entity type: the type name (short length +
+ * UTF-8), the entity count, then each entity as an int length and its CBOR
+ * encoding, which is smaller than JSON and quicker to read back at startup.
+ * Files of format version 1 hold JSON instead and are still read, so a
+ * snapshot written before the change is not lost.
+ * A snapshot only counts once its CRC checks out, so a half-written file left
+ * by a crash is ignored rather than loaded.
+ */
+public final class SnapshotFile {
+    private static final int MAGIC = 0x43534153; // "CSAS"
+    private static final int VERSION = 2;
+    private static final int JSON_VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int TRAILER_SIZE = 8;
+    // Size of each mapped region when reading, and of the staging buffer copied into each region when writing
+    private static final int WINDOW = 4 << 20;
+    private static final Pattern FILE_NAME = Pattern.compile("snapshot-(\\d{20})\\.bin");
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * How the entities of a snapshot are encoded.
+     */
+    public enum Format {
+        JSON, CBOR
+    }
+
+    /**
+     * Receives the entities of a snapshot as they are read.
+     */
+    public interface EntityConsumer {
+        // Called once the whole file has been checked, before the first entity
+        default void begin(Format format) {
+        }
+
+        void accept(String type, byte[] data);
+    }
+
+    /**
+     * Supplies the CBOR encoding of one entity when writing a snapshot.
+     */
+    public interface EntityEncoder {
+        byte[] encode(Object entity) throws IOException;
+    }
+
+    /**
+     * Writes a snapshot of the given entities, grouped by type.
+     *
+     * @param directory the snapshot directory
+     * @param sequence the last journal sequence number reflected in the entities
+     * @param contents the entities of each type, which must not change while they are written
+     * @param encoder turns an entity into CBOR
+     * @return the snapshot file
+     * @throws IOException if the file cannot be written
+     */
+    public static Path write(Path directory, long sequence, Map<String, ? extends Collection<?>> contents, EntityEncoder encoder) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(fileName(sequence));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            Body body = new Body(channel, HEADER_SIZE);
+            for (Map.Entry<String, ? extends Collection<?>> section : contents.entrySet()) {
+                byte[] type = section.getKey().getBytes(StandardCharsets.UTF_8);
+                body.reserve(6 + type.length).putShort((short) type.length).put(type).putInt(section.getValue().size());
+                for (Object entity : section.getValue()) {
+                    byte[] data = encoder.encode(entity);
+                    body.reserve(4 + data.length).putInt(data.length).put(data);
+                }
+            }
+            long end = body.finish();
+            MappedByteBuffer trailer = channel.map(FileChannel.MapMode.READ_WRITE, end, TRAILER_SIZE);
+            trailer.putLong(body.crc.getValue());
+            trailer.force();
+            // The header goes last, so a snapshot is never complete before its body is on disk
+            header.putInt(MAGIC).putInt(VERSION).putLong(sequence).putLong(end - HEADER_SIZE);
+            header.force();
+        }
+        return file;
+    }
+
+    /**
+     * Checks a snapshot and reads its entities.
+     *
+     * @param file the snapshot file
+     * @param consumer receives every entity, only after the whole file has been checked
+     * @return the last journal sequence number the snapshot covers
+     * @throws IOException if the file cannot be read or is not a complete snapshot
+     */
+    public static long read(Path file, EntityConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + TRAILER_SIZE) {
+                throw new IOException("Snapshot " + file + " is incomplete.");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            int version = header.getInt() == MAGIC ? header.getInt() : -1;
+            if (version != VERSION && version != JSON_VERSION) {
+                throw new IOException("Snapshot " + file + " is incomplete or has an unknown format.");
+            }
+            long sequence = header.getLong();
+            long bodyLength = header.getLong();
+            if (bodyLength < 0 || HEADER_SIZE + bodyLength + TRAILER_SIZE != size) {
+                throw new IOException("Snapshot " + file + " is incomplete.");
+            }
+            long end = HEADER_SIZE + bodyLength;
+            // First pass: check the whole body before any entity is handed out
+            CRC32 crc = new CRC32();
+            for (long position = HEADER_SIZE; position < end; position += WINDOW) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, end - position)));
+            }
+            if (crc.getValue() != channel.map(FileChannel.MapMode.READ_ONLY, end, TRAILER_SIZE).getLong()) {
+                throw new IOException("Snapshot " + file + " failed its checksum.");
+            }
+            // Second pass: decode the sections
+            consumer.begin(version == JSON_VERSION ? Format.JSON : Format.CBOR);
+            Reader body = new Reader(channel, HEADER_SIZE, end);
+            while (body.hasRemaining()) {
+                byte[] type = new byte[body.require(2).getShort()];
+                body.require(type.length).get(type);
+                String typeName = new String(type, StandardCharsets.UTF_8);
+                int count = body.require(4).getInt();
+                for (int i = 0; i < count; i++) {
+                    byte[] data = new byte[body.require(4).getInt()];
+                    body.require(data.length).get(data);
+                    consumer.accept(typeName, data);
+                }
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Lists the snapshot files in a directory, newest first.
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return snapshots;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> FILE_NAME.matcher(path.getFileName().toString()).matches()).forEach(snapshots::add);
+        }
+        // Names hold the zero-padded sequence number, so name order is sequence order
+        snapshots.sort(Collections.reverseOrder());
+        return snapshots;
+    }
+
+    // Method to get the journal sequence number a snapshot file is named after
+    public static long sequenceOf(Path file) {
+        Matcher name = FILE_NAME.matcher(file.getFileName().toString());
+        if (!name.matches()) {
+            throw new IllegalArgumentException("Not a snapshot file: " + file);
+        }
+        return Long.parseLong(name.group(1));
+    }
+
+    private static String fileName(long sequence) {
+        return String.format("snapshot-%020d.bin", sequence);
+    }
+
+    // Buffers the body in the heap and copies it into the file one exactly-sized mapped region at a time,
+    // so the file never has to be grown past its final size and truncated while mapped
+    private static final class Body {
+        private final FileChannel channel;
+        private ByteBuffer staging = ByteBuffer.allocate(WINDOW);
+        private final CRC32 crc = new CRC32();
+        private long position;
+
+        Body(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        // Method to make room for the given number of bytes
+        ByteBuffer reserve(int length) throws IOException {
+            if (staging.remaining() < length) {
+                flush();
+                if (staging.capacity() < length) {
+                    // An entity larger than the window needs a larger buffer
+                    staging = ByteBuffer.allocate(length);
+                }
+            }
+            return staging;
+        }
+
+        long finish() throws IOException {
+            flush();
+            return position;
+        }
+
+        private void flush() throws IOException {
+            staging.flip();
+            if (staging.hasRemaining()) {
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, position, staging.remaining());
+                crc.update(staging.duplicate());
+                position += staging.remaining();
+                region.put(staging);
+                region.force();
+            }
+            staging.clear();
+        }
+    }
+
+    // Reads the body through mapped regions, remapping whenever a value would cross the end of the current one
+    private static final class Reader {
+        private final FileChannel channel;
+        private final long end;
+        private long regionStart;
+        private ByteBuffer region = ByteBuffer.allocate(0);
+
+        Reader(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.end = end;
+            this.regionStart = start;
+        }
+
+        boolean hasRemaining() {
+            return regionStart + region.position() < end;
+        }
+
+        ByteBuffer require(int length) throws IOException {
+            if (region.remaining() < length) {
+                long position = regionStart + region.position();
+                if (length < 0 || position + length > end) {
+                    throw new IOException("Snapshot body is malformed.");
+                }
+                regionStart = position;
+                region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(end - position, Math.max(WINDOW, length)));
+            }
+            return region;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.mycompany.csa_cw.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.csa_cw.dao.DataStore;
+import com.mycompany.csa_cw.util.Json;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Takes snapshots of the DAO data and trims the journal behind them.
+ *
+ * A snapshot is consistent with the journal without stopping writers: the
+ * journal is rotated first, and its last sequence number S is recorded. The
+ * rotation waits until no change is between being journaled and being applied
+ * to the DAOs, so every change up to S is already applied and the copies taken
+ * afterwards include it. They may also include some later changes, but
+ * replaying those again from the journal tail is harmless because each record
+ * sets the whole entity (or deletes it).
+ *
+ * The two newest snapshots are kept, and the journal is trimmed only behind the
+ * older one, so a damaged newest snapshot can still be recovered from.
+ */
+public class Snapshots {
+    private static final Logger logger = Logger.getLogger(Snapshots.class.getName());
+    private static final int KEEP = 2;
+
+    private final ObjectMapper mapper = Json.cborMapper();
+    private final Path directory;
+    private final Journal journal;
+    private long lastSequence;
+
+    public Snapshots(Path directory, Journal journal, long lastSequence) {
+        this.directory = directory;
+        this.journal = journal;
+        this.lastSequence = lastSequence;
+    }
+
+    /**
+     * Loads the newest intact snapshot in the directory into the DAOs.
+     * Snapshots that fail their checks are set aside with a .corrupt suffix.
+     * The DAOs are emptied once a snapshot has passed its checks, because
+     * the snapshot is the whole state: sample data deleted before it was
+     * taken must not come back.
+     *
+     * @return the journal sequence number the loaded snapshot covers, or 0 if there is none
+     */
+    public static long loadLatest(Path directory) throws IOException {
+        for (Path file : SnapshotFile.list(directory)) {
+            try {
+                long start = System.nanoTime();
+                long sequence = SnapshotFile.read(file, new SnapshotFile.EntityConsumer() {
+                    private ObjectMapper reader;
+
+                    @Override
+                    public void begin(SnapshotFile.Format format) {
+                        reader = format == SnapshotFile.Format.CBOR ? Json.cborMapper() : Json.mapper();
+                        DataStore.clear();
+                    }
+
+                    @Override
+                    public void accept(String type, byte[] data) {
+                        DataStore.load(type, data, reader);
+                    }
+                });
+                logger.log(Level.INFO, "Loaded snapshot {0} in {1} ms.", new Object[]{file, (System.nanoTime() - start) / 1000000});
+                return sequence;
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Ignoring unreadable snapshot " + file + ".", e);
+                Files.move(file, file.resolveSibling(file.getFileName() + ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Writes a snapshot if anything was journaled since the last one, then
+     * deletes old snapshots and the journal segments they made redundant.
+     */
+    public synchronized void take() throws IOException {
+        if (journal.getLastSequence() == lastSequence) {
+            return; // Nothing changed
+        }
+        long sequence = DataStore.rotate(journal);
+        long start = System.nanoTime();
+        Path file = SnapshotFile.write(directory, sequence, DataStore.contents(), mapper::writeValueAsBytes);
+        lastSequence = sequence;
+        logger.log(Level.INFO, "Wrote snapshot {0} in {1} ms.", new Object[]{file, (System.nanoTime() - start) / 1000000});
+        prune();
+    }
+
+    // Helper method to delete all but the newest snapshots, and the journal segments older than all of them
+    private void prune() throws IOException {
+        List<Path> snapshots = SnapshotFile.list(directory);
+        if (snapshots.size() < KEEP) {
+            return;
+        }
+        for (Path old : snapshots.subList(KEEP, snapshots.size())) {
+            Files.deleteIfExists(old);
+        }
+        journal.deleteSegmentsUpTo(SnapshotFile.sequenceOf(snapshots.get(KEEP - 1)));
+    }
+}
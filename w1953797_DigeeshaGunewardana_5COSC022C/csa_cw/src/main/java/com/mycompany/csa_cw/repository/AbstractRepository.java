@@ -0,0 +1,195 @@
+package com.mycompany.csa_cw.repository;
+
+import com.mycompany.csa_cw.util.Page;
+import com.mycompany.csa_cw.util.ReferenceIndex;
+import com.mycompany.csa_cw.util.StripedLock;
+import com.mycompany.csa_cw.util.VersionedSnapshot;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+/**
+ * The parts of an in-memory {@link Repository} that do not depend on how the
+ * entities are stored: secondary indexes, listeners, the shared snapshot and
+ * the locks that keep them in step with the storage.
+ *
+ * Writes are locked per ID: writes to the same entity are applied one at a time,
+ * while writes to different entities run in parallel. Indexes and listeners must
+ * therefore cope with concurrent calls for different entities.
+ *
+ * @param <T> the type of the entities
+ */
+public abstract class AbstractRepository<T> implements Repository<T> {
+    private final Function<T, String> idOf;
+    private final Map<String, SecondaryIndex<T>> indexes = new ConcurrentHashMap<>();
+    private final List<RepositoryListener<T>> listeners = new CopyOnWriteArrayList<>();
+    private final VersionedSnapshot<T> snapshot = new VersionedSnapshot<>();
+    // Locks guarding writes per ID so the storage, the indexes and the listeners change together
+    private final StripedLock locks = new StripedLock();
+
+    protected AbstractRepository(Function<T, String> idOf) {
+        this.idOf = idOf;
+    }
+
+    // Storage operations of the engine; the write operations are only called under the lock of the ID
+    protected abstract T lookup(String id);
+
+    protected abstract T store(String id, T entity);
+
+    protected abstract T evict(String id);
+
+    // Entities in ID order
+    protected abstract NavigableMap<String, T> ordered();
+
+    @Override
+    public T get(String id) {
+        return id == null ? null : lookup(id);
+    }
+
+    @Override
+    public List<T> getAll(Collection<String> ids) {
+        List<T> found = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            T entity = get(id);
+            if (entity != null) {
+                found.add(entity);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return get(id) != null;
+    }
+
+    @Override
+    public T put(T entity) {
+        String id = idOf.apply(entity);
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            T previous = store(id, entity);
+            for (SecondaryIndex<T> index : indexes.values()) {
+                index.replace(previous, entity);
+            }
+            for (RepositoryListener<T> listener : listeners) {
+                listener.onPut(previous, entity);
+            }
+            snapshot.invalidate();
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void putAll(Collection<? extends T> entities) {
+        // Each entity is locked on its own, so a large batch does not hold up writes to other entities
+        for (T entity : entities) {
+            put(entity);
+        }
+    }
+
+    @Override
+    public T remove(String id) {
+        if (id == null) {
+            return null;
+        }
+        Lock lock = locks.get(id);
+        lock.lock();
+        try {
+            T removed = evict(id);
+            if (removed != null) {
+                for (SecondaryIndex<T> index : indexes.values()) {
+                    index.replace(removed, null);
+                }
+                for (RepositoryListener<T> listener : listeners) {
+                    listener.onRemove(removed);
+                }
+                snapshot.invalidate();
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return ordered().size();
+    }
+
+    @Override
+    public List<T> findBy(String index, String key) {
+        SecondaryIndex<T> secondary = indexes.get(index);
+        if (secondary == null) {
+            throw new IllegalArgumentException("No index named " + index);
+        }
+        return secondary.entities.get(key);
+    }
+
+    @Override
+    public List<T> snapshot() {
+        // Only re-copied after a change
+        return snapshot.get(ordered()::values);
+    }
+
+    @Override
+    public Collection<T> view() {
+        return Collections.unmodifiableCollection(ordered().values());
+    }
+
+    @Override
+    public Page<T> page(String cursor, int limit) {
+        return Page.of(ordered(), cursor, limit);
+    }
+
+    @Override
+    public void addIndex(String name, Function<T, String> key) {
+        // Hold every stripe so no entity is written while the index is filled
+        locks.lockAll();
+        try {
+            SecondaryIndex<T> index = new SecondaryIndex<>(key, idOf);
+            for (T entity : ordered().values()) {
+                index.replace(null, entity);
+            }
+            indexes.put(name, index);
+        } finally {
+            locks.unlockAll();
+        }
+    }
+
+    @Override
+    public void addListener(RepositoryListener<T> listener) {
+        listeners.add(listener);
+    }
+
+    private static final class SecondaryIndex<T> {
+        private final ReferenceIndex<T> entities = new ReferenceIndex<>();
+        private final Function<T, String> key;
+        private final Function<T, String> idOf;
+
+        SecondaryIndex(Function<T, String> key, Function<T, String> idOf) {
+            this.key = key;
+            this.idOf = idOf;
+        }
+
+        // Moves an entity from the key of its previous version to the key of its current one
+        void replace(T previous, T current) {
+            if (previous != null) {
+                entities.remove(key.apply(previous), idOf.apply(previous));
+            }
+            if (current != null) {
+                entities.add(key.apply(current), idOf.apply(current), current);
+            }
+        }
+    }
+}
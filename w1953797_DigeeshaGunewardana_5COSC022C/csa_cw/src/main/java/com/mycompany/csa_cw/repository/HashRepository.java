@@ -0,0 +1,45 @@
+package com.mycompany.csa_cw.repository;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Hash engine: a ConcurrentHashMap for constant-time lookups by ID, plus an
+ * ID-ordered skip list for paging, snapshots and ordered views. Costs an extra
+ * map entry per entity and a second insert per write in exchange for O(1) reads.
+ *
+ * @param <T> the type of the entities
+ */
+public class HashRepository<T> extends AbstractRepository<T> {
+    private final Map<String, T> byId = new ConcurrentHashMap<>();
+    private final NavigableMap<String, T> inOrder = new ConcurrentSkipListMap<>();
+
+    public HashRepository(Function<T, String> idOf) {
+        super(idOf);
+    }
+
+    @Override
+    protected T lookup(String id) {
+        return byId.get(id);
+    }
+
+    @Override
+    protected T store(String id, T entity) {
+        inOrder.put(id, entity);
+        return byId.put(id, entity);
+    }
+
+    @Override
+    protected T evict(String id) {
+        inOrder.remove(id);
+        return byId.remove(id);
+    }
+
+    @Override
+    protected NavigableMap<String, T> ordered() {
+        return inOrder;
+    }
+}
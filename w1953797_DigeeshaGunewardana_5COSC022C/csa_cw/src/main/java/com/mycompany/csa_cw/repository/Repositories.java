@@ -0,0 +1,38 @@
+package com.mycompany.csa_cw.repository;
+
+import java.util.function.Function;
+
+/**
+ * Creates repositories on the configured storage engine.
+ *
+ * The engine is "hash" (the default) or "sorted", taken from the
+ * csa_cw.repository.engine system property or set with {@link #setEngine(String)}.
+ * It must be chosen before the DAO classes are first used, since each DAO
+ * creates its repositories once.
+ */
+public final class Repositories {
+    public static final String ENGINE = "csa_cw.repository.engine";
+    public static final String HASH = "hash";
+    public static final String SORTED = "sorted";
+
+    private static volatile String engine = System.getProperty(ENGINE, HASH);
+
+    private Repositories() {
+    }
+
+    public static void setEngine(String name) {
+        if (!HASH.equalsIgnoreCase(name) && !SORTED.equalsIgnoreCase(name)) {
+            throw new IllegalArgumentException("Unknown repository engine: " + name);
+        }
+        engine = name;
+    }
+
+    public static String getEngine() {
+        return engine;
+    }
+
+    // Method to create an empty repository on the configured engine
+    public static <T> Repository<T> create(Function<T, String> idOf) {
+        return SORTED.equalsIgnoreCase(engine) ? new SortedRepository<>(idOf) : new HashRepository<>(idOf);
+    }
+}
@@ -0,0 +1,57 @@
+package com.mycompany.csa_cw.repository;
+
+import com.mycompany.csa_cw.util.Page;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Storage for the entities of one type, keyed by ID.
+ *
+ * Implementations are the storage engines the DAOs can run on (see
+ * {@link Repositories}). All of them are safe for concurrent use: writes are
+ * atomic with respect to the secondary indexes and listeners, writes to the
+ * same ID are applied in a single order, writes to different IDs may run in
+ * parallel, and reads never block.
+ *
+ * @param <T> the type of the entities
+ */
+public interface Repository<T> {
+
+    // Method to get an entity by ID, or null if there is none
+    T get(String id);
+
+    // Method to get the entities with the given IDs, skipping IDs that are not stored
+    List<T> getAll(Collection<String> ids);
+
+    boolean contains(String id);
+
+    // Method to add or replace an entity, returning the entity it replaced (or null)
+    T put(T entity);
+
+    // Method to add or replace many entities
+    void putAll(Collection<? extends T> entities);
+
+    // Method to remove an entity by ID, returning it (or null if there was none)
+    T remove(String id);
+
+    int size();
+
+    // Method to get the entities whose key in the named secondary index equals the given key
+    List<T> findBy(String index, String key);
+
+    // Method to get an unmodifiable copy of every entity in ID order, shared between readers until the next write
+    List<T> snapshot();
+
+    // Method to get a live, read-only view of every entity in ID order
+    Collection<T> view();
+
+    // Method to read the page of entities in ID order that follows the given cursor (null for the first page)
+    Page<T> page(String cursor, int limit);
+
+    // Method to add a secondary index over a key derived from each entity; call before storing entities
+    void addIndex(String name, Function<T, String> key);
+
+    // Method to have a listener told about every write, e.g. to keep a derived structure up to date
+    void addListener(RepositoryListener<T> listener);
+}
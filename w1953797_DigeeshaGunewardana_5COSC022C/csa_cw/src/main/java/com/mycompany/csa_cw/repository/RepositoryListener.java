@@ -0,0 +1,16 @@
+package com.mycompany.csa_cw.repository;
+
+/**
+ * Told about every write to a {@link Repository}, while the write is still in
+ * progress, so structures derived from the entities can change together with them.
+ *
+ * @param <T> the type of the entities
+ */
+public interface RepositoryListener<T> {
+
+    // Called after an entity was added (previous is null) or replaced
+    void onPut(T previous, T current);
+
+    // Called after an entity was removed
+    void onRemove(T removed);
+}
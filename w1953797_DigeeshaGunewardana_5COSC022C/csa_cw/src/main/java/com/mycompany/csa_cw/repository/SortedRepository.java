@@ -0,0 +1,39 @@
+package com.mycompany.csa_cw.repository;
+
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Sorted engine: a single ID-ordered skip list. Lookups by ID cost O(log n),
+ * but each entity is stored once and each write touches one map.
+ *
+ * @param <T> the type of the entities
+ */
+public class SortedRepository<T> extends AbstractRepository<T> {
+    private final NavigableMap<String, T> inOrder = new ConcurrentSkipListMap<>();
+
+    public SortedRepository(Function<T, String> idOf) {
+        super(idOf);
+    }
+
+    @Override
+    protected T lookup(String id) {
+        return inOrder.get(id);
+    }
+
+    @Override
+    protected T store(String id, T entity) {
+        return inOrder.put(id, entity);
+    }
+
+    @Override
+    protected T evict(String id) {
+        return inOrder.remove(id);
+    }
+
+    @Override
+    protected NavigableMap<String, T> ordered() {
+        return inOrder;
+    }
+}
@@ -3,40 +3,92 @@ package com.mycompany.csa_cw.resource;
 import com.mycompany.csa_cw.exception.ResourceNotFoundException;
 import com.mycompany.csa_cw.exception.InvalidDataException;
 import com.mycompany.csa_cw.exception.InternalServerErrorException;
+import com.mycompany.csa_cw.exception.ScheduleConflictException;
 import com.mycompany.csa_cw.model.Appointment;
 import com.mycompany.csa_cw.model.Patient;
 import com.mycompany.csa_cw.model.Doctor;
+import com.mycompany.csa_cw.model.FreeSlot;
+import com.mycompany.csa_cw.model.Person;
 import com.mycompany.csa_cw.dao.PatientDAO;
 import com.mycompany.csa_cw.dao.DoctorDAO;
 import com.mycompany.csa_cw.dao.AppointmentDAO;
+import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Path("/appointments")
+@Singleton
 public class AppointmentResource {
     
     private static final Logger logger = Logger.getLogger(AppointmentResource.class.getName());
-    private AppointmentDAO appointmentDAO = new AppointmentDAO();
+    // Longest period one free slot search may cover
+    private static final int MAX_SEARCH_DAYS = 31;
+    // Shared DAOs, injected once through the DAOFeature binder
+    @Inject
+    private AppointmentDAO appointmentDAO;
+    @Inject
+    private DoctorDAO doctorDAO;
+    @Inject
+    private PatientDAO patientDAO;
+    // Serialized JSON of the appointments, shared by all requests
+    private static final ResponseCache cache = new ResponseCache();
     
     /**
     * GET method to retrieve all appointments.
     * 
+    * @param limit the maximum number of appointments to return; enables paging
+    * @param cursor the cursor of the page to return, from a previous page's X-Next-Cursor header
+    * @param uriInfo the request URI, used to build the link to the next page and read for the expand and fields parameters
+    * @param stream whether to stream the whole collection as a JSON array
+    * @param headers the request headers; Accept: application/x-ndjson streams one entity per line, and application/cbor answers in CBOR
     * @return Response containing a list of appointments in JSON format
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllAppointments() throws InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR, Streaming.APPLICATION_NDJSON})
+    public Response getAllAppointments(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor, @Context UriInfo uriInfo,
+            @QueryParam("stream") Boolean stream, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
+            if (Streaming.isRequested(stream, headers)) {
+                // Write the entities straight from the DAO data instead of building a list
+                Collection<Appointment> appointments = appointmentDAO.getAppointmentsView();
+                if (appointments.isEmpty()) {
+                    throw new ResourceNotFoundException("Appointment data not found.");
+                }
+                return Streaming.toResponse(appointments, headers, Representation.of(uriInfo, headers));
+            }
+            if (Pagination.isRequested(limit, cursor)) {
+                // Return a single page instead of the whole collection
+                return Pagination.toResponse(appointmentDAO.getAppointmentsPage(cursor, Pagination.checkLimit(limit)), uriInfo);
+            }
             List<Appointment> appointments = appointmentDAO.getAllAppointments();
             if (appointments.isEmpty()) {
                 throw new ResourceNotFoundException("Appointment data not found.");
             }
-            return Response.ok(appointments).build();
+            // Send the JSON cached for this snapshot, which is only re-serialized after a change
+            return Response.ok(cache.collection(appointments, Representation.of(uriInfo, headers))).build();
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            // Bad limit, or a cursor that was not produced by this API
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error occurred while retrieving all appointments.", e);
             throw new InternalServerErrorException("Internal server error occurred.");
@@ -47,19 +99,24 @@ public class AppointmentResource {
     * GET method to retrieve an appointment by ID.
     * 
     * @param id the ID of the appointment to retrieve
+    * @param request the request, used to evaluate If-None-Match against the ETag
+    * @param uriInfo the request URI, read for the expand and fields parameters
+    * @param headers the request headers; Accept: application/cbor answers in CBOR
     * @return Response containing the appointment details in JSON format
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @GET
     @Path("/{id}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getAppointment(@PathParam("id") String id) throws InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response getAppointment(@PathParam("id") String id, @Context Request request, @Context UriInfo uriInfo, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
             Appointment appointment = appointmentDAO.getAppointmentById(id);
             if (appointment == null) {
                 throw new ResourceNotFoundException("Appointment with id " + id + " not found.");
             }
-            return Response.ok(appointment).build();
+            // Answer 304 if the client already has this version, otherwise send the JSON cached for it
+            Representation representation = Representation.of(uriInfo, headers);
+            return Conditional.ok(request, appointment.getVersion(), representation, () -> cache.entity(id, appointment.getVersion(), appointment, representation));
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error occurred while retrieving appointment with ID: " + id, e);
             throw new InternalServerErrorException("Internal server error occurred.");
@@ -75,7 +132,7 @@ public class AppointmentResource {
     */   
     @GET
     @Path("/date/{date}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getAppointmentsByDate(@PathParam("date") String date) throws InternalServerErrorException {
         try {
             List<Appointment> appointments = appointmentDAO.getAppointmentsByDate(date);
@@ -89,6 +146,132 @@ public class AppointmentResource {
         }
     }
 
+    /**
+    * GET method to retrieve appointments within a date/time range, in time order.
+    *
+    * Both bounds accept a date (2024-05-06) or a date and time (2024-05-06T09:00).
+    * The range starts at 'from' and ends before 'to'; a date-only 'to' includes that whole day.
+    *
+    * @param from the start of the range
+    * @param to the end of the range
+    * @return Response containing a list of appointments in the range in JSON format
+    * @throws InternalServerErrorException if an internal server error occurs
+    */
+    @GET
+    @Path("/range")
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response getAppointmentsInRange(@QueryParam("from") String from, @QueryParam("to") String to) throws InternalServerErrorException {
+        try {
+            LocalDateTime start = parseRangeBound(from, false);
+            LocalDateTime end = parseRangeBound(to, true);
+            List<Appointment> appointments = appointmentDAO.getAppointmentsBetween(start, end);
+            if (appointments.isEmpty()) {
+                throw new ResourceNotFoundException("Appointments between " + from + " and " + to + " not found.");
+            }
+            return Response.ok(appointments).build();
+        } catch (InvalidDataException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (ResourceNotFoundException e) {
+            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error occurred while retrieving appointments between " + from + " and " + to, e);
+            throw new InternalServerErrorException("Internal server error occurred.");
+        }
+    }
+
+    // Helper method to parse a range bound given as a date or a date and time
+    private LocalDateTime parseRangeBound(String value, boolean upperBound) throws InvalidDataException {
+        if (value == null) {
+            throw new InvalidDataException("Both 'from' and 'to' must be provided.");
+        }
+        try {
+            if (value.indexOf('T') < 0) {
+                LocalDate day = LocalDate.parse(value);
+                // A date-only upper bound covers the whole day
+                return upperBound ? day.plusDays(1).atStartOfDay() : day.atStartOfDay();
+            }
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidDataException("Invalid date or date-time: " + value);
+        }
+    }
+
+    /**
+    * GET method to find free appointment slots, earliest first.
+    *
+    * The doctors searched are those with the given IDs plus those with the given specialization,
+    * or every doctor if neither is given. Each slot is one appointment long, starts on a 5-minute
+    * boundary and lies within the opening hours of its day. The search covers at most 31 days.
+    *
+    * @param doctorIds the IDs of the doctors to search
+    * @param specialization the specialization of the doctors to search
+    * @param from the start of the search, a date or a date and time; now by default
+    * @param to the end of the search; a date-only value includes that whole day. 7 days after 'from' by default.
+    * @param opens the daily opening time (08:00 by default)
+    * @param closes the daily closing time (18:00 by default)
+    * @param limit the maximum number of slots to return; 1, the earliest free slot, by default
+    * @return Response containing a list of free slots in JSON format
+    * @throws InternalServerErrorException if an internal server error occurs
+    */
+    @GET
+    @Path("/availability")
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response getFreeSlots(@QueryParam("doctorId") List<String> doctorIds, @QueryParam("specialization") String specialization,
+            @QueryParam("from") String from, @QueryParam("to") String to, @QueryParam("opens") String opens,
+            @QueryParam("closes") String closes, @QueryParam("limit") Integer limit) throws InternalServerErrorException {
+        try {
+            LocalDateTime start = from == null ? LocalDateTime.now() : parseRangeBound(from, false);
+            LocalDateTime end = to == null ? start.plusDays(7) : parseRangeBound(to, true);
+            if (!start.isBefore(end) || end.isAfter(start.plusDays(MAX_SEARCH_DAYS))) {
+                throw new InvalidDataException("The search must end after it starts and cover at most " + MAX_SEARCH_DAYS + " days.");
+            }
+            LocalTime opensAt = parseTime(opens, LocalTime.of(8, 0));
+            LocalTime closesAt = parseTime(closes, LocalTime.of(18, 0));
+            if (!opensAt.isBefore(closesAt)) {
+                throw new InvalidDataException("The opening time must be before the closing time.");
+            }
+            int max = limit == null ? 1 : Pagination.checkLimit(limit);
+
+            Set<String> searched = new LinkedHashSet<>();
+            if (!doctorIds.isEmpty()) {
+                Map<String, Doctor> doctors = doctorDAO.getDoctorsById(doctorIds);
+                for (String doctorId : doctorIds) {
+                    if (!doctors.containsKey(doctorId)) {
+                        throw new ResourceNotFoundException("Doctor with id " + doctorId + " not found.");
+                    }
+                }
+                searched.addAll(doctorIds);
+            }
+            if (specialization != null || doctorIds.isEmpty()) {
+                List<Doctor> doctors = specialization == null ? doctorDAO.getAllDoctors() : doctorDAO.getDoctorsBySpecialization(specialization);
+                for (Doctor doctor : doctors) {
+                    searched.add(doctor.getId());
+                }
+            }
+            List<FreeSlot> slots = appointmentDAO.getFreeSlots(searched, start, end, opensAt, closesAt, max);
+            return Response.ok(slots).build();
+        } catch (InvalidDataException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (ResourceNotFoundException e) {
+            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error occurred while searching for free appointment slots", e);
+            throw new InternalServerErrorException("Internal server error occurred.");
+        }
+    }
+
+    // Helper method to parse a time of day (HH:mm), falling back to a default when it is not given
+    private LocalTime parseTime(String value, LocalTime defaultTime) throws InvalidDataException {
+        if (value == null) {
+            return defaultTime;
+        }
+        try {
+            return LocalTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new InvalidDataException("Invalid time: " + value);
+        }
+    }
+
     /**
     * GET method to retrieve appointments by patient ID.
     * 
@@ -98,7 +281,7 @@ public class AppointmentResource {
     */   
     @GET
     @Path("/patient/{patientId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getAppointmentsByPatientId(@PathParam("patientId") String patientId) throws InternalServerErrorException {
         try {
             List<Appointment> appointments = appointmentDAO.getAppointmentsByPatientId(patientId);
@@ -121,7 +304,7 @@ public class AppointmentResource {
     */   
     @GET
     @Path("/doctor/{doctorId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getAppointmentsByDoctorId(@PathParam("doctorId") String doctorId) throws InternalServerErrorException {
         try {
             List<Appointment> appointments = appointmentDAO.getAppointmentsByDoctorId(doctorId);
@@ -141,11 +324,12 @@ public class AppointmentResource {
     * @param appointment the appointment object to schedule
     * @param doctorId the ID of the doctor associated with the appointment
     * @param patientId the ID of the patient associated with the appointment
-    * @return Response indicating success or failure of the operation
+    * @return Response indicating success or failure of the operation; 400 if the data is missing or the date or time
+    *         cannot be parsed, 409 if the doctor is already booked at that time
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @POST
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response scheduleAppointment(Appointment appointment, @QueryParam("doctorId") String doctorId, @QueryParam("patientId") String patientId) throws InternalServerErrorException {
         try {
             // Check if appointment and IDs are provided
@@ -154,14 +338,12 @@ public class AppointmentResource {
             }
 
             // Retrieve doctor using doctorId
-            DoctorDAO doctorDAO = new DoctorDAO();
             Doctor doctor = doctorDAO.getDoctorById(doctorId);
             if (doctor == null) {
                 throw new ResourceNotFoundException("Doctor with id: " + doctorId + " not found.");
             }
 
             // Retrieve patient using patientId
-            PatientDAO patientDAO = new PatientDAO();
             Patient patient = patientDAO.getPatientById(patientId);
             if (patient == null) {
                 throw new ResourceNotFoundException("Patient with id: " + patientId + " not found.");
@@ -177,12 +359,93 @@ public class AppointmentResource {
             return Response.status(Response.Status.CREATED)
                     .entity("Appointment successfully scheduled.")
                     .build();
+        } catch (ScheduleConflictException e) {
+            logger.info(e.getMessage());
+            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            // Missing data, or a date or time that cannot be parsed
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error occurred while scheduling appointment.", e);
             throw new InternalServerErrorException("Internal server error occurred.");
         }
     }
 
+    /**
+    * POST method to schedule many appointments with one request.
+    * 
+    * The appointments that can be scheduled are stored as one write: a single database transaction, or in memory a
+    * single journal record, so a crash keeps all of them or none. In memory, other requests may see them appear one
+    * by one while the batch is being applied.
+    * 
+    * @param body the appointments, as a JSON array, a CBOR array or NDJSON (one appointment per line); each names its
+    *             doctor and patient as "doctor": {"id": ...} and "patient": {"id": ...}
+    * @param doctorId the ID of the doctor of the appointments that do not name one
+    * @param patientId the ID of the patient of the appointments that do not name one
+    * @param headers the request headers; the Content-Type says which of the three the body is
+    * @return Response listing, for each appointment in order, its new ID or the reason it was not scheduled
+    * @throws InternalServerErrorException if an internal server error occurs
+    */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR, Streaming.APPLICATION_NDJSON})
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response scheduleAppointments(InputStream body, @QueryParam("doctorId") String doctorId, @QueryParam("patientId") String patientId, @Context HttpHeaders headers) throws InternalServerErrorException {
+        try {
+            List<Appointment> appointments = Batch.read(body, Appointment.class, headers.getMediaType());
+
+            // Resolve every doctor and patient the batch refers to with one lookup each
+            Set<String> doctorIds = new HashSet<>();
+            Set<String> patientIds = new HashSet<>();
+            for (Appointment appointment : appointments) {
+                if (appointment != null) {
+                    addIfPresent(doctorIds, referencedId(appointment.getDoctor(), doctorId));
+                    addIfPresent(patientIds, referencedId(appointment.getPatient(), patientId));
+                }
+            }
+            Map<String, Doctor> doctors = doctorDAO.getDoctorsById(doctorIds);
+            Map<String, Patient> patients = patientDAO.getPatientsById(patientIds);
+
+            Batch.Results<Appointment> results = new Batch.Results<>();
+            for (Appointment appointment : appointments) {
+                String appointmentDoctorId = appointment == null ? null : referencedId(appointment.getDoctor(), doctorId);
+                String appointmentPatientId = appointment == null ? null : referencedId(appointment.getPatient(), patientId);
+                if (appointment == null || appointmentDoctorId == null || appointmentPatientId == null || !appointmentDAO.hasValidSchedule(appointment)) {
+                    results.reject(Response.Status.BAD_REQUEST, "Appointment data invalid.");
+                } else if (!doctors.containsKey(appointmentDoctorId)) {
+                    results.reject(Response.Status.NOT_FOUND, "Doctor with id: " + appointmentDoctorId + " not found.");
+                } else if (!patients.containsKey(appointmentPatientId)) {
+                    results.reject(Response.Status.NOT_FOUND, "Patient with id: " + appointmentPatientId + " not found.");
+                } else {
+                    appointment.setDoctor(doctors.get(appointmentDoctorId));
+                    appointment.setPatient(patients.get(appointmentPatientId));
+                    results.accept(appointment);
+                }
+            }
+
+            // Store all the valid appointments together, except those that clash with a booking of their doctor
+            appointmentDAO.addAppointments(results.accepted()).forEach((appointment, reason) -> results.refuse(appointment, Response.Status.CONFLICT, reason));
+            logger.log(Level.INFO, "{0} appointment(s) scheduled from a batch.", results.accepted().size());
+            return results.toResponse(Appointment::getId);
+        } catch (InvalidDataException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error occurred while scheduling a batch of appointments.", e);
+            throw new InternalServerErrorException("Internal server error occurred.");
+        }
+    }
+
+    // Helper method to read the ID of the doctor or patient a batch item refers to, falling back to the query parameter
+    private static String referencedId(Person reference, String fallback) {
+        return reference != null && reference.getId() != null ? reference.getId() : fallback;
+    }
+
+    private static void addIfPresent(Set<String> ids, String id) {
+        if (id != null) {
+            ids.add(id);
+        }
+    }
+
     /**
     * PUT method to update an existing appointment.
     * 
@@ -190,15 +453,18 @@ public class AppointmentResource {
     * @param appointment the updated appointment object
     * @param doctorId the ID of the doctor associated with the appointment
     * @param patientId the ID of the patient associated with the appointment
-    * @return Response indicating success or failure of the operation
+    * @param request the request, used to evaluate If-Match against the ETag
+    * @param headers the request headers; with If-Match the update is only applied to the version named
+    * @return Response indicating success or failure of the operation; 400 if the data is missing or the date or time
+    *         cannot be parsed, 409 if the doctor is already booked at the new time
     * @throws InternalServerErrorException if an internal server error occurs
     * @throws ResourceNotFoundException if the appointment, doctor, or patient is not found
     * @throws InvalidDataException if the appointment data is invalid
     */   
     @PUT
     @Path("/{id}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response updateAppointment(@PathParam("id") String id, Appointment appointment, @QueryParam("doctorId") String doctorId, @QueryParam("patientId") String patientId) throws InternalServerErrorException, ResourceNotFoundException, InvalidDataException {
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response updateAppointment(@PathParam("id") String id, Appointment appointment, @QueryParam("doctorId") String doctorId, @QueryParam("patientId") String patientId, @Context Request request, @Context HttpHeaders headers) throws InternalServerErrorException, ResourceNotFoundException, InvalidDataException {
         try {
             // Check if appointment and IDs are provided
             if (appointment.getDate() == null || appointment.getTime() == null || doctorId == null || patientId == null) {
@@ -206,14 +472,12 @@ public class AppointmentResource {
             }
 
             // Retrieve doctor using doctorId
-            DoctorDAO doctorDAO = new DoctorDAO();
             Doctor doctor = doctorDAO.getDoctorById(doctorId);
             if (doctor == null) {
                 throw new ResourceNotFoundException("Doctor with id: " + doctorId + " not found.");
             }
 
             // Retrieve patient using patientId
-            PatientDAO patientDAO = new PatientDAO();
             Patient patient = patientDAO.getPatientById(patientId);
             if (patient == null) {
                 throw new ResourceNotFoundException("Patient with id: " + patientId + " not found.");
@@ -224,15 +488,30 @@ public class AppointmentResource {
             appointment.setDoctor(doctor);
             appointment.setPatient(patient);
 
-            // Update appointment
-            appointmentDAO.updateAppointment(id, appointment);
+            // Honour If-Match, refusing the update if the appointment changed since the client read it
+            Appointment current = appointmentDAO.getAppointmentById(id);
+            Response failed = Conditional.checkUpdate(request, headers, current == null ? null : current.getVersion());
+            if (failed != null) {
+                return failed;
+            }
+            if (Conditional.isRequested(headers)) {
+                // Apply it only if no other update got in between
+                if (!appointmentDAO.updateAppointment(id, appointment, current.getVersion())) {
+                    return Conditional.preconditionFailed();
+                }
+            } else {
+                appointmentDAO.updateAppointment(id, appointment);
+            }
             logger.info("Appointment successfully updated.");
             return Response.status(Response.Status.OK)
                     .entity("Appointment successfully updated.")
                     .build();
-        } catch (IllegalArgumentException e) {
-            logger.log(Level.SEVERE, "Error occurred while updating appointment with ID: " + id, e);
-            throw new InternalServerErrorException("Internal server error occurred.");
+        } catch (ScheduleConflictException e) {
+            logger.info(e.getMessage());
+            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).build();
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            // Missing data, or a date or time that cannot be parsed
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         }
     }
 
@@ -248,6 +527,7 @@ public class AppointmentResource {
     public Response deleteAppointment(@PathParam("id") String id) throws InternalServerErrorException {
         try {
             appointmentDAO.deleteAppointment(id);
+            cache.evict(id);
             logger.info("Appointment successfully deleted.");
             return Response.status(Response.Status.NO_CONTENT)
                     .entity("Appointment successfully deleted.")
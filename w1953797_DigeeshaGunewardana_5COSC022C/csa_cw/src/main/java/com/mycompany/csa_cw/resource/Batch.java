@@ -0,0 +1,143 @@
+package com.mycompany.csa_cw.resource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.csa_cw.exception.InvalidDataException;
+import com.mycompany.csa_cw.util.Json;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Shared handling of the batch endpoints, which create many entities with one request.
+ *
+ * The body is a JSON array, a CBOR array or NDJSON (one JSON object per line),
+ * as its Content-Type says. Each
+ * item is read and validated on its own: the valid items are stored together
+ * and the rest are skipped. The response lists the outcome of every item in
+ * request order, with the new ID of each created item and the reason each
+ * skipped item was refused.
+ */
+final class Batch {
+    // Largest number of items accepted in one request; bigger imports are split by the client
+    static final int MAX_ITEMS = 10000;
+
+    private static final ObjectMapper mapper = Json.mapper();
+    private static final ObjectMapper cborMapper = Json.cborMapper();
+
+    private Batch() {
+    }
+
+    // Method to read the items of a batch body of the given media type, given as a JSON array, a CBOR array or NDJSON.
+    // An item that is not a valid entity is returned as null, so it is refused without failing the batch.
+    static <T> List<T> read(InputStream body, Class<T> type, MediaType mediaType) throws InvalidDataException {
+        List<T> items = new ArrayList<>();
+        ObjectMapper reader = mediaType != null && mediaType.isCompatible(Representation.APPLICATION_CBOR_TYPE) ? cborMapper : mapper;
+        // A top-level array is unwrapped, so every form reads as a sequence of values
+        try (MappingIterator<JsonNode> values = reader.readerFor(JsonNode.class).readValues(body)) {
+            while (values.hasNextValue()) {
+                if (items.size() == MAX_ITEMS) {
+                    throw new InvalidDataException("A batch can hold at most " + MAX_ITEMS + " items.");
+                }
+                items.add(toEntity(values.nextValue(), type));
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidDataException("Invalid batch data: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new InvalidDataException("Invalid batch data.");
+        }
+        if (items.isEmpty()) {
+            throw new InvalidDataException("The batch is empty.");
+        }
+        return items;
+    }
+
+    private static <T> T toEntity(JsonNode item, Class<T> type) {
+        if (!item.isObject()) {
+            return null;
+        }
+        try {
+            return mapper.treeToValue(item, type);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The outcome of each item of a batch.
+     *
+     * @param <T> the type of the items
+     */
+    static final class Results<T> {
+        private final List<Map<String, Object>> outcomes = new ArrayList<>();
+        private final List<T> accepted = new ArrayList<>();
+        // Position in outcomes of each accepted item
+        private final List<Integer> acceptedAt = new ArrayList<>();
+        // Accepted items that the DAO then refused to store, with the status and reason
+        private final Map<T, Map.Entry<Response.Status, String>> refused = new IdentityHashMap<>();
+        private int rejected;
+
+        // Method to record that an item passed validation and is to be stored
+        void accept(T item) {
+            acceptedAt.add(outcomes.size());
+            accepted.add(item);
+            outcomes.add(null); // Filled in once the item has its ID
+        }
+
+        // Method to record that an item was refused, with the status a single request would have got
+        void reject(Response.Status status, String reason) {
+            Map<String, Object> outcome = outcome(outcomes.size(), status);
+            outcome.put("error", reason);
+            outcomes.add(outcome);
+            rejected++;
+        }
+
+        // Method to record that an accepted item was refused by the DAO when the batch was stored
+        void refuse(T item, Response.Status status, String reason) {
+            refused.put(item, new AbstractMap.SimpleImmutableEntry<>(status, reason));
+        }
+
+        // Method to get the items to store, in request order
+        List<T> accepted() {
+            return accepted;
+        }
+
+        // Method to build the response once the accepted items are stored and have their IDs
+        Response toResponse(Function<T, String> idOf) {
+            for (int i = 0; i < accepted.size(); i++) {
+                Map.Entry<Response.Status, String> refusal = refused.get(accepted.get(i));
+                Map<String, Object> outcome;
+                if (refusal == null) {
+                    outcome = outcome(acceptedAt.get(i), Response.Status.CREATED);
+                    outcome.put("id", idOf.apply(accepted.get(i)));
+                } else {
+                    outcome = outcome(acceptedAt.get(i), refusal.getKey());
+                    outcome.put("error", refusal.getValue());
+                }
+                outcomes.set(acceptedAt.get(i), outcome);
+            }
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("created", accepted.size() - refused.size());
+            body.put("failed", rejected + refused.size());
+            body.put("items", outcomes);
+            return Response.ok(body).build();
+        }
+
+        private static Map<String, Object> outcome(int index, Response.Status status) {
+            Map<String, Object> outcome = new LinkedHashMap<>();
+            outcome.put("index", index);
+            outcome.put("status", status.getStatusCode());
+            return outcome;
+        }
+    }
+}
@@ -9,36 +9,76 @@ import com.mycompany.csa_cw.model.Doctor;
 import com.mycompany.csa_cw.dao.BillingDAO;
 import com.mycompany.csa_cw.dao.PatientDAO;
 import com.mycompany.csa_cw.dao.DoctorDAO;
+import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Path("/billings")
+@Singleton
 public class BillingResource {
     private static final Logger logger = Logger.getLogger(BillingResource.class.getName());
-    private BillingDAO billingDAO = new BillingDAO();
+    // Shared DAOs, injected once through the DAOFeature binder
+    @Inject
+    private BillingDAO billingDAO;
+    @Inject
+    private PatientDAO patientDAO;
+    @Inject
+    private DoctorDAO doctorDAO;
+    // Serialized JSON of the billings, shared by all requests
+    private static final ResponseCache cache = new ResponseCache();
     
     /**
     * Retrieve all billings.
     * 
+    * @param limit the maximum number of billings to return; enables paging
+    * @param cursor the cursor of the page to return, from a previous page's X-Next-Cursor header
+    * @param uriInfo the request URI, used to build the link to the next page and read for the expand and fields parameters
+    * @param stream whether to stream the whole collection as a JSON array
+    * @param headers the request headers; Accept: application/x-ndjson streams one entity per line, and application/cbor answers in CBOR
     * @return Response containing a list of billings
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllBillings() throws InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR, Streaming.APPLICATION_NDJSON})
+    public Response getAllBillings(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor, @Context UriInfo uriInfo,
+            @QueryParam("stream") Boolean stream, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
+            if (Streaming.isRequested(stream, headers)) {
+                // Write the entities straight from the DAO data instead of building a list
+                Collection<Billing> billings = billingDAO.getBillingsView();
+                if (billings.isEmpty()) {
+                    throw new ResourceNotFoundException("Billing data not found.");
+                }
+                return Streaming.toResponse(billings, headers, Representation.of(uriInfo, headers));
+            }
+            if (Pagination.isRequested(limit, cursor)) {
+                // Return a single page instead of the whole collection
+                return Pagination.toResponse(billingDAO.getBillingsPage(cursor, Pagination.checkLimit(limit)), uriInfo);
+            }
             List<Billing> billings = billingDAO.getAllBillings();
             if (billings.isEmpty()) {
                 logger.info("Billing data not found.");
                 throw new ResourceNotFoundException("Billing data not found.");
             }
-            return Response.ok(billings).build();
+            // Send the JSON cached for this snapshot, which is only re-serialized after a change
+            return Response.ok(cache.collection(billings, Representation.of(uriInfo, headers))).build();
         } catch (ResourceNotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            // Bad limit, or a cursor that was not produced by this API
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error occurred while fetching all billings", e);
             throw new InternalServerErrorException("Internal Server Error occurred.");
@@ -49,20 +89,25 @@ public class BillingResource {
     * Retrieve a billing by its ID.
     * 
     * @param id the ID of the billing to retrieve
+    * @param request the request, used to evaluate If-None-Match against the ETag
+    * @param uriInfo the request URI, read for the expand and fields parameters
+    * @param headers the request headers; Accept: application/cbor answers in CBOR
     * @return Response containing the billing
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @GET
     @Path("/{id}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getBilling(@PathParam("id") String id) throws InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response getBilling(@PathParam("id") String id, @Context Request request, @Context UriInfo uriInfo, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
             Billing billing = billingDAO.getBillingById(id);
             if (billing == null) {
                 logger.log(Level.INFO, "Billing with id {0} not found.", id);
                 throw new ResourceNotFoundException("Billing with id " + id + " not found.");
             }
-            return Response.ok(billing).build();
+            // Answer 304 if the client already has this version, otherwise send the JSON cached for it
+            Representation representation = Representation.of(uriInfo, headers);
+            return Conditional.ok(request, billing.getVersion(), representation, () -> cache.entity(id, billing.getVersion(), billing, representation));
         } catch (ResourceNotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
         } catch (Exception e) {
@@ -80,7 +125,7 @@ public class BillingResource {
     */   
     @GET
     @Path("/patient/{patientId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getBillingsByPatientId(@PathParam("patientId") String patientId) throws InternalServerErrorException {
         try {
             List<Billing> billings = billingDAO.getBillingsByPatientId(patientId);
@@ -97,16 +142,42 @@ public class BillingResource {
         }
     }
 
+    /**
+    * Retrieve all billings issued by a specific doctor.
+    *
+    * @param doctorId the ID of the doctor
+    * @return Response containing a list of billings for the doctor
+    * @throws InternalServerErrorException if an internal server error occurs
+    */
+    @GET
+    @Path("/doctor/{doctorId}")
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response getBillingsByDoctorId(@PathParam("doctorId") String doctorId) throws InternalServerErrorException {
+        try {
+            List<Billing> billings = billingDAO.getBillingsByDoctorId(doctorId);
+            if (billings.isEmpty()) {
+                logger.log(Level.INFO, "Billings for doctor with id {0} not found.", doctorId);
+                throw new ResourceNotFoundException("Billings for doctor with id " + doctorId + " not found.");
+            }
+            return Response.ok(billings).build();
+        } catch (ResourceNotFoundException e) {
+            return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error occurred while fetching billings for doctor with id " + doctorId, e);
+            throw new InternalServerErrorException("Internal Server Error occurred.");
+        }
+    }
+
     /**
     * Retrieve the total bill for a specific patient.
     * 
     * @param patientId the ID of the patient
-    * @return Response containing the total bill for the patient
+    * @return Response containing the total bill for the patient, as {"totalBill": ...}
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @GET
     @Path("/total/{patientId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getTotalBill(@PathParam("patientId") String patientId) throws InternalServerErrorException {
         try {
             double totalBill = billingDAO.getTotalBillByPatientId(patientId);
@@ -114,7 +185,8 @@ public class BillingResource {
                 logger.log(Level.INFO, "Billings for patient with id {0} not found.", patientId);
                 throw new ResourceNotFoundException("Billings for patient with id " + patientId + " not found.");
             }
-            return Response.ok("{\"totalBill\": " + totalBill + "}").build();
+            // Written as JSON or CBOR, as the client asks
+            return Response.ok(Collections.singletonMap("totalBill", totalBill)).build();
         } catch (ResourceNotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
         } catch (Exception e) {
@@ -123,6 +195,28 @@ public class BillingResource {
         }
     }
 
+    /**
+    * Audit the running patient totals against the stored billings and rebuild them.
+    *
+    * @return Response containing the drift found per patient (empty when the totals were correct)
+    * @throws InternalServerErrorException if an internal server error occurs
+    */
+    @POST
+    @Path("/total/rebuild")
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response rebuildTotals() throws InternalServerErrorException {
+        try {
+            Map<String, Double> drift = billingDAO.rebuildTotals();
+            if (!drift.isEmpty()) {
+                logger.log(Level.WARNING, "Billing totals drifted for {0} patient(s) and were rebuilt.", drift.size());
+            }
+            return Response.ok(drift).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error occurred while rebuilding billing totals", e);
+            throw new InternalServerErrorException("Internal Server Error occurred.");
+        }
+    }
+
     /**
     * Add a new billing.
     * 
@@ -133,7 +227,7 @@ public class BillingResource {
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @POST
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response addBilling(@QueryParam("patientId") String patientId, @QueryParam("doctorId") String doctorId, Billing billing) throws InternalServerErrorException {
         try {
             if (billing == null || billing.getInvoiceDetails() == null || billing.getPaymentDetails() == null || billing.getOutstandingBalance() < 0 || patientId == null || doctorId == null) {
@@ -141,14 +235,12 @@ public class BillingResource {
                 throw new InvalidDataException("Invalid billing data.");
             }
 
-            PatientDAO patientDAO = new PatientDAO();
             Patient patient = patientDAO.getPatientById(patientId);
             if (patient == null) {
                 logger.log(Level.INFO, "Patient with id {0} not found.", patientId);
                 throw new ResourceNotFoundException("Patient with id " + patientId + " not found.");
             }
 
-            DoctorDAO doctorDAO = new DoctorDAO();
             Doctor doctor = doctorDAO.getDoctorById(doctorId);
             if (doctor == null) {
                 logger.log(Level.INFO, "Doctor with id {0} not found.", doctorId);
@@ -176,27 +268,27 @@ public class BillingResource {
     * @param patientId the ID of the patient associated with the billing
     * @param doctorId the ID of the doctor associated with the billing
     * @param billing the updated billing object
+    * @param request the request, used to evaluate If-Match against the ETag
+    * @param headers the request headers; with If-Match the update is only applied to the version named
     * @return Response indicating success or failure of the operation
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @PUT
     @Path("/{id}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response updateBilling(@PathParam("id") String id, @QueryParam("patientId") String patientId, @QueryParam("doctorId") String doctorId, Billing billing) throws InternalServerErrorException {
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response updateBilling(@PathParam("id") String id, @QueryParam("patientId") String patientId, @QueryParam("doctorId") String doctorId, Billing billing, @Context Request request, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
             if (billing == null || billing.getInvoiceDetails() == null || billing.getPaymentDetails() == null || billing.getOutstandingBalance() < 0 || patientId == null || doctorId == null) {
                 logger.info("Invalid billing data.");
                 throw new InvalidDataException("Invalid billing data.");
             }
 
-            PatientDAO patientDAO = new PatientDAO();
             Patient patient = patientDAO.getPatientById(patientId);
             if (patient == null) {
                 logger.log(Level.INFO, "Patient with id {0} not found.", patientId);
                 throw new ResourceNotFoundException("Patient with id " + patientId + " not found.");
             }
 
-            DoctorDAO doctorDAO = new DoctorDAO();
             Doctor doctor = doctorDAO.getDoctorById(doctorId);
             if (doctor == null) {
                 logger.log(Level.INFO, "Doctor with id {0} not found.", doctorId);
@@ -206,7 +298,20 @@ public class BillingResource {
             billing.setId(id);
             billing.setPatient(patient);
             billing.setDoctor(doctor);
-            billingDAO.updateBilling(id, billing);
+            // Honour If-Match, refusing the update if the billing changed since the client read it
+            Billing current = billingDAO.getBillingById(id);
+            Response failed = Conditional.checkUpdate(request, headers, current == null ? null : current.getVersion());
+            if (failed != null) {
+                return failed;
+            }
+            if (Conditional.isRequested(headers)) {
+                // Apply it only if no other update got in between
+                if (!billingDAO.updateBilling(id, billing, current.getVersion())) {
+                    return Conditional.preconditionFailed();
+                }
+            } else {
+                billingDAO.updateBilling(id, billing);
+            }
             return Response.status(Response.Status.OK)
                     .entity("Billing successfully updated.")
                     .build();
@@ -231,6 +336,7 @@ public class BillingResource {
     public Response deleteBilling(@PathParam("id") String id) throws InternalServerErrorException, ResourceNotFoundException {
         try {
             billingDAO.deleteBilling(id);
+            cache.evict(id);
             return Response.status(Response.Status.NO_CONTENT)
                     .entity("Billing deleted successfully")
                     .build();
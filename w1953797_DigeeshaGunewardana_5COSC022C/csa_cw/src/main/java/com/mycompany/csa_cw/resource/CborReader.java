@@ -0,0 +1,42 @@
+package com.mycompany.csa_cw.resource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.csa_cw.util.Json;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import javax.ws.rs.BadRequestException;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Reads request bodies sent as CBOR (Content-Type: application/cbor) into the
+ * entities the resource methods take, with the application's shared CBOR
+ * mapper. Bodies the resources read themselves, such as the batch endpoints'
+ * streams, are left to them.
+ */
+@Provider
+@Consumes(Representation.APPLICATION_CBOR)
+public class CborReader implements MessageBodyReader<Object> {
+    private static final ObjectMapper mapper = Json.cborMapper();
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return type != InputStream.class && type != String.class && type != byte[].class;
+    }
+
+    @Override
+    public Object readFrom(Class<Object> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+            MultivaluedMap<String, String> httpHeaders, InputStream entityStream) throws IOException {
+        try {
+            return mapper.readValue(entityStream, mapper.constructType(genericType));
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException("Invalid CBOR data: " + e.getOriginalMessage());
+        }
+    }
+}
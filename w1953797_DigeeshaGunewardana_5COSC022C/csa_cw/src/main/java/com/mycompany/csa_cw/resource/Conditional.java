@@ -0,0 +1,83 @@
+package com.mycompany.csa_cw.resource;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.util.function.Supplier;
+
+/**
+ * Shared handling of entity versions as HTTP validators.
+ *
+ * A GET of a single entity sends an ETag made of the entity's version and the
+ * variant of the body (JSON or CBOR, and the expand and fields asked for), with
+ * Vary: Accept, so a cache never serves one format or shape for another. A GET
+ * whose If-None-Match names that tag is answered with 304 Not Modified without
+ * serializing the entity. A PUT with If-Match is only applied while the stored
+ * version is still the one named, whichever variant the client read it as;
+ * otherwise it is refused with 412 Precondition Failed, so concurrent editors
+ * cannot overwrite each other.
+ */
+final class Conditional {
+
+    private Conditional() {
+    }
+
+    // Method to build the ETag of an entity version sent in the given representation
+    static EntityTag tagOf(long version, Representation representation) {
+        return new EntityTag(version + "-" + representation.variant());
+    }
+
+    // Method to answer a GET of an entity: 304 (or 412 for a failed If-Match) when the preconditions say so,
+    // otherwise the body with the ETag of the entity's version in the representation asked for.
+    // The body is only produced when it is sent.
+    static Response ok(Request request, long version, Representation representation, Supplier<?> body) {
+        EntityTag tag = tagOf(version, representation);
+        Response.ResponseBuilder precondition = request.evaluatePreconditions(tag);
+        if (precondition != null) {
+            return precondition.header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build(); // The entity is never serialized
+        }
+        return Response.ok(body.get()).tag(tag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).build();
+    }
+
+    // Method to check whether an update only applies to a given version
+    static boolean isRequested(HttpHeaders headers) {
+        return headers.getHeaderString(HttpHeaders.IF_MATCH) != null;
+    }
+
+    // Method to evaluate the preconditions of an update against the stored version (null if there is no entity).
+    // Returns the 412 response to send if they fail, otherwise null.
+    static Response checkUpdate(Request request, HttpHeaders headers, Long version) {
+        Response.ResponseBuilder failed = version == null ? request.evaluatePreconditions() : request.evaluatePreconditions(currentTag(headers, version));
+        return failed == null ? null : failed.build();
+    }
+
+    // Helper method to pick the tag the stored version is compared as: the first one in If-Match naming that
+    // version in any variant, since every variant of a version is the same entity, otherwise the JSON tag
+    private static EntityTag currentTag(HttpHeaders headers, long version) {
+        String ifMatch = headers.getHeaderString(HttpHeaders.IF_MATCH);
+        if (ifMatch != null) {
+            String prefix = version + "-";
+            for (String value : ifMatch.split(",")) {
+                value = value.trim();
+                if (value.isEmpty() || value.equals("*")) {
+                    continue;
+                }
+                try {
+                    EntityTag tag = EntityTag.valueOf(value);
+                    if (!tag.isWeak() && tag.getValue().startsWith(prefix)) {
+                        return tag;
+                    }
+                } catch (IllegalArgumentException e) {
+                    // Not a tag this application sent, so it cannot match
+                }
+            }
+        }
+        return tagOf(version, Representation.defaultJson());
+    }
+
+    // Method to build the response for an If-Match update that lost the race against another update
+    static Response preconditionFailed() {
+        return Response.status(Response.Status.PRECONDITION_FAILED).entity("The entity has changed since it was read.").build();
+    }
+}
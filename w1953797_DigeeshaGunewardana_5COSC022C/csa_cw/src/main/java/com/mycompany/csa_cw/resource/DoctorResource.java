@@ -5,34 +5,70 @@ import com.mycompany.csa_cw.exception.InvalidDataException;
 import com.mycompany.csa_cw.exception.InternalServerErrorException;
 import com.mycompany.csa_cw.model.Doctor;
 import com.mycompany.csa_cw.dao.DoctorDAO;
+import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.Collection;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Path("/doctors")
+@Singleton
 public class DoctorResource {
     
     private static final Logger logger = Logger.getLogger(DoctorResource.class.getName());
-    private DoctorDAO doctorDAO = new DoctorDAO();
+    // Number of name matches returned when no limit is given
+    private static final int NAME_SEARCH_LIMIT = 10;
+    // Shared DAOs, injected once through the DAOFeature binder
+    @Inject
+    private DoctorDAO doctorDAO;
+    // Serialized JSON of the doctors, shared by all requests
+    private static final ResponseCache cache = new ResponseCache();
     
     /**
     * GET method to retrieve all doctors.
     * 
+    * @param limit the maximum number of doctors to return; enables paging
+    * @param cursor the cursor of the page to return, from a previous page's X-Next-Cursor header
+    * @param uriInfo the request URI, used to build the link to the next page and read for the expand and fields parameters
+    * @param stream whether to stream the whole collection as a JSON array
+    * @param headers the request headers; Accept: application/x-ndjson streams one entity per line, and application/cbor answers in CBOR
     * @return Response containing a list of doctors in JSON format
     * @throws InternalServerErrorException if an internal server error occurs
     */
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllDoctors() throws InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR, Streaming.APPLICATION_NDJSON})
+    public Response getAllDoctors(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor, @Context UriInfo uriInfo,
+            @QueryParam("stream") Boolean stream, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
+            if (Streaming.isRequested(stream, headers)) {
+                // Write the entities straight from the DAO data instead of building a list
+                Collection<Doctor> doctors = doctorDAO.getDoctorsView();
+                if (doctors.isEmpty()) {
+                    throw new ResourceNotFoundException("Doctor data not found.");
+                }
+                return Streaming.toResponse(doctors, headers, Representation.of(uriInfo, headers));
+            }
+            if (Pagination.isRequested(limit, cursor)) {
+                // Return a single page instead of the whole collection
+                return Pagination.toResponse(doctorDAO.getDoctorsPage(cursor, Pagination.checkLimit(limit)), uriInfo);
+            }
             List<Doctor> doctors = doctorDAO.getAllDoctors();
             if (doctors.isEmpty()) {
                 throw new ResourceNotFoundException("Doctor data not found.");
             }
-            return Response.ok(doctors).build();
+            // Send the JSON cached for this snapshot, which is only re-serialized after a change
+            return Response.ok(cache.collection(doctors, Representation.of(uriInfo, headers))).build();
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            // Bad limit, or a cursor that was not produced by this API
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error occurred while retrieving all doctors.", e);
             throw new InternalServerErrorException("Internal server error occurred.");
@@ -43,25 +79,77 @@ public class DoctorResource {
     * GET method to retrieve a doctor by ID.
     * 
     * @param id the ID of the doctor to retrieve
+    * @param request the request, used to evaluate If-None-Match against the ETag
+    * @param uriInfo the request URI, read for the expand and fields parameters
+    * @param headers the request headers; Accept: application/cbor answers in CBOR
     * @return Response containing the doctor details in JSON format
     * @throws InternalServerErrorException if an internal server error occurs
     */
     @GET
     @Path("/{id}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getDoctor(@PathParam("id") String id) throws InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response getDoctor(@PathParam("id") String id, @Context Request request, @Context UriInfo uriInfo, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
             Doctor doctor = doctorDAO.getDoctorById(id);
             if (doctor == null) {
                 throw new ResourceNotFoundException("Doctor with id " + id + " not found.");
             }
-            return Response.ok(doctor).build();
+            // Answer 304 if the client already has this version, otherwise send the JSON cached for it
+            Representation representation = Representation.of(uriInfo, headers);
+            return Conditional.ok(request, doctor.getVersion(), representation, () -> cache.entity(id, doctor.getVersion(), doctor, representation));
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error occurred while retrieving doctor with ID: " + id, e);
             throw new InternalServerErrorException("Internal server error occurred.");
         }
     }
     
+    /**
+    * GET method to search doctors by part of their name, as typed into a search box.
+    *
+    * Each word given must match the start of a word of the name, allowing one typo in words of
+    * 3 to 5 letters and two in longer words. The closest matches come first.
+    *
+    * @param name the partly typed name
+    * @param limit the maximum number of doctors to return, 10 by default
+    * @return Response containing a list of the matching doctors in JSON format
+    * @throws InternalServerErrorException if an internal server error occurs
+    */
+    @GET
+    @Path("/search")
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response searchDoctors(@QueryParam("name") String name, @QueryParam("limit") Integer limit) throws InternalServerErrorException {
+        try {
+            if (name == null || name.trim().isEmpty()) {
+                throw new InvalidDataException("A name to search for must be provided.");
+            }
+            List<Doctor> doctors = doctorDAO.searchDoctorsByName(name, limit == null ? NAME_SEARCH_LIMIT : Pagination.checkLimit(limit));
+            return Response.ok(doctors).build();
+        } catch (InvalidDataException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error occurred while searching doctors by name: " + name, e);
+            throw new InternalServerErrorException("Internal server error occurred.");
+        }
+    }
+
+    /**
+    * GET method to count the doctors with each specialization, most common first.
+    * 
+    * @return Response containing the number of doctors by specialization in JSON format
+    * @throws InternalServerErrorException if an internal server error occurs
+    */
+    @GET
+    @Path("/specialization")
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response getSpecializationCounts() throws InternalServerErrorException {
+        try {
+            return Response.ok(doctorDAO.getSpecializationCounts()).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error occurred while counting doctors by specialization", e);
+            throw new InternalServerErrorException("Internal server error occurred.");
+        }
+    }
+
     /**
     * GET method to retrieve doctors by specialization.
     * 
@@ -71,7 +159,7 @@ public class DoctorResource {
     */   
     @GET
     @Path("/specialization/{specialization}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getDoctorsBySpecialization(@PathParam("specialization") String specialization) throws InternalServerErrorException {
         try {
             List<Doctor> doctors = doctorDAO.getDoctorsBySpecialization(specialization);
@@ -93,7 +181,7 @@ public class DoctorResource {
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @POST
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response addDoctor(Doctor doctor) throws InternalServerErrorException {
         try {
             if (doctor == null || doctor.getName() == null || doctor.getContactInformation() == null || doctor.getAddress() == null || doctor.getSpecialization() == null) {
@@ -113,19 +201,34 @@ public class DoctorResource {
     * 
     * @param id the ID of the doctor to update
     * @param doctor the updated doctor object
+    * @param request the request, used to evaluate If-Match against the ETag
+    * @param headers the request headers; with If-Match the update is only applied to the version named
     * @return Response indicating success or failure of the operation
     * @throws ResourceNotFoundException if the doctor with the specified ID is not found
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @PUT
     @Path("/{id}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response updateDoctor(@PathParam("id") String id, Doctor doctor) throws ResourceNotFoundException, InternalServerErrorException {
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response updateDoctor(@PathParam("id") String id, Doctor doctor, @Context Request request, @Context HttpHeaders headers) throws ResourceNotFoundException, InternalServerErrorException {
         try {
             if (doctor.getName() == null || doctor.getContactInformation() == null || doctor.getAddress() == null || doctor.getSpecialization() == null) {
                 throw new InvalidDataException("Invalid doctor data.");
             }
-            doctorDAO.updateDoctor(id, doctor);
+            // Honour If-Match, refusing the update if the doctor changed since the client read it
+            Doctor current = doctorDAO.getDoctorById(id);
+            Response failed = Conditional.checkUpdate(request, headers, current == null ? null : current.getVersion());
+            if (failed != null) {
+                return failed;
+            }
+            if (Conditional.isRequested(headers)) {
+                // Apply it only if no other update got in between
+                if (!doctorDAO.updateDoctor(id, doctor, current.getVersion())) {
+                    return Conditional.preconditionFailed();
+                }
+            } else {
+                doctorDAO.updateDoctor(id, doctor);
+            }
             logger.info("Doctor successfully updated.");
             return Response.status(Response.Status.OK).entity("Doctor successfully updated.").build();
         } catch (IllegalArgumentException e) {
@@ -150,6 +253,7 @@ public class DoctorResource {
     public Response deleteDoctor(@PathParam("id") String id) throws ResourceNotFoundException, InternalServerErrorException {
         try {
             doctorDAO.deleteDoctor(id);
+            cache.evict(id);
             logger.info("Doctor successfully deleted.");
             return Response.status(Response.Status.NO_CONTENT).entity("Doctor successfully deleted.").build();
         } catch (IllegalArgumentException e) {
@@ -7,61 +7,132 @@ import com.mycompany.csa_cw.model.MedicalRecord;
 import com.mycompany.csa_cw.dao.MedicalRecordDAO;
 import com.mycompany.csa_cw.model.Patient;
 import com.mycompany.csa_cw.dao.PatientDAO;
+import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.Collection;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Path("/medicalRecords")
+@Singleton
 public class MedicalRecordResource {
     
     private static final Logger logger = Logger.getLogger(MedicalRecordResource.class.getName());
-    private MedicalRecordDAO medicalRecordDAO = new MedicalRecordDAO();
+    // Shared DAOs, injected once through the DAOFeature binder
+    @Inject
+    private MedicalRecordDAO medicalRecordDAO;
+    @Inject
+    private PatientDAO patientDAO;
+    // Serialized JSON of the medical records, shared by all requests
+    private static final ResponseCache cache = new ResponseCache();
     
     /**
     * Retrieves all medical records.
     * 
+    * @param limit the maximum number of medical records to return; enables paging
+    * @param cursor the cursor of the page to return, from a previous page's X-Next-Cursor header
+    * @param uriInfo the request URI, used to build the link to the next page and read for the expand and fields parameters
+    * @param stream whether to stream the whole collection as a JSON array
+    * @param headers the request headers; Accept: application/x-ndjson streams one entity per line, and application/cbor answers in CBOR
     * @return Response containing the list of medical records
     * @throws InternalServerErrorException if an internal server error occurs
     */
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllMedicalRecords() throws InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR, Streaming.APPLICATION_NDJSON})
+    public Response getAllMedicalRecords(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor, @Context UriInfo uriInfo,
+            @QueryParam("stream") Boolean stream, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
+            if (Streaming.isRequested(stream, headers)) {
+                // Write the entities straight from the DAO data instead of building a list
+                Collection<MedicalRecord> medicalRecords = medicalRecordDAO.getMedicalRecordsView();
+                if (medicalRecords.isEmpty()) {
+                    throw new ResourceNotFoundException("MedicalRecord data unavailable.");
+                }
+                return Streaming.toResponse(medicalRecords, headers, Representation.of(uriInfo, headers));
+            }
+            if (Pagination.isRequested(limit, cursor)) {
+                // Return a single page instead of the whole collection
+                return Pagination.toResponse(medicalRecordDAO.getMedicalRecordsPage(cursor, Pagination.checkLimit(limit)), uriInfo);
+            }
             List<MedicalRecord> medicalRecords = medicalRecordDAO.getAllMedicalRecords();
             if (medicalRecords.isEmpty()) {
                 logger.info("MedicalRecord data unavailable.");
                 throw new ResourceNotFoundException("MedicalRecord data unavailable.");
             }
-            return Response.ok(medicalRecords).build();
+            // Send the JSON cached for this snapshot, which is only re-serialized after a change
+            return Response.ok(cache.collection(medicalRecords, Representation.of(uriInfo, headers))).build();
         } catch (ResourceNotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            // Bad limit, or a cursor that was not produced by this API
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error occurred while fetching all medical records", e);
             throw new InternalServerErrorException("Internal Server Error occurred.");
         }
     }
 
+    /**
+    * Searches the diagnoses and treatments of the medical records, best match first.
+    *
+    * Words in the query must all match, unless separated by OR: "viral fever OR malaria" finds
+    * records mentioning both viral and fever, or malaria. A word ending in '*' matches every word
+    * starting with it. Matching ignores case, and a word found in the diagnoses counts double.
+    *
+    * @param query the search query
+    * @param limit the maximum number of medical records to return
+    * @return Response containing the matching medical records
+    * @throws InternalServerErrorException if an internal server error occurs
+    */
+    @GET
+    @Path("/search")
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response searchMedicalRecords(@QueryParam("q") String query, @QueryParam("limit") Integer limit) throws InternalServerErrorException {
+        try {
+            if (query == null || query.trim().isEmpty()) {
+                throw new InvalidDataException("A search query 'q' must be provided.");
+            }
+            List<MedicalRecord> medicalRecords = medicalRecordDAO.searchMedicalRecords(query, Pagination.checkLimit(limit));
+            return Response.ok(medicalRecords).build();
+        } catch (InvalidDataException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error occurred while searching medical records for: " + query, e);
+            throw new InternalServerErrorException("Internal Server Error occurred.");
+        }
+    }
+
     /**
     * Retrieves a medical record by ID.
     * 
     * @param id the ID of the medical record to retrieve
+    * @param request the request, used to evaluate If-None-Match against the ETag
+    * @param uriInfo the request URI, read for the expand and fields parameters
+    * @param headers the request headers; Accept: application/cbor answers in CBOR
     * @return Response containing the medical record
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @GET
     @Path("/{id}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getMedicalRecord(@PathParam("id") String id) throws InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response getMedicalRecord(@PathParam("id") String id, @Context Request request, @Context UriInfo uriInfo, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
             MedicalRecord medicalRecord = medicalRecordDAO.getMedicalRecordById(id);
             if (medicalRecord == null) {
                 logger.log(Level.INFO, "MedicalRecord with id {0} not found.", id);
                 throw new ResourceNotFoundException("MedicalRecord with id " + id + " not found.");
             }
-            return Response.ok(medicalRecord).build();
+            // Answer 304 if the client already has this version, otherwise send the JSON cached for it
+            Representation representation = Representation.of(uriInfo, headers);
+            return Conditional.ok(request, medicalRecord.getVersion(), representation, () -> cache.entity(id, medicalRecord.getVersion(), medicalRecord, representation));
         } catch (ResourceNotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
         } catch (Exception e) {
@@ -79,7 +150,7 @@ public class MedicalRecordResource {
     */   
     @GET
     @Path("/patient/{patientId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getMedicalRecordsByPatientId(@PathParam("patientId") String patientId) throws InternalServerErrorException {
         try {
             List<MedicalRecord> medicalRecords = medicalRecordDAO.getMedicalRecordsByPatientId(patientId);
@@ -105,7 +176,7 @@ public class MedicalRecordResource {
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @POST
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response addMedicalRecord(@QueryParam("patientId") String patientId, MedicalRecord medicalRecord) throws InternalServerErrorException {
         try {
             // Check if medical record and patientId are provided
@@ -115,7 +186,6 @@ public class MedicalRecordResource {
             }
 
             // Retrieve patient using patientId
-            PatientDAO patientDAO = new PatientDAO();
             Patient patient = patientDAO.getPatientById(patientId);
             if (patient == null) {
                 logger.log(Level.INFO, "Patient with id {0} not found.", patientId);
@@ -145,13 +215,15 @@ public class MedicalRecordResource {
     * @param id the ID of the medical record to update
     * @param patientId the ID of the patient associated with the medical record
     * @param medicalRecord the updated medical record
+    * @param request the request, used to evaluate If-Match against the ETag
+    * @param headers the request headers; with If-Match the update is only applied to the version named
     * @return Response indicating success or failure of the operation
     * @throws InternalServerErrorException if an internal server error occurs
     */
     @PUT
     @Path("/{id}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response updateMedicalRecord(@PathParam("id") String id, @QueryParam("patientId") String patientId, MedicalRecord medicalRecord) throws InternalServerErrorException {
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response updateMedicalRecord(@PathParam("id") String id, @QueryParam("patientId") String patientId, MedicalRecord medicalRecord, @Context Request request, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
             // Check if medical record and patientId are provided
             if (medicalRecord.getDiagnoses() == null || medicalRecord.getTreatments() == null || patientId == null) {
@@ -160,7 +232,6 @@ public class MedicalRecordResource {
             }
 
             // Retrieve patient using patientId
-            PatientDAO patientDAO = new PatientDAO();
             Patient patient = patientDAO.getPatientById(patientId);
             if (patient == null) {
                 logger.log(Level.INFO, "Patient with id {0} not found.", patientId);
@@ -171,8 +242,20 @@ public class MedicalRecordResource {
             medicalRecord.setId(id); // Ensure the ID is set correctly
             medicalRecord.setPatient(patient);
 
-            // Update medical record
-            medicalRecordDAO.updateMedicalRecord(id, medicalRecord);
+            // Honour If-Match, refusing the update if the medical record changed since the client read it
+            MedicalRecord current = medicalRecordDAO.getMedicalRecordById(id);
+            Response failed = Conditional.checkUpdate(request, headers, current == null ? null : current.getVersion());
+            if (failed != null) {
+                return failed;
+            }
+            if (Conditional.isRequested(headers)) {
+                // Apply it only if no other update got in between
+                if (!medicalRecordDAO.updateMedicalRecord(id, medicalRecord, current.getVersion())) {
+                    return Conditional.preconditionFailed();
+                }
+            } else {
+                medicalRecordDAO.updateMedicalRecord(id, medicalRecord);
+            }
             logger.info("Medical record successfully updated.");
             return Response.status(Response.Status.OK)
                     .entity("Medical record successfully updated.")
@@ -198,6 +281,7 @@ public class MedicalRecordResource {
     public Response deleteMedicalRecord(@PathParam("id") String id) throws InternalServerErrorException {
         try {
             medicalRecordDAO.deleteMedicalRecord(id);
+            cache.evict(id);
             logger.info("Medical record successfully deleted.");
             return Response.status(Response.Status.NO_CONTENT)
                     .entity("Medical record successfully deleted.")
@@ -0,0 +1,20 @@
+package com.mycompany.csa_cw.resource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.csa_cw.util.Json;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Hands Jersey's JSON provider the application's shared mapper, so request
+ * bodies and the responses it writes use the same settings and generated
+ * (de)serializers as the rest of the application.
+ */
+@Provider
+public class ObjectMapperResolver implements ContextResolver<ObjectMapper> {
+
+    @Override
+    public ObjectMapper getContext(Class<?> type) {
+        return Json.mapper();
+    }
+}
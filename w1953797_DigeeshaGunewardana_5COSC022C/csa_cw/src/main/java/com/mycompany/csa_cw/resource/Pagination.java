@@ -0,0 +1,48 @@
+package com.mycompany.csa_cw.resource;
+
+import com.mycompany.csa_cw.exception.InvalidDataException;
+import com.mycompany.csa_cw.util.Page;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Shared handling of the limit and cursor query parameters of the collection endpoints.
+ *
+ * Without either parameter a collection endpoint returns everything, as before.
+ * With one of them it returns a single page as a JSON array; the cursor of the
+ * next page is sent in the X-Next-Cursor header and as a Link rel="next" header.
+ */
+final class Pagination {
+    static final int DEFAULT_LIMIT = 100;
+    static final int MAX_LIMIT = 1000;
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private Pagination() {
+    }
+
+    // Method to check whether the client asked for a page rather than the whole collection
+    static boolean isRequested(Integer limit, String cursor) {
+        return limit != null || cursor != null;
+    }
+
+    // Method to validate the requested page size, applying the default when none was given
+    static int checkLimit(Integer limit) throws InvalidDataException {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new InvalidDataException("limit must be between 1 and " + MAX_LIMIT + ".");
+        }
+        return limit;
+    }
+
+    // Method to build the response for a page, linking to the next page if there is one
+    static Response toResponse(Page<?> page, UriInfo uriInfo) {
+        Response.ResponseBuilder response = Response.ok(page.getItems());
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor())
+                    .link(uriInfo.getRequestUriBuilder().replaceQueryParam("cursor", page.getNextCursor()).build(), "next");
+        }
+        return response.build();
+    }
+}
@@ -5,34 +5,71 @@ import com.mycompany.csa_cw.exception.InvalidDataException;
 import com.mycompany.csa_cw.exception.InternalServerErrorException;
 import com.mycompany.csa_cw.model.Patient;
 import com.mycompany.csa_cw.dao.PatientDAO;
+import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Path("/patients")
+@Singleton
 public class PatientResource {
     
     private static final Logger logger = Logger.getLogger(PatientResource.class.getName());
-    private PatientDAO patientDAO = new PatientDAO();
+    // Number of name matches returned when no limit is given
+    private static final int NAME_SEARCH_LIMIT = 10;
+    // Shared DAOs, injected once through the DAOFeature binder
+    @Inject
+    private PatientDAO patientDAO;
+    // Serialized JSON of the patients, shared by all requests
+    private static final ResponseCache cache = new ResponseCache();
 
     /**
     * GET method to retrieve all patients.
     * 
+    * @param limit the maximum number of patients to return; enables paging
+    * @param cursor the cursor of the page to return, from a previous page's X-Next-Cursor header
+    * @param uriInfo the request URI, used to build the link to the next page and read for the expand and fields parameters
+    * @param stream whether to stream the whole collection as a JSON array
+    * @param headers the request headers; Accept: application/x-ndjson streams one entity per line, and application/cbor answers in CBOR
     * @return Response containing a list of patients in JSON format
     * @throws InternalServerErrorException if an internal server error occurs
     */
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllPatients() throws InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR, Streaming.APPLICATION_NDJSON})
+    public Response getAllPatients(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor, @Context UriInfo uriInfo,
+            @QueryParam("stream") Boolean stream, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
+            if (Streaming.isRequested(stream, headers)) {
+                // Write the entities straight from the DAO data instead of building a list
+                Collection<Patient> patients = patientDAO.getPatientsView();
+                if (patients.isEmpty()) {
+                    throw new ResourceNotFoundException("Patient data not found.");
+                }
+                return Streaming.toResponse(patients, headers, Representation.of(uriInfo, headers));
+            }
+            if (Pagination.isRequested(limit, cursor)) {
+                // Return a single page instead of the whole collection
+                return Pagination.toResponse(patientDAO.getPatientsPage(cursor, Pagination.checkLimit(limit)), uriInfo);
+            }
             List<Patient> patients = patientDAO.getAllPatients();
             if (patients.isEmpty()) {
                 throw new ResourceNotFoundException("Patient data not found.");
             }
-            return Response.ok(patients).build();
+            // Send the JSON cached for this snapshot, which is only re-serialized after a change
+            return Response.ok(cache.collection(patients, Representation.of(uriInfo, headers))).build();
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            // Bad limit, or a cursor that was not produced by this API
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error occurred while retrieving all patients.", e);
             throw new InternalServerErrorException("Internal server error occurred.");
@@ -43,20 +80,25 @@ public class PatientResource {
     * GET method to retrieve a patient by ID.
     * 
     * @param id the ID of the patient to retrieve
+    * @param request the request, used to evaluate If-None-Match against the ETag
+    * @param uriInfo the request URI, read for the expand and fields parameters
+    * @param headers the request headers; Accept: application/cbor answers in CBOR
     * @return Response containing the patient details in JSON format
     * @throws InvalidDataException if an invalid ID is provided
     * @throws InternalServerErrorException if an internal server error occurs
     */
     @GET
     @Path("/{id}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getPatient(@PathParam("id") String id) throws InvalidDataException, InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response getPatient(@PathParam("id") String id, @Context Request request, @Context UriInfo uriInfo, @Context HttpHeaders headers) throws InvalidDataException, InternalServerErrorException {
         try {
             Patient patient = patientDAO.getPatientById(id);
             if (patient == null) {
                 throw new ResourceNotFoundException("Patient with id " + id + " not found.");
             }
-            return Response.ok(patient).build();
+            // Answer 304 if the client already has this version, otherwise send the JSON cached for it
+            Representation representation = Representation.of(uriInfo, headers);
+            return Conditional.ok(request, patient.getVersion(), representation, () -> cache.entity(id, patient.getVersion(), patient, representation));
         } catch (IllegalArgumentException e) {
             logger.log(Level.INFO, "Invalid ID provided: {0}", id);
             throw new InvalidDataException("Invalid ID provided: " + id);
@@ -66,6 +108,53 @@ public class PatientResource {
         }
     }
 
+    /**
+    * GET method to search patients by part of their name, as typed into a search box.
+    *
+    * Each word given must match the start of a word of the name, allowing one typo in words of
+    * 3 to 5 letters and two in longer words. The closest matches come first.
+    *
+    * @param name the partly typed name
+    * @param limit the maximum number of patients to return, 10 by default
+    * @return Response containing a list of the matching patients in JSON format
+    * @throws InternalServerErrorException if an internal server error occurs
+    */
+    @GET
+    @Path("/search")
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response searchPatients(@QueryParam("name") String name, @QueryParam("limit") Integer limit) throws InternalServerErrorException {
+        try {
+            if (name == null || name.trim().isEmpty()) {
+                throw new InvalidDataException("A name to search for must be provided.");
+            }
+            List<Patient> patients = patientDAO.searchPatientsByName(name, limit == null ? NAME_SEARCH_LIMIT : Pagination.checkLimit(limit));
+            return Response.ok(patients).build();
+        } catch (InvalidDataException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error occurred while searching patients by name: " + name, e);
+            throw new InternalServerErrorException("Internal server error occurred.");
+        }
+    }
+
+    /**
+    * GET method to count the patients with each health status, most common first.
+    * 
+    * @return Response containing the number of patients by health status in JSON format
+    * @throws InternalServerErrorException if an internal server error occurs
+    */
+    @GET
+    @Path("/status")
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response getHealthStatusCounts() throws InternalServerErrorException {
+        try {
+            return Response.ok(patientDAO.getHealthStatusCounts()).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error occurred while counting patients by health status", e);
+            throw new InternalServerErrorException("Internal server error occurred.");
+        }
+    }
+
     /**
     * GET method to retrieve patients by health status.
     * 
@@ -75,7 +164,7 @@ public class PatientResource {
     */
     @GET
     @Path("/status/{healthStatus}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getPatientsByHealthStatus(@PathParam("healthStatus") String healthStatus) throws InternalServerErrorException {
         try {
             List<Patient> patients = patientDAO.getPatientsByHealthStatus(healthStatus);
@@ -97,7 +186,7 @@ public class PatientResource {
     * @throws InternalServerErrorException if an internal server error occurs
     */
     @POST
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response addPatient(Patient patient) throws InternalServerErrorException {
         try {
             if (patient == null || patient.getName() == null || patient.getContactInformation() == null || patient.getAddress() == null) {
@@ -112,24 +201,77 @@ public class PatientResource {
         }
     }
 
+    /**
+    * POST method to add many patients with one request.
+    * 
+    * The valid patients are stored as one write: a single database transaction, or in memory a single journal
+    * record, so a crash keeps all of them or none. In memory, other requests may see them appear one by one while
+    * the batch is being applied.
+    * 
+    * @param body the patients, as a JSON array, a CBOR array or NDJSON (one patient per line)
+    * @param headers the request headers; the Content-Type says which of the three the body is
+    * @return Response listing, for each patient in order, its new ID or the reason it was not added
+    * @throws InternalServerErrorException if an internal server error occurs
+    */
+    @POST
+    @Path("/batch")
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR, Streaming.APPLICATION_NDJSON})
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response addPatients(InputStream body, @Context HttpHeaders headers) throws InternalServerErrorException {
+        try {
+            Batch.Results<Patient> results = new Batch.Results<>();
+            for (Patient patient : Batch.read(body, Patient.class, headers.getMediaType())) {
+                if (patient == null || patient.getName() == null || patient.getContactInformation() == null || patient.getAddress() == null) {
+                    results.reject(Response.Status.BAD_REQUEST, "Invalid patient data.");
+                } else {
+                    results.accept(patient);
+                }
+            }
+            // Store all the valid patients together
+            patientDAO.addPatients(results.accepted());
+            logger.log(Level.INFO, "{0} patient(s) created from a batch.", results.accepted().size());
+            return results.toResponse(Patient::getId);
+        } catch (InvalidDataException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error occurred while adding a batch of patients.", e);
+            throw new InternalServerErrorException("Internal server error occurred.");
+        }
+    }
+
     /**
     * PUT method to update an existing patient.
     * 
     * @param id the ID of the patient to update
     * @param patient the updated patient object
+    * @param request the request, used to evaluate If-Match against the ETag
+    * @param headers the request headers; with If-Match the update is only applied to the version named
     * @return Response indicating success or failure of the operation
     * @throws InternalServerErrorException if an internal server error occurs
     * @throws ResourceNotFoundException if the patient with the specified ID is not found
     */ 
     @PUT
     @Path("/{id}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response updatePatient(@PathParam("id") String id, Patient patient) throws InternalServerErrorException, ResourceNotFoundException {
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response updatePatient(@PathParam("id") String id, Patient patient, @Context Request request, @Context HttpHeaders headers) throws InternalServerErrorException, ResourceNotFoundException {
         try {
             if (patient.getName() == null || patient.getContactInformation() == null || patient.getAddress() == null) {
                 throw new InvalidDataException("Invalid patient data.");
             }
-            patientDAO.updatePatient(id, patient);
+            // Honour If-Match, refusing the update if the patient changed since the client read it
+            Patient current = patientDAO.getPatientById(id);
+            Response failed = Conditional.checkUpdate(request, headers, current == null ? null : current.getVersion());
+            if (failed != null) {
+                return failed;
+            }
+            if (Conditional.isRequested(headers)) {
+                // Apply it only if no other update got in between
+                if (!patientDAO.updatePatient(id, patient, current.getVersion())) {
+                    return Conditional.preconditionFailed();
+                }
+            } else {
+                patientDAO.updatePatient(id, patient);
+            }
             logger.info("Patient successfully updated.");
             return Response.status(Response.Status.OK).entity("Patient successfully updated.").build();
         } catch (IllegalArgumentException e) {
@@ -154,6 +296,7 @@ public class PatientResource {
     public Response deletePatient(@PathParam("id") String id) throws InternalServerErrorException, ResourceNotFoundException {
         try {
             patientDAO.deletePatient(id);
+            cache.evict(id);
             logger.info("Patient successfully deleted.");
             return Response.status(Response.Status.NO_CONTENT).entity("Patient successfully deleted.").build();
         } catch (IllegalArgumentException e) {
@@ -24,7 +24,7 @@ public class PersonResource {
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @GET
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getAllPersons() throws InternalServerErrorException {
         try {
             List<Person> persons = personDAO.getAllPersons();
@@ -49,7 +49,7 @@ public class PersonResource {
     */
     @GET
     @Path("/{id}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getPerson(@PathParam("id") int id) throws InvalidDataException, InternalServerErrorException {
         try {
             Person person = personDAO.getPerson(id);
@@ -74,7 +74,7 @@ public class PersonResource {
      * @throws InternalServerErrorException if an internal server error occurs
      */
     @POST
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response addPerson(Person person) throws InternalServerErrorException {
         try {
             if (person == null || person.getName() == null || person.getContactInformation() == null || person.getAddress() == null) {
@@ -102,7 +102,7 @@ public class PersonResource {
     */
     @PUT
     @Path("/{id}")
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response updatePerson(@PathParam("id") int id, Person person) throws ResourceNotFoundException, InternalServerErrorException {
         try {
             if (person.getName() == null || person.getContactInformation() == null || person.getAddress() == null) {
@@ -9,37 +9,71 @@ import com.mycompany.csa_cw.model.Prescription;
 import com.mycompany.csa_cw.dao.PatientDAO;
 import com.mycompany.csa_cw.dao.DoctorDAO;
 import com.mycompany.csa_cw.dao.PrescriptionDAO;
+import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.Collection;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Path("/prescriptions")
+@Singleton
 public class PrescriptionResource {
     
     private static final Logger logger = Logger.getLogger(PrescriptionResource.class.getName());
-    private PrescriptionDAO prescriptionDAO = new PrescriptionDAO();
+    // Shared DAOs, injected once through the DAOFeature binder
+    @Inject
+    private PrescriptionDAO prescriptionDAO;
+    // Serialized JSON of the prescriptions, shared by all requests
+    private static final ResponseCache cache = new ResponseCache();
 
     /**
     * Retrieves all prescriptions.
     * 
+    * @param limit the maximum number of prescriptions to return; enables paging
+    * @param cursor the cursor of the page to return, from a previous page's X-Next-Cursor header
+    * @param uriInfo the request URI, used to build the link to the next page and read for the expand and fields parameters
+    * @param stream whether to stream the whole collection as a JSON array
+    * @param headers the request headers; Accept: application/x-ndjson streams one entity per line, and application/cbor answers in CBOR
     * @return Response containing a list of prescriptions
     * @throws InternalServerErrorException if an internal server error occurs
     */
     @GET  
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllPrescriptions() throws InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR, Streaming.APPLICATION_NDJSON})
+    public Response getAllPrescriptions(@QueryParam("limit") Integer limit, @QueryParam("cursor") String cursor, @Context UriInfo uriInfo,
+            @QueryParam("stream") Boolean stream, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
+            if (Streaming.isRequested(stream, headers)) {
+                // Write the entities straight from the DAO data instead of building a list
+                Collection<Prescription> prescriptions = prescriptionDAO.getPrescriptionsView();
+                if (prescriptions.isEmpty()) {
+                    throw new ResourceNotFoundException("Prescription data not found.");
+                }
+                return Streaming.toResponse(prescriptions, headers, Representation.of(uriInfo, headers));
+            }
+            if (Pagination.isRequested(limit, cursor)) {
+                // Return a single page instead of the whole collection
+                return Pagination.toResponse(prescriptionDAO.getPrescriptionsPage(cursor, Pagination.checkLimit(limit)), uriInfo);
+            }
             List<Prescription> prescriptions = prescriptionDAO.getAllPrescriptions();
             if (prescriptions.isEmpty()) {
                 logger.info("Prescription data not found.");
                 throw new ResourceNotFoundException("Prescription data not found.");
             }
-            return Response.ok(prescriptions).build();
+            // Send the JSON cached for this snapshot, which is only re-serialized after a change
+            return Response.ok(cache.collection(prescriptions, Representation.of(uriInfo, headers))).build();
         } catch (ResourceNotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
+        } catch (InvalidDataException | IllegalArgumentException e) {
+            // Bad limit, or a cursor that was not produced by this API
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error occurred while fetching all prescriptions", e);
             throw new InternalServerErrorException("Internal Server Error occurred.");
@@ -50,20 +84,25 @@ public class PrescriptionResource {
     * Retrieves a prescription by ID.
     * 
     * @param id the ID of the prescription to retrieve
+    * @param request the request, used to evaluate If-None-Match against the ETag
+    * @param uriInfo the request URI, read for the expand and fields parameters
+    * @param headers the request headers; Accept: application/cbor answers in CBOR
     * @return Response containing the prescription
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @GET
     @Path("/{id}")
-    @Produces(MediaType.APPLICATION_JSON)
-    public Response getPrescription(@PathParam("id") String id) throws InternalServerErrorException {
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response getPrescription(@PathParam("id") String id, @Context Request request, @Context UriInfo uriInfo, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
             Prescription prescription = prescriptionDAO.getPrescriptionById(id);
             if (prescription == null) {
                 logger.log(Level.INFO, "Prescription with id {0} not found.", id);
                 throw new ResourceNotFoundException("Prescription with id " + id + " not found.");
             }
-            return Response.ok(prescription).build();
+            // Answer 304 if the client already has this version, otherwise send the JSON cached for it
+            Representation representation = Representation.of(uriInfo, headers);
+            return Conditional.ok(request, prescription.getVersion(), representation, () -> cache.entity(id, prescription.getVersion(), prescription, representation));
         } catch (ResourceNotFoundException e) {
             return Response.status(Response.Status.NOT_FOUND).entity(e.getMessage()).build();
         } catch (Exception e) {
@@ -81,7 +120,7 @@ public class PrescriptionResource {
     */
     @GET
     @Path("/patient/{patientId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getPrescriptionsByPatientId(@PathParam("patientId") String patientId) throws InternalServerErrorException {
         try {
             List<Prescription> prescriptions = prescriptionDAO.getPrescriptionsByPatientId(patientId);
@@ -107,7 +146,7 @@ public class PrescriptionResource {
     */   
     @GET
     @Path("/doctor/{doctorId}")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response getPrescriptionsByDoctorId(@PathParam("doctorId") String doctorId) throws InternalServerErrorException {
         try {
             List<Prescription> prescriptions = prescriptionDAO.getPrescriptionsByDoctorId(doctorId);
@@ -132,7 +171,7 @@ public class PrescriptionResource {
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @POST
-    @Consumes(MediaType.APPLICATION_JSON)
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
     public Response addPrescription(Prescription prescription) throws InternalServerErrorException {
         try {
             prescriptionDAO.addPrescription(prescription);
@@ -151,13 +190,15 @@ public class PrescriptionResource {
     * 
     * @param id the ID of the prescription to update
     * @param updatedPrescription the updated prescription data
+    * @param request the request, used to evaluate If-Match against the ETag
+    * @param headers the request headers; with If-Match the update is only applied to the version named
     * @return Response indicating success or failure of the operation
     * @throws InternalServerErrorException if an internal server error occurs
     */   
     @PUT
     @Path("/{id}")
-    @Consumes(MediaType.APPLICATION_JSON)
-    public Response updatePrescription(@PathParam("id") String id, Prescription updatedPrescription) throws InternalServerErrorException {
+    @Consumes({MediaType.APPLICATION_JSON, Representation.APPLICATION_CBOR})
+    public Response updatePrescription(@PathParam("id") String id, Prescription updatedPrescription, @Context Request request, @Context HttpHeaders headers) throws InternalServerErrorException {
         try {
             Prescription existingPrescription = prescriptionDAO.getPrescriptionById(id);
             if (existingPrescription == null) {
@@ -165,7 +206,19 @@ public class PrescriptionResource {
                 throw new ResourceNotFoundException("Prescription with id " + id + " not found.");
             }
             updatedPrescription.setId(id); // Ensure the ID is set correctly
-            prescriptionDAO.updatePrescription(id, updatedPrescription);
+            // Honour If-Match, refusing the update if the prescription changed since the client read it
+            Response failed = Conditional.checkUpdate(request, headers, existingPrescription == null ? null : existingPrescription.getVersion());
+            if (failed != null) {
+                return failed;
+            }
+            if (Conditional.isRequested(headers)) {
+                // Apply it only if no other update got in between
+                if (!prescriptionDAO.updatePrescription(id, updatedPrescription, existingPrescription.getVersion())) {
+                    return Conditional.preconditionFailed();
+                }
+            } else {
+                prescriptionDAO.updatePrescription(id, updatedPrescription);
+            }
             logger.info("Prescription updated successfully.");
             return Response.status(Response.Status.OK)
                     .entity("Prescription updated successfully.")
@@ -190,6 +243,7 @@ public class PrescriptionResource {
     public Response deletePrescription(@PathParam("id") String id) throws InternalServerErrorException {
         try {
             prescriptionDAO.deletePrescription(id);
+            cache.evict(id);
             logger.info("Prescription successfully deleted.");
             return Response.status(Response.Status.NO_CONTENT)
                     .entity("Prescription successfully deleted.")
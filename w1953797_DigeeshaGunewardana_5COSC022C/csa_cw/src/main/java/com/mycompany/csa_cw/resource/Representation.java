@@ -0,0 +1,247 @@
+package com.mycompany.csa_cw.resource;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.mycompany.csa_cw.model.Person;
+import com.mycompany.csa_cw.util.Json;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * Shared handling of the expand and fields query parameters, which choose how
+ * much of each entity a response carries, and of the format it is written in.
+ *
+ * A patient or doctor held by another entity (an appointment, billing,
+ * prescription or medical record) is written as its ID only, as patientId or
+ * doctorId, unless the client asks for it with ?expand=patient, ?expand=doctor
+ * or both. ?fields= lists the properties to keep of each entity returned, for
+ * example ?fields=id,date,patientId; the patients and doctors expanded inside
+ * those entities are written whole. Without either parameter the entities are
+ * written with every property and their patients and doctors as IDs.
+ *
+ * The format is JSON unless the client prefers CBOR (Accept: application/cbor),
+ * a binary encoding of the same data that is smaller and cheaper to write and
+ * read, meant for internal jobs that pull whole collections.
+ *
+ * The choice is passed to Jackson as an attribute of the writer, so one mapper
+ * per format and its cached serializers serve every combination. As everywhere
+ * else, null properties are left out, including the ID of a missing patient or
+ * doctor.
+ */
+final class Representation {
+    static final String APPLICATION_CBOR = "application/cbor";
+    static final MediaType APPLICATION_CBOR_TYPE = MediaType.valueOf(APPLICATION_CBOR);
+    static final String EXPAND = "expand";
+    static final String FIELDS = "fields";
+    // Properties that hold a patient or doctor and can be expanded
+    private static final Set<String> EXPANDABLE = new HashSet<>(Arrays.asList("patient", "doctor"));
+
+    // The application's mapper settings for each format, with property writers that follow the representation of each request
+    private static final ObjectMapper jsonMapper = Json.newMapper(new JsonFactory(), newModule());
+    private static final ObjectMapper cborMapper = Json.newMapper(new CBORFactory(), newModule());
+    // Declared after the mappers, which their writers are made from
+    private static final Representation DEFAULT_JSON = new Representation(Collections.emptySet(), null, false);
+    private static final Representation DEFAULT_CBOR = new Representation(Collections.emptySet(), null, true);
+
+    private final Set<String> expand;
+    // Properties to keep of each entity returned, or null to keep them all
+    private final Set<String> fields;
+    private final boolean cbor;
+    private final ObjectWriter writer;
+    // Name of this variant of the body, part of the ETag of every entity sent in it
+    private final String variant;
+
+    private Representation(Set<String> expand, Set<String> fields, boolean cbor) {
+        this.expand = expand;
+        this.fields = fields;
+        this.cbor = cbor;
+        this.writer = (cbor ? cborMapper : jsonMapper).writer().withAttribute(Representation.class, this);
+        this.variant = variantOf(expand, fields, cbor);
+    }
+
+    // Method to read the representation asked for in the query parameters and Accept header of a request.
+    // Throws IllegalArgumentException if expand names something that cannot be expanded.
+    static Representation of(UriInfo uriInfo, HttpHeaders headers) {
+        return of(uriInfo, headers.getAcceptableMediaTypes());
+    }
+
+    // Same as of(UriInfo, HttpHeaders), given the acceptable media types of the request in order of preference
+    static Representation of(UriInfo uriInfo, List<MediaType> acceptable) {
+        Set<String> expand = names(uriInfo.getQueryParameters().get(EXPAND));
+        Set<String> fields = names(uriInfo.getQueryParameters().get(FIELDS));
+        boolean cbor = prefersCbor(acceptable);
+        if (expand.isEmpty() && fields.isEmpty()) {
+            return cbor ? DEFAULT_CBOR : DEFAULT_JSON;
+        }
+        for (String name : expand) {
+            if (!EXPANDABLE.contains(name)) {
+                throw new IllegalArgumentException("expand can only name patient and doctor.");
+            }
+        }
+        return new Representation(expand, fields.isEmpty() ? null : fields, cbor);
+    }
+
+    // Method to get the representation sent as JSON when the client asks for none
+    static Representation defaultJson() {
+        return DEFAULT_JSON;
+    }
+
+    // Method to check whether this is the representation sent when the client asks for none, in either format
+    boolean isDefault() {
+        return expand.isEmpty() && fields == null;
+    }
+
+    // Method to check whether this representation is written as CBOR rather than JSON
+    boolean isCbor() {
+        return cbor;
+    }
+
+    // Method to get the media type this representation is written as
+    MediaType mediaType() {
+        return cbor ? APPLICATION_CBOR_TYPE : MediaType.APPLICATION_JSON_TYPE;
+    }
+
+    // Method to get the name of this variant, such as json, cbor-expand=doctor+patient or json-fields1a2b3c
+    String variant() {
+        return variant;
+    }
+
+    // Method to get a writer for this representation
+    ObjectWriter writer() {
+        return writer;
+    }
+
+    // Method to get a writer for this representation as JSON, whatever its format, for the formats built on JSON
+    ObjectWriter jsonWriter() {
+        return cbor ? new Representation(expand, fields, false).writer : writer;
+    }
+
+    // Method to write a value in this representation
+    byte[] toBytes(Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Helper method to check whether CBOR is the most preferred of the formats the resources write entities in
+    private static boolean prefersCbor(List<MediaType> acceptable) {
+        // Acceptable media types come sorted by preference
+        for (MediaType accepted : acceptable) {
+            if (!accepted.isWildcardSubtype() && accepted.isCompatible(APPLICATION_CBOR_TYPE)) {
+                return true;
+            }
+            if (accepted.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // Helper method to create the module that makes every property follow the representation of the current request
+    private static SimpleModule newModule() {
+        return new SimpleModule().setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc, List<BeanPropertyWriter> beanProperties) {
+                List<BeanPropertyWriter> properties = new ArrayList<>(beanProperties.size());
+                for (BeanPropertyWriter property : beanProperties) {
+                    properties.add(new Property(property));
+                }
+                return properties;
+            }
+        });
+    }
+
+    // Helper method to name a variant. The field names come from the client, so they are only named by a hash
+    // of their sorted list, which keeps the name safe to put in an ETag.
+    private static String variantOf(Set<String> expand, Set<String> fields, boolean cbor) {
+        StringBuilder variant = new StringBuilder(cbor ? "cbor" : "json");
+        if (!expand.isEmpty()) {
+            variant.append("-expand=").append(String.join("+", new TreeSet<>(expand)));
+        }
+        if (fields != null) {
+            variant.append("-fields").append(Integer.toHexString(new ArrayList<>(new TreeSet<>(fields)).hashCode()));
+        }
+        return variant.toString();
+    }
+
+    // Helper method to split the comma-separated names of a parameter that may be given several times
+    private static Set<String> names(List<String> values) {
+        Set<String> names = new HashSet<>();
+        if (values != null) {
+            for (String value : values) {
+                for (String name : value.split(",")) {
+                    if (!name.trim().isEmpty()) {
+                        names.add(name.trim());
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    // A property of an entity, written according to the representation of the current request
+    private static final class Property extends BeanPropertyWriter {
+        private static final long serialVersionUID = 1L;
+
+        // The writer Jackson made for the property, which writes it whole
+        private final BeanPropertyWriter delegate;
+        // Name written in place of a patient or doctor that is not expanded; null for other properties
+        private final SerializedString idName;
+
+        Property(BeanPropertyWriter delegate) {
+            super(delegate);
+            this.delegate = delegate;
+            this.idName = Person.class.isAssignableFrom(delegate.getType().getRawClass()) ? new SerializedString(delegate.getName() + "Id") : null;
+        }
+
+        @Override
+        public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider provider) throws Exception {
+            Representation representation = (Representation) provider.getAttribute(Representation.class);
+            if (representation == null) {
+                representation = DEFAULT_JSON;
+            }
+            if (representation.fields != null && isTopLevel(gen) && !representation.fields.contains(getName())
+                    && (idName == null || !representation.fields.contains(idName.getValue()))) {
+                return; // Left out by ?fields=
+            }
+            if (idName != null && !representation.expand.contains(getName())) {
+                Person person = (Person) get(bean);
+                if (person != null && person.getId() != null) {
+                    gen.writeFieldName(idName);
+                    gen.writeString(person.getId());
+                }
+                return;
+            }
+            delegate.serializeAsField(bean, gen, provider);
+        }
+
+        // Helper method to check whether the object being written is a returned entity rather than one inside it
+        private static boolean isTopLevel(JsonGenerator gen) {
+            JsonStreamContext parent = gen.getOutputContext().getParent();
+            return parent.inRoot() || parent.inArray() && parent.getParent().inRoot();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.mycompany.csa_cw.resource;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Applies the expand and fields query parameters, and the choice between JSON
+ * and CBOR, to every response that carries entities.
+ *
+ * The parameters are checked before the resource method runs, answering 400 if
+ * they are invalid. Entities returned by a resource method are then written in
+ * the representation and format the client asked for. Responses that are
+ * already written, such as the cached and streamed ones, are left alone; those
+ * resources apply the representation themselves.
+ */
+@Provider
+public class RepresentationFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    private static final String PROPERTY = Representation.class.getName();
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        try {
+            request.setProperty(PROPERTY, Representation.of(request.getUriInfo(), request.getAcceptableMediaTypes()));
+        } catch (IllegalArgumentException e) {
+            request.abortWith(Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build());
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext request, ContainerResponseContext response) {
+        Representation representation = (Representation) request.getProperty(PROPERTY);
+        Object entity = response.getEntity();
+        MediaType type = response.getMediaType();
+        if (representation == null || entity == null || entity instanceof byte[] || entity instanceof String || entity instanceof StreamingOutput
+                || type != null && !type.isCompatible(MediaType.APPLICATION_JSON_TYPE) && !type.isCompatible(Representation.APPLICATION_CBOR_TYPE)) {
+            return;
+        }
+        response.setEntity(representation.toBytes(entity), response.getEntityAnnotations(), representation.mediaType());
+    }
+}
@@ -0,0 +1,98 @@
+package com.mycompany.csa_cw.resource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serialized JSON and CBOR of the entities of one type, so repeated GETs write
+ * stored bytes instead of running Jackson again.
+ *
+ * Single entities are cached by ID together with the version they were
+ * serialized at; a write bumps the version, so the next read misses and
+ * re-serializes, and a delete evicts the entry. The whole-collection response
+ * is cached against the DAO's shared snapshot list, which the in-memory DAOs
+ * only replace after a write, so it is re-serialized once per change instead of
+ * once per request. Each format is cached separately, and only once asked for.
+ *
+ * Only the default representation is cached; a request that asks for another
+ * one with ?expand= or ?fields= is serialized on its own.
+ */
+final class ResponseCache {
+    // Upper bound on cached entities per type and format, so the cache cannot outgrow the data many times over
+    static final int MAX_ENTITIES = 10000;
+
+    private final Store json = new Store();
+    private final Store cbor = new Store();
+
+    // Method to get the bytes of an entity at the given version, serializing it only on a miss
+    byte[] entity(String id, long version, Object entity, Representation representation) {
+        if (!representation.isDefault()) {
+            return representation.toBytes(entity);
+        }
+        Map<String, Serialized> entities = storeOf(representation).entities;
+        Serialized cached = entities.get(id);
+        if (cached != null && cached.version == version) {
+            return cached.bytes;
+        }
+        Serialized serialized = new Serialized(version, representation.toBytes(entity));
+        // Replace older versions, but only start caching new IDs while there is room
+        if (cached != null || entities.size() < MAX_ENTITIES) {
+            // Keep the newest version if a concurrent read already stored one
+            entities.merge(id, serialized, (current, fresh) -> current.version >= fresh.version ? current : fresh);
+        }
+        return serialized.bytes;
+    }
+
+    // Method to get the array of a collection snapshot, serializing it only when the snapshot changed
+    byte[] collection(List<?> snapshot, Representation representation) {
+        if (!representation.isDefault()) {
+            return representation.toBytes(snapshot);
+        }
+        Store store = storeOf(representation);
+        Serialized cached = store.collection;
+        if (cached != null && cached.source == snapshot) {
+            return cached.bytes;
+        }
+        Serialized serialized = new Serialized(snapshot, representation.toBytes(snapshot));
+        store.collection = serialized;
+        return serialized.bytes;
+    }
+
+    // Method to drop the cached bytes of a deleted entity
+    void evict(String id) {
+        if (id != null) {
+            json.entities.remove(id);
+            cbor.entities.remove(id);
+        }
+    }
+
+    private Store storeOf(Representation representation) {
+        return representation.isCbor() ? cbor : json;
+    }
+
+    // The cached bytes of one format
+    private static final class Store {
+        private final Map<String, Serialized> entities = new ConcurrentHashMap<>();
+        private volatile Serialized collection;
+    }
+
+    private static final class Serialized {
+        private final long version;
+        // The snapshot list a collection response was serialized from, compared by identity
+        private final Object source;
+        private final byte[] bytes;
+
+        Serialized(long version, byte[] bytes) {
+            this.version = version;
+            this.source = null;
+            this.bytes = bytes;
+        }
+
+        Serialized(Object source, byte[] bytes) {
+            this.version = 0;
+            this.source = source;
+            this.bytes = bytes;
+        }
+    }
+}
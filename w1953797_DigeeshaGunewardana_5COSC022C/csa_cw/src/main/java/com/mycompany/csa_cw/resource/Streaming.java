@@ -0,0 +1,71 @@
+package com.mycompany.csa_cw.resource;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Shared handling of the streaming mode of the collection endpoints.
+ *
+ * Streaming is selected with ?stream=true (an array, in JSON or in CBOR as the
+ * client prefers) or with an Accept: application/x-ndjson header (one JSON
+ * object per line). Entities are written to the response one at a time while
+ * iterating over the DAO data, so heap use does not grow with the size of the
+ * collection and the first bytes go out as soon as the response buffer fills.
+ */
+final class Streaming {
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+    static final MediaType APPLICATION_NDJSON_TYPE = MediaType.valueOf(APPLICATION_NDJSON);
+
+    private Streaming() {
+    }
+
+    // Method to check whether the client asked for a streamed response
+    static boolean isRequested(Boolean stream, HttpHeaders headers) {
+        return Boolean.TRUE.equals(stream) || prefersNdjson(headers);
+    }
+
+    // Method to build a response that streams the given entities in the given representation
+    static Response toResponse(Iterable<?> entities, HttpHeaders headers, Representation representation) {
+        // The response stream belongs to the container, so the writers must not close it
+        if (prefersNdjson(headers)) {
+            ObjectWriter ndjsonWriter = representation.jsonWriter().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).withRootValueSeparator("\n");
+            StreamingOutput body = output -> {
+                try (SequenceWriter sequence = ndjsonWriter.writeValues(output)) {
+                    for (Object entity : entities) {
+                        sequence.write(entity);
+                    }
+                }
+                output.write('\n');
+            };
+            return Response.ok(body, APPLICATION_NDJSON_TYPE).build();
+        }
+        ObjectWriter writer = representation.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingOutput body = output -> {
+            try (SequenceWriter sequence = writer.writeValuesAsArray(output)) {
+                for (Object entity : entities) {
+                    sequence.write(entity);
+                }
+            }
+        };
+        return Response.ok(body, representation.mediaType()).build();
+    }
+
+    // Helper method to check whether NDJSON is the most preferred of the types the endpoints produce
+    private static boolean prefersNdjson(HttpHeaders headers) {
+        // Acceptable media types come sorted by preference
+        for (MediaType accepted : headers.getAcceptableMediaTypes()) {
+            if (!accepted.isWildcardSubtype() && accepted.isCompatible(APPLICATION_NDJSON_TYPE)) {
+                return true;
+            }
+            if (accepted.isCompatible(MediaType.APPLICATION_JSON_TYPE) || accepted.isCompatible(Representation.APPLICATION_CBOR_TYPE)) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
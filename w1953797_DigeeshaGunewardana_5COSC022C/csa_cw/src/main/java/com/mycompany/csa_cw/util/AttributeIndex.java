@@ -0,0 +1,154 @@
+package com.mycompany.csa_cw.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Index of an attribute with few distinct values, such as a specialization or
+ * a health status, for finding the entities with a value without reading the
+ * others.
+ *
+ * Values are compared ignoring case and surrounding spaces. Each distinct value
+ * is stored once in a dictionary and given a small number; the index keeps, for
+ * each number, the IDs of the entities with that value in ID order, and for each
+ * entity only the number of its value. Finding the entities with a value costs
+ * as much as the number found, and the number per value is always at hand.
+ *
+ * @param <T> the type of the indexed entities
+ */
+public class AttributeIndex<T> {
+    // Value number of an entity without a value
+    private static final int NONE = -1;
+
+    private final Function<T, String> idOf;
+    private final ToLongFunction<T> versionOf;
+    private final Function<T, String> valueOf;
+    // Lookups share the read lock; indexing an entity takes the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Number of each distinct value, by normalized value
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    // Value as shown in counts, and IDs of the entities with it, by value number
+    private final List<String> labels = new ArrayList<>();
+    private final List<NavigableSet<String>> postings = new ArrayList<>();
+    // Value number and version of each indexed entity, by entity ID
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public AttributeIndex(Function<T, String> idOf, ToLongFunction<T> versionOf, Function<T, String> valueOf) {
+        this.idOf = idOf;
+        this.versionOf = versionOf;
+        this.valueOf = valueOf;
+    }
+
+    // Method to index an entity, replacing its previous version; an older version than the one indexed is ignored
+    public void put(T entity) {
+        String id = idOf.apply(entity);
+        long version = versionOf.applyAsLong(entity);
+        String value = valueOf.apply(entity);
+        lock.writeLock().lock();
+        try {
+            Entry current = entries.get(id);
+            if (current != null) {
+                if (current.version > version) {
+                    return; // A newer version was indexed meanwhile
+                }
+                unindex(id, current);
+            }
+            if (value == null) {
+                entries.put(id, new Entry(NONE, version));
+                return;
+            }
+            int code = dictionary.computeIfAbsent(normalize(value), key -> {
+                labels.add(null);
+                postings.add(new TreeSet<>());
+                return labels.size() - 1;
+            });
+            if (postings.get(code).isEmpty()) {
+                labels.set(code, value.trim()); // Shown as first stored by an entity that still has it
+            }
+            postings.get(code).add(id);
+            entries.put(id, new Entry(code, version));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Method to drop an entity from the index
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Entry current = entries.remove(id);
+            if (current != null) {
+                unindex(id, current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Method to get the IDs of the entities with the given value, in ID order
+    public List<String> ids(String value) {
+        lock.readLock().lock();
+        try {
+            Integer code = value == null ? null : dictionary.get(normalize(value));
+            return code == null ? new ArrayList<>() : new ArrayList<>(postings.get(code));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Method to count the entities with each value, most common first, leaving out values no entity has any more
+    public Map<String, Integer> counts() {
+        List<Integer> codes = new ArrayList<>();
+        int[] sizes;
+        List<String> names;
+        lock.readLock().lock();
+        try {
+            sizes = new int[postings.size()];
+            for (int code = 0; code < sizes.length; code++) {
+                sizes[code] = postings.get(code).size();
+                if (sizes[code] > 0) {
+                    codes.add(code);
+                }
+            }
+            names = new ArrayList<>(labels);
+        } finally {
+            lock.readLock().unlock();
+        }
+        codes.sort((a, b) -> sizes[a] != sizes[b] ? Integer.compare(sizes[b], sizes[a]) : names.get(a).compareToIgnoreCase(names.get(b)));
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int code : codes) {
+            counts.put(names.get(code), sizes[code]);
+        }
+        return counts;
+    }
+
+    private void unindex(String id, Entry entry) {
+        if (entry.code != NONE) {
+            postings.get(entry.code).remove(id);
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Entry {
+        private final int code;
+        private final long version;
+
+        Entry(int code, long version) {
+            this.code = code;
+            this.version = version;
+        }
+    }
+}
@@ -1,44 +1,154 @@
 package com.mycompany.csa_cw.util;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  *
  * @author ASUS
  */
 public class GenerateId {
-    private static int patientCounter = 0;
-    private static int doctorCounter = 0;
-    private static int appointmentCounter = 0;
-    private static int billingCounter = 0; 
-    private static int medicalRecordCounter = 0; 
-    private static int prescriptionCounter = 0; 
+    // Number of IDs a thread takes from a shared sequence at a time, so threads rarely touch the same counter
+    private static final int BLOCK_SIZE = 16;
+
+    private static final IdSequence patientIds = new IdSequence("", "P");
+    private static final IdSequence doctorIds = new IdSequence("", "D");
+    private static final IdSequence appointmentIds = new IdSequence("APP", "");
+    private static final IdSequence billingIds = new IdSequence("B", "");
+    private static final IdSequence medicalRecordIds = new IdSequence("MR", "");
+    private static final IdSequence prescriptionIds = new IdSequence("PRESC", "");
 
     public static String generatePatientId() {
-        patientCounter++;
-        return String.format("%03dP", patientCounter);
+        return patientIds.next();
+    }
+
+    // Method to generate the IDs of a batch of new patients with a single reservation
+    public static List<String> generatePatientIds(int count) {
+        return patientIds.reserve(count);
     }
 
     public static String generateDoctorId() {
-        doctorCounter++;
-        return String.format("%03dD", doctorCounter);
+        return doctorIds.next();
     }
     
     public static String generateAppointmentId() {
-        appointmentCounter++;
-        return String.format("APP%03d", appointmentCounter);
+        return appointmentIds.next();
+    }
+
+    // Method to generate the IDs of a batch of new appointments with a single reservation
+    public static List<String> generateAppointmentIds(int count) {
+        return appointmentIds.reserve(count);
     }
 
     public static String generateBillingId() {
-        billingCounter++;
-        return String.format("B%03d", billingCounter);
+        return billingIds.next();
     }
 
     public static String generateMedicalRecordId() {
-        medicalRecordCounter++;
-        return String.format("MR%03d", medicalRecordCounter);
+        return medicalRecordIds.next();
     }
 
     public static String generatePrescriptionId() {
-        prescriptionCounter++;
-        return String.format("PRESC%03d", prescriptionCounter);
+        return prescriptionIds.next();
+    }
+
+    // Method to make sure IDs generated from now on come after an existing ID, e.g. one loaded from disk.
+    // Meant for start-up: blocks that threads have already taken are not affected.
+    public static void observe(String id) {
+        if (id == null) {
+            return;
+        }
+        for (IdSequence sequence : new IdSequence[]{patientIds, doctorIds, appointmentIds, billingIds, medicalRecordIds, prescriptionIds}) {
+            if (sequence.observe(id)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A lock-free sequence of IDs of the form prefix + zero-padded number + suffix.
+     *
+     * Each thread reserves a block of numbers with a single atomic add and hands
+     * them out without further synchronization. IDs are unique, but IDs issued on
+     * different threads are not in strict creation order.
+     */
+    private static final class IdSequence {
+        private final String prefix;
+        private final String suffix;
+        // Last number handed out to any block
+        private final AtomicLong reserved = new AtomicLong();
+        // Per-thread {next number, end of block (exclusive)}
+        private final ThreadLocal<long[]> block = new ThreadLocal<>();
+
+        IdSequence(String prefix, String suffix) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+        }
+
+        String next() {
+            long[] current = block.get();
+            if (current == null) {
+                current = new long[2];
+                block.set(current);
+            }
+            if (current[0] == current[1]) {
+                // Block used up: reserve the next one
+                long start = reserved.getAndAdd(BLOCK_SIZE) + 1;
+                current[0] = start;
+                current[1] = start + BLOCK_SIZE;
+            }
+            return format(current[0]++);
+        }
+
+        // Method to reserve a block of the given size for one caller, bypassing the per-thread block
+        List<String> reserve(int count) {
+            List<String> ids = new ArrayList<>(count);
+            long start = reserved.getAndAdd(count) + 1;
+            for (long number = start; number < start + count; number++) {
+                ids.add(format(number));
+            }
+            return ids;
+        }
+
+        // Method to move the sequence past the given ID if it has this sequence's form; returns false if it does not
+        boolean observe(String id) {
+            int end = id.length() - suffix.length();
+            if (end - prefix.length() < 3 || !id.startsWith(prefix) || !id.endsWith(suffix)) {
+                return false;
+            }
+            long number = 0;
+            for (int i = prefix.length(); i < end; i++) {
+                char c = id.charAt(i);
+                if (c < '0' || c > '9' || number > (Long.MAX_VALUE - 9) / 10) {
+                    return false;
+                }
+                number = number * 10 + (c - '0');
+            }
+            reserved.accumulateAndGet(number, Math::max);
+            return true;
+        }
+
+        // Equivalent to String.format(prefix + "%03d" + suffix, number) without the formatter overhead
+        String format(long number) {
+            int digits = Math.max(3, digitCount(number));
+            char[] chars = new char[prefix.length() + digits + suffix.length()];
+            prefix.getChars(0, prefix.length(), chars, 0);
+            int position = prefix.length() + digits;
+            for (long remaining = number; position > prefix.length(); remaining /= 10) {
+                chars[--position] = (char) ('0' + remaining % 10);
+            }
+            suffix.getChars(0, suffix.length(), chars, prefix.length() + digits);
+            return new String(chars);
+        }
+
+        private static int digitCount(long number) {
+            int count = 1;
+            while (number >= 10) {
+                number /= 10;
+                count++;
+            }
+            return count;
+        }
     }
 }
@@ -0,0 +1,73 @@
+package com.mycompany.csa_cw.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.mycompany.csa_cw.model.Appointment;
+import com.mycompany.csa_cw.model.Billing;
+import com.mycompany.csa_cw.model.Doctor;
+import com.mycompany.csa_cw.model.FreeSlot;
+import com.mycompany.csa_cw.model.MedicalRecord;
+import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.model.Person;
+import com.mycompany.csa_cw.model.Prescription;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The Jackson configuration of the application, shared by the REST layer, the
+ * journal, the snapshots and the database, for JSON and for CBOR, the binary
+ * format the resources also speak.
+ *
+ * Every mapper made here reads and writes the model classes through bytecode
+ * generated by the Afterburner module instead of reflection, leaves out null
+ * properties when writing, and has the serializers and deserializers of the
+ * model classes built up front, so the first requests do not pay for it.
+ * Leaving nulls out does not change what is read back, as a missing property
+ * reads as null.
+ *
+ * The shared mapper must not be reconfigured; a component that needs other
+ * settings uses a writer or reader derived from it, or a mapper of its own
+ * from {@link #newMapper(JsonFactory, Module...)}.
+ */
+public final class Json {
+    // Classes whose serializers and deserializers are built when a mapper is made
+    private static final List<Class<?>> MODEL_CLASSES = Collections.unmodifiableList(Arrays.asList(
+            Person.class, Patient.class, Doctor.class, Appointment.class, Billing.class,
+            Prescription.class, MedicalRecord.class, FreeSlot.class));
+
+    private static final ObjectMapper mapper = newMapper(new JsonFactory());
+    private static final ObjectMapper cborMapper = newMapper(new CBORFactory());
+
+    private Json() {
+    }
+
+    // Method to get the mapper shared by the whole application
+    public static ObjectMapper mapper() {
+        return mapper;
+    }
+
+    // Method to get the shared mapper for CBOR
+    public static ObjectMapper cborMapper() {
+        return cborMapper;
+    }
+
+    // Method to make a mapper for the format of the given factory, with the application's settings and the given extra modules.
+    // The extra modules are registered before Afterburner, so the property writers they add wrap the generated ones.
+    public static ObjectMapper newMapper(JsonFactory factory, Module... modules) {
+        ObjectMapper newMapper = new ObjectMapper(factory)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .registerModules(modules)
+                .registerModule(new AfterburnerModule());
+        for (Class<?> type : MODEL_CLASSES) {
+            // Both build and cache the (de)serializer of the class
+            newMapper.canSerialize(type);
+            newMapper.canDeserialize(newMapper.constructType(type));
+        }
+        return newMapper;
+    }
+}
@@ -0,0 +1,109 @@
+package com.mycompany.csa_cw.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A bounded cache of entities by ID, for lookups that would otherwise go to
+ * slower storage every time, such as resolving the patient and doctor an
+ * appointment or billing refers to.
+ *
+ * Each entry remembers the version of the entity it holds, and an entity only
+ * replaces an entry of a lower version, so a reader that loaded an entity just
+ * before it was updated cannot put the old version back. Deleted IDs are kept
+ * as markers for the same reason. Once the cache is full, the least recently
+ * used entry is dropped.
+ *
+ * @param <T> the type of the cached entities
+ */
+public class LookupCache<T> {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final ToLongFunction<T> versionOf;
+    // Entries in access order, so the eldest is the least recently used
+    private final Map<String, Cached<T>> entries;
+
+    public LookupCache(int capacity, ToLongFunction<T> versionOf) {
+        this.versionOf = versionOf;
+        this.entries = new LinkedHashMap<String, Cached<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached<T>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // Method to get an entity by ID, loading it on a miss; returns null if there is none
+    public T get(String id, Function<String, T> loader) {
+        synchronized (entries) {
+            Cached<T> entry = entries.get(id);
+            if (entry != null) {
+                return entry.entity; // Null for a deleted ID
+            }
+        }
+        // Load outside the lock so a slow load does not hold up other lookups
+        T loaded = loader.apply(id);
+        if (loaded != null) {
+            put(id, loaded);
+        }
+        return loaded;
+    }
+
+    // Method to get the entities with the given IDs, keyed by ID, loading all the misses with one call to the loader.
+    // IDs that have no entity are left out.
+    public Map<String, T> getAll(Collection<String> ids, Function<Collection<String>, ? extends Collection<T>> loader, Function<T, String> idOf) {
+        Map<String, T> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        synchronized (entries) {
+            for (String id : ids) {
+                Cached<T> entry = entries.get(id);
+                if (entry == null) {
+                    missing.add(id);
+                } else if (entry.entity != null) {
+                    found.put(id, entry.entity);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (T loaded : loader.apply(missing)) {
+                put(idOf.apply(loaded), loaded);
+                found.put(idOf.apply(loaded), loaded);
+            }
+        }
+        return found;
+    }
+
+    // Method to cache an entity that was just read or written, unless a newer version is already cached
+    public void put(String id, T entity) {
+        long version = versionOf.applyAsLong(entity);
+        synchronized (entries) {
+            Cached<T> current = entries.get(id);
+            if (current == null || current.version < version) {
+                entries.put(id, new Cached<>(version, entity));
+            }
+        }
+    }
+
+    // Method to record that the entity with the given ID was deleted
+    public void remove(String id) {
+        synchronized (entries) {
+            entries.put(id, new Cached<>(Long.MAX_VALUE, null));
+        }
+    }
+
+    private static final class Cached<T> {
+        private final long version;
+        private final T entity;
+
+        Cached(long version, T entity) {
+            this.version = version;
+            this.entity = entity;
+        }
+    }
+}
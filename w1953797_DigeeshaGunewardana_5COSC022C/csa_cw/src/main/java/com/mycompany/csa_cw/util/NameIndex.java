@@ -0,0 +1,353 @@
+package com.mycompany.csa_cw.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Index of the names of one type of entity, for finding them from part of a
+ * name as it is typed, typos included.
+ *
+ * Names are split into lowercase words, which are stored in a trie together
+ * with the IDs of the entities whose names contain them. Each word of a query
+ * matches the start of a name word with up to one edit (a wrong, missing,
+ * extra or swapped letter) for words of 3 to 5 letters, and up to two for longer
+ * words; words of one or two letters must match exactly. A name matches when
+ * every word of the query matches one of its words.
+ *
+ * The trie is searched with the rows of the edit distance table, one row per
+ * letter, so only the branches still within reach of the query are visited.
+ * Each node counts the names below it, so a query of several words walks the
+ * trie for the word that reaches the fewest names and checks the other words
+ * against those names only. Matches are returned fewest edits first, then
+ * shortest matching word first.
+ *
+ * @param <T> the type of the indexed entities
+ */
+public class NameIndex<T> {
+    private final Function<T, String> idOf;
+    private final ToLongFunction<T> versionOf;
+    private final Function<T, String> nameOf;
+    // Searches share the read lock; indexing an entity takes the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    // Version and name words of each indexed entity, by entity ID
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public NameIndex(Function<T, String> idOf, ToLongFunction<T> versionOf, Function<T, String> nameOf) {
+        this.idOf = idOf;
+        this.versionOf = versionOf;
+        this.nameOf = nameOf;
+    }
+
+    // Method to index an entity, replacing its previous version; an older version than the one indexed is ignored
+    public void put(T entity) {
+        String id = idOf.apply(entity);
+        Entry entry = new Entry(versionOf.applyAsLong(entity), new LinkedHashSet<>(TextIndex.words(nameOf.apply(entity))).toArray(new String[0]));
+        lock.writeLock().lock();
+        try {
+            Entry current = entries.get(id);
+            if (current != null) {
+                if (current.version > entry.version) {
+                    return; // A newer version was indexed meanwhile
+                }
+                unindex(id, current);
+            }
+            for (String word : entry.words) {
+                root.add(word, 0, id);
+            }
+            entries.put(id, entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Method to drop an entity from the index
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Entry current = entries.remove(id);
+            if (current != null) {
+                unindex(id, current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Method to get the IDs of the entities best matching a partly typed name, at most limit of them
+    public List<String> search(String query, int limit) {
+        List<String> words = new ArrayList<>(new LinkedHashSet<>(TextIndex.words(query)));
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            // Walk the trie for the word reaching the fewest names, and check the others against each name found
+            String leading = null;
+            List<Reach> leadingReach = null;
+            long fewest = Long.MAX_VALUE;
+            // Fewest edits each word needs to match any name word, and the total for all words
+            int[] fewestEdits = new int[words.size()];
+            int leastTotal = 0;
+            for (int w = 0; w < words.size(); w++) {
+                List<Reach> reached = reach(words.get(w));
+                if (reached.isEmpty()) {
+                    return new ArrayList<>(); // No name has a word close enough
+                }
+                long names = 0;
+                fewestEdits[w] = Integer.MAX_VALUE;
+                for (Reach reach : reached) {
+                    names += reach.node.count; // Counts nested nodes twice, which is close enough to compare
+                    fewestEdits[w] = Math.min(fewestEdits[w], reach.edits);
+                }
+                leastTotal += fewestEdits[w];
+                if (names < fewest) {
+                    leading = words.get(w);
+                    leadingReach = reached;
+                    fewest = names;
+                }
+            }
+            // The other words add at least this many edits to any name the leading word reaches
+            int leastOthers = leastTotal - fewestEdits[words.indexOf(leading)];
+            words.remove(leading);
+            // Number of matches found so far by total edits; later matches of the same total rank lower
+            int[] found = new int[maxEdits(leading) + words.size() * 2 + 1];
+            List<Hit> hits = new ArrayList<>();
+            Set<String> seen = new HashSet<>();
+            Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+            // Nodes to visit: the closest first, then the shallowest, so shorter words come before longer ones
+            PriorityQueue<Reach> queue = new PriorityQueue<>(Comparator.<Reach>comparingInt(reach -> reach.edits).thenComparingInt(reach -> reach.depth));
+            queue.addAll(leadingReach);
+            search:
+            while (!queue.isEmpty()) {
+                Reach reach = queue.poll();
+                if (!visited.add(reach.node)) {
+                    continue; // Already reached with no more edits
+                }
+                // Every match still to come needs at least this many edits, so those found with no more already rank higher
+                int better = 0;
+                for (int edits = 0; edits <= reach.edits + leastOthers && edits < found.length; edits++) {
+                    better += found[edits];
+                }
+                if (reach.node.ids != null) {
+                    for (String id : reach.node.ids) {
+                        if (better >= limit) {
+                            break search;
+                        }
+                        int others = seen.add(id) ? editsForOthers(words, entries.get(id).words) : -1;
+                        if (others >= 0) {
+                            found[reach.edits + others]++;
+                            hits.add(new Hit(id, reach.edits + others));
+                            if (others == leastOthers) {
+                                better++;
+                            }
+                        }
+                    }
+                }
+                if (better >= limit) {
+                    break;
+                }
+                for (int c = 0; c < reach.node.size; c++) {
+                    queue.add(new Reach(reach.node.children[c], reach.edits, reach.depth + 1));
+                }
+            }
+            // Fewest edits first; among equals, the order they were found in
+            hits.sort(Comparator.comparingInt(hit -> hit.edits));
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < hits.size() && i < limit; i++) {
+                ids.add(hits.get(i).id);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Helper method to find the trie nodes whose word so far the query word is within reach of, with the edits needed
+    private List<Reach> reach(String word) {
+        List<Reach> reached = new ArrayList<>();
+        int[] row = new int[word.length() + 1];
+        for (int j = 0; j < row.length; j++) {
+            row[j] = j;
+        }
+        reach(root, word, maxEdits(word), 0, (char) 0, null, row, reached);
+        return reached;
+    }
+
+    private void reach(Node node, String word, int maxEdits, int depth, char letter, int[] previousRow, int[] row, List<Reach> reached) {
+        int m = word.length();
+        if (row[m] <= maxEdits) {
+            reached.add(new Reach(node, row[m], depth));
+        }
+        int least = Integer.MAX_VALUE;
+        for (int edits : row) {
+            least = Math.min(least, edits);
+        }
+        if (least > maxEdits) {
+            return; // No word below can come back within reach
+        }
+        for (int c = 0; c < node.size; c++) {
+            char next = node.letters[c];
+            int[] nextRow = new int[m + 1];
+            nextRow[0] = row[0] + 1;
+            for (int j = 1; j <= m; j++) {
+                int cost = word.charAt(j - 1) == next ? 0 : 1;
+                nextRow[j] = Math.min(Math.min(row[j] + 1, nextRow[j - 1] + 1), row[j - 1] + cost);
+                // Two swapped letters count as one edit
+                if (j > 1 && previousRow != null && word.charAt(j - 1) == letter && word.charAt(j - 2) == next) {
+                    nextRow[j] = Math.min(nextRow[j], previousRow[j - 2] + 1);
+                }
+            }
+            reach(node.children[c], word, maxEdits, depth + 1, next, row, nextRow, reached);
+        }
+    }
+
+    // Helper method to count the edits the other query words need to match some word of a name, or -1 if one cannot
+    private static int editsForOthers(List<String> others, String[] nameWords) {
+        int total = 0;
+        for (String other : others) {
+            int best = Integer.MAX_VALUE;
+            for (String nameWord : nameWords) {
+                best = Math.min(best, prefixEdits(other, nameWord));
+            }
+            if (best > maxEdits(other)) {
+                return -1;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    // Helper method to count the edits between a word and the closest start of another word
+    static int prefixEdits(String word, String target) {
+        int m = word.length();
+        int[] previousRow = null;
+        int[] row = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            row[j] = j;
+        }
+        int best = row[m];
+        for (int i = 0; i < target.length(); i++) {
+            char next = target.charAt(i);
+            int[] nextRow = new int[m + 1];
+            nextRow[0] = i + 1;
+            for (int j = 1; j <= m; j++) {
+                int cost = word.charAt(j - 1) == next ? 0 : 1;
+                nextRow[j] = Math.min(Math.min(row[j] + 1, nextRow[j - 1] + 1), row[j - 1] + cost);
+                if (j > 1 && previousRow != null && word.charAt(j - 1) == target.charAt(i - 1) && word.charAt(j - 2) == next) {
+                    nextRow[j] = Math.min(nextRow[j], previousRow[j - 2] + 1);
+                }
+            }
+            previousRow = row;
+            row = nextRow;
+            best = Math.min(best, row[m]);
+        }
+        return best;
+    }
+
+    // Helper method to get how many edits a query word of this length may need
+    static int maxEdits(String word) {
+        return word.length() <= 2 ? 0 : word.length() <= 5 ? 1 : 2;
+    }
+
+    private void unindex(String id, Entry entry) {
+        for (String word : entry.words) {
+            root.remove(word, 0, id);
+        }
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final String[] words;
+
+        Entry(long version, String[] words) {
+            this.version = version;
+            this.words = words;
+        }
+    }
+
+    // A trie node reached by a query word, with the edits it took
+    private static final class Reach {
+        private final Node node;
+        private final int edits;
+        private final int depth;
+
+        Reach(Node node, int edits, int depth) {
+            this.node = node;
+            this.edits = edits;
+            this.depth = depth;
+        }
+    }
+
+    private static final class Hit {
+        private final String id;
+        private final int edits;
+
+        Hit(String id, int edits) {
+            this.id = id;
+            this.edits = edits;
+        }
+    }
+
+    // A trie node, with its children in letter order and the IDs of the entities whose names have its word
+    private static final class Node {
+        private char[] letters = new char[0];
+        private Node[] children = new Node[0];
+        private int size;
+        // Null until a name has the node's word; emptied, but kept, when the last such name goes
+        private Set<String> ids;
+        // Number of names with a word at or below this node
+        private int count;
+
+        // Method to record a name with the given word, adding the missing nodes on the way
+        void add(String word, int from, String id) {
+            count++;
+            if (from == word.length()) {
+                if (ids == null) {
+                    ids = new HashSet<>(2);
+                }
+                ids.add(id);
+                return;
+            }
+            char letter = word.charAt(from);
+            int at = Arrays.binarySearch(letters, 0, size, letter);
+            if (at < 0) {
+                at = -at - 1;
+                if (size == letters.length) {
+                    letters = Arrays.copyOf(letters, Math.max(2, size * 2));
+                    children = Arrays.copyOf(children, letters.length);
+                }
+                System.arraycopy(letters, at, letters, at + 1, size - at);
+                System.arraycopy(children, at, children, at + 1, size - at);
+                letters[at] = letter;
+                children[at] = new Node();
+                size++;
+            }
+            children[at].add(word, from + 1, id);
+        }
+
+        // Method to forget a name with the given word; nodes are kept even once no name is left below them
+        void remove(String word, int from, String id) {
+            count--;
+            if (from == word.length()) {
+                ids.remove(id);
+            } else {
+                children[Arrays.binarySearch(letters, 0, size, word.charAt(from))].remove(word, from + 1, id);
+            }
+        }
+    }
+}
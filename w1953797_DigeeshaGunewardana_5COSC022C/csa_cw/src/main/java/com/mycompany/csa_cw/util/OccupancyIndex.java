@@ -0,0 +1,178 @@
+package com.mycompany.csa_cw.util;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+
+/**
+ * Which parts of each day every doctor is booked, as one bit per 5-minute slot,
+ * for finding free appointment slots without reading the appointments.
+ *
+ * The occupancy of a doctor's day is built from the start times of their
+ * appointments the first time the day is searched, and dropped whenever one of
+ * those appointments changes, so it is rebuilt from the current data on the
+ * next search. An appointment covers every slot it overlaps, even partly, so a
+ * slot reported as free never clashes with a booking.
+ *
+ * At most a set number of days are kept. Once there are more, past days are
+ * dropped first, then the days furthest ahead, until a quarter of the room is
+ * free again; a dropped day is simply rebuilt if it is searched again.
+ */
+public class OccupancyIndex {
+    public static final int SLOT_MINUTES = 5;
+    // Enough days for every doctor of a large practice over the next few months, at about 100 bytes a day
+    public static final int DEFAULT_MAX_DAYS = 20000;
+    private static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    private static final long SLOT_SECONDS = SLOT_MINUTES * 60L;
+
+    // Length of one appointment in minutes, and in whole slots
+    private final long lengthMinutes;
+    private final int lengthSlots;
+    // Start times of a doctor's appointments that overlap the given day, including ones from the day before
+    private final BiFunction<String, LocalDate, Collection<LocalDateTime>> startsOverlapping;
+    // Occupied slots of each searched day of each doctor; a day's bits are never changed once published
+    private final Map<DoctorDay, BitSet> days = new ConcurrentHashMap<>();
+    private final int maxDays;
+    // Held by the one thread dropping days once there are too many
+    private final ReentrantLock trimLock = new ReentrantLock();
+
+    public OccupancyIndex(Duration appointmentLength, BiFunction<String, LocalDate, Collection<LocalDateTime>> startsOverlapping) {
+        this(appointmentLength, startsOverlapping, DEFAULT_MAX_DAYS);
+    }
+
+    public OccupancyIndex(Duration appointmentLength, BiFunction<String, LocalDate, Collection<LocalDateTime>> startsOverlapping, int maxDays) {
+        this.lengthMinutes = appointmentLength.toMinutes();
+        this.lengthSlots = (int) ((lengthMinutes + SLOT_MINUTES - 1) / SLOT_MINUTES);
+        this.startsOverlapping = startsOverlapping;
+        this.maxDays = maxDays;
+    }
+
+    // Method to forget the occupancy of the days covered by an appointment of the doctor starting at the given time.
+    // Call after the appointment was stored, moved or removed.
+    public void invalidate(String doctorId, LocalDateTime start) {
+        if (doctorId != null) {
+            days.remove(new DoctorDay(doctorId, start.toLocalDate()));
+            // The appointment may run past midnight
+            days.remove(new DoctorDay(doctorId, start.plusMinutes(lengthMinutes).minusNanos(1).toLocalDate()));
+        }
+    }
+
+    // Method to get the number of days whose occupancy is kept
+    public int size() {
+        return days.size();
+    }
+
+    // Method to find up to max free appointment slots of a doctor within one day, earliest first.
+    // Slots start on a slot boundary at or after 'from' and end by 'to'; the free slots returned do not overlap.
+    public List<LocalDateTime> freeSlots(String doctorId, LocalDateTime from, LocalDateTime to, int max) {
+        List<LocalDateTime> free = new ArrayList<>();
+        LocalDate day = from.toLocalDate();
+        LocalDateTime midnight = day.atStartOfDay();
+        int first = (int) ((secondsAfter(midnight, from) + SLOT_SECONDS - 1) / SLOT_SECONDS);
+        int end = (int) Math.min(SLOTS_PER_DAY, secondsAfter(midnight, to) / SLOT_SECONDS);
+        BitSet occupied = occupancy(doctorId, day);
+        int start = occupied.nextClearBit(first);
+        while (free.size() < max && start + lengthSlots <= end) {
+            int taken = occupied.nextSetBit(start);
+            if (taken < 0 || taken >= start + lengthSlots) {
+                free.add(midnight.plusMinutes((long) start * SLOT_MINUTES));
+                start = occupied.nextClearBit(start + lengthSlots);
+            } else {
+                start = occupied.nextClearBit(taken); // Skip past the booking in the way
+            }
+        }
+        return free;
+    }
+
+    // Helper method to get the occupied slots of a doctor's day, building them on first use
+    private BitSet occupancy(String doctorId, LocalDate day) {
+        DoctorDay key = new DoctorDay(doctorId, day);
+        BitSet occupied = days.get(key);
+        if (occupied == null) {
+            // Built while the day's entry is locked, so an invalidation waits for it and drops what it built
+            occupied = days.computeIfAbsent(key, k -> build(startsOverlapping.apply(doctorId, day), day));
+            if (days.size() > maxDays) {
+                trim();
+            }
+        }
+        return occupied;
+    }
+
+    // Helper method to drop days until a quarter of the room is free: past days first, oldest first,
+    // then the days furthest ahead. Other threads keep going rather than wait for a trim already running.
+    private void trim() {
+        if (!trimLock.tryLock()) {
+            return;
+        }
+        try {
+            LocalDate today = LocalDate.now();
+            List<DoctorDay> kept = new ArrayList<>(days.keySet());
+            int excess = kept.size() - maxDays * 3 / 4;
+            if (excess <= 0) {
+                return;
+            }
+            kept.sort(Comparator.comparing((DoctorDay key) -> !key.day.isBefore(today))
+                    .thenComparing(key -> Math.abs(ChronoUnit.DAYS.between(today, key.day)), Comparator.reverseOrder()));
+            for (DoctorDay key : kept.subList(0, excess)) {
+                days.remove(key);
+            }
+        } finally {
+            trimLock.unlock();
+        }
+    }
+
+    private BitSet build(Collection<LocalDateTime> starts, LocalDate day) {
+        BitSet occupied = new BitSet(SLOTS_PER_DAY);
+        LocalDateTime midnight = day.atStartOfDay();
+        for (LocalDateTime start : starts) {
+            long from = secondsAfter(midnight, start);
+            long to = from + lengthMinutes * 60;
+            // Every slot the appointment overlaps, clipped to the day
+            int firstSlot = (int) Math.max(0, Math.floorDiv(from, SLOT_SECONDS));
+            int endSlot = (int) Math.min(SLOTS_PER_DAY, Math.floorDiv(to + SLOT_SECONDS - 1, SLOT_SECONDS));
+            if (firstSlot < endSlot) {
+                occupied.set(firstSlot, endSlot);
+            }
+        }
+        return occupied;
+    }
+
+    private static long secondsAfter(LocalDateTime midnight, LocalDateTime time) {
+        return Duration.between(midnight, time).getSeconds();
+    }
+
+    // Key of one day of one doctor
+    private static final class DoctorDay {
+        private final String doctorId;
+        private final LocalDate day;
+
+        DoctorDay(String doctorId, LocalDate day) {
+            this.doctorId = doctorId;
+            this.day = day;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof DoctorDay)) {
+                return false;
+            }
+            DoctorDay that = (DoctorDay) other;
+            return doctorId.equals(that.doctorId) && day.equals(that.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * doctorId.hashCode() + day.hashCode();
+        }
+    }
+}
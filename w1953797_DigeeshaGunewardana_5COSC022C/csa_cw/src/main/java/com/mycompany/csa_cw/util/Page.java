@@ -0,0 +1,77 @@
+package com.mycompany.csa_cw.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.function.Function;
+
+/**
+ * One page of entities read in ID order, plus the cursor of the next page.
+ *
+ * Cursors are opaque to clients: they encode the last ID of the page, so a
+ * page costs O(log n + limit) however deep into the data it starts, and
+ * entities added or removed elsewhere do not shift later pages.
+ *
+ * @param <T> the type of the entities
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    // Method to read the page that follows the given cursor (null for the first page)
+    public static <T> Page<T> of(NavigableMap<String, T> byId, String cursor, int limit) {
+        NavigableMap<String, T> remaining = cursor == null ? byId : byId.tailMap(decodeCursor(cursor), false);
+        List<T> items = new ArrayList<>(limit);
+        String lastId = null;
+        for (Map.Entry<String, T> entry : remaining.entrySet()) {
+            if (items.size() == limit) {
+                // There is at least one more entity, so hand out a cursor
+                return new Page<>(items, encodeCursor(lastId));
+            }
+            items.add(entry.getValue());
+            lastId = entry.getKey();
+        }
+        return new Page<>(items, null);
+    }
+
+    // Method to build a page from entities already read in ID order after the cursor.
+    // Pass up to limit + 1 entities: an entity beyond the limit means there is a next page.
+    public static <T> Page<T> of(List<T> fetched, int limit, Function<T, String> idOf) {
+        if (fetched.size() <= limit) {
+            return new Page<>(fetched, null);
+        }
+        List<T> items = new ArrayList<>(fetched.subList(0, limit));
+        return new Page<>(items, encodeCursor(idOf.apply(items.get(limit - 1))));
+    }
+
+    // Method to get the ID a cursor continues after, or null for the first page
+    public static String afterId(String cursor) {
+        return cursor == null ? null : decodeCursor(cursor);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    // Cursor of the next page, or null if this is the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    private static String encodeCursor(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        // Throws IllegalArgumentException for cursors this class did not produce
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+}
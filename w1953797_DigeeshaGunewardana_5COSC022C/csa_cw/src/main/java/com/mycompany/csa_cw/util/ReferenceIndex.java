@@ -0,0 +1,53 @@
+package com.mycompany.csa_cw.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse index from a referenced ID (such as a patient or doctor ID) to the
+ * entities that reference it, keyed by their own IDs.
+ *
+ * Lookups cost only as much as the number of entities returned.
+ *
+ * @param <V> the type of the indexed entities
+ */
+public class ReferenceIndex<V> {
+    private final Map<String, Map<String, V>> buckets = new ConcurrentHashMap<>();
+
+    // Method to record that the entity with the given ID references the given key
+    public void add(String key, String id, V value) {
+        if (key == null) {
+            return; // Nothing is referenced
+        }
+        buckets.compute(key, (k, bucket) -> {
+            if (bucket == null) {
+                bucket = new ConcurrentHashMap<>();
+            }
+            bucket.put(id, value);
+            return bucket;
+        });
+    }
+
+    // Method to forget that the entity with the given ID references the given key
+    public void remove(String key, String id) {
+        if (key == null) {
+            return; // Nothing is referenced
+        }
+        // Drop the bucket once it is empty so removed keys do not leak
+        buckets.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(id);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+
+    // Method to get the entities referencing the given key
+    public List<V> get(String key) {
+        Map<String, V> bucket = key == null ? null : buckets.get(key);
+        if (bucket == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(bucket.values());
+    }
+}
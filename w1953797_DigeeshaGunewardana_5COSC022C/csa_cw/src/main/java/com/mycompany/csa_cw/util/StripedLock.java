@@ -0,0 +1,86 @@
+package com.mycompany.csa_cw.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of locks that entity IDs are spread over by hash.
+ *
+ * Writes to the same ID always take the same lock, so they happen one at a
+ * time and in a single order, while writes to different IDs usually take
+ * different locks and run in parallel. {@link #lock(Collection)} takes the
+ * stripes of a batch of IDs at once, and {@link #lockAll()} takes every stripe,
+ * for the rare operations that must see no write in progress at all.
+ */
+public class StripedLock {
+    // Enough stripes that a few dozen writer threads rarely share one
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantLock[] stripes;
+
+    public StripedLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedLock(int count) {
+        // Round up to a power of two so a stripe is picked with a mask
+        int size = Integer.highestOneBit(Math.max(1, count - 1) << 1);
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Method to get the lock guarding the given ID
+    public Lock get(String id) {
+        return stripes[indexOf(id)];
+    }
+
+    // Method to take the locks guarding all the given IDs, each stripe once and always in the same order so two
+    // callers cannot deadlock; returns the locks taken, to be released with unlock
+    public List<Lock> lock(Collection<String> ids) {
+        boolean[] needed = new boolean[stripes.length];
+        for (String id : ids) {
+            needed[indexOf(id)] = true;
+        }
+        List<Lock> taken = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            if (needed[i]) {
+                stripes[i].lock();
+                taken.add(stripes[i]);
+            }
+        }
+        return taken;
+    }
+
+    // Method to release the locks taken by lock(Collection)
+    public void unlock(List<Lock> taken) {
+        for (int i = taken.size() - 1; i >= 0; i--) {
+            taken.get(i).unlock();
+        }
+    }
+
+    // Method to take every stripe, always in the same order so two callers cannot deadlock
+    public void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    // Method to release every stripe taken by lockAll
+    public void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    // Helper method to pick the stripe of an ID
+    private int indexOf(String id) {
+        int hash = id == null ? 0 : id.hashCode();
+        // Spread the high bits, as HashMap does, since similar IDs differ mostly in their last characters
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,485 @@
+package com.mycompany.csa_cw.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Inverted index over the text fields of one type of entity, for ranked
+ * keyword searches that do not read every entity.
+ *
+ * Text is split into lowercase words (runs of letters and digits). Each word
+ * has a posting list of the documents that contain it, in document order,
+ * together with how often it occurs there, weighted by field. A document is
+ * one version of an entity: indexing an entity again gives it a new, higher
+ * document number, so posting lists only ever grow at their end.
+ *
+ * A query is a list of words, each optionally ending in '*' to match every word
+ * starting with it. Words must all match unless separated by OR, which binds
+ * less tightly than the implicit (or explicit) AND: "viral fever OR malaria"
+ * matches documents with both viral and fever, and documents with malaria.
+ * Results are ranked by TF-IDF, so rare words count more than common ones.
+ *
+ * A search walks the posting lists together in document order, skipping ahead
+ * in the longer lists by binary search. Each OR alternative knows the highest
+ * score it can add, so once the weakest alternatives together can no longer
+ * beat the best matches found so far, their documents are only looked up, not
+ * visited, and the search ends when no alternative could beat them. Searches
+ * for common words are then about as fast as searches for rare ones.
+ *
+ * @param <T> the type of the indexed entities
+ */
+public class TextIndex<T> {
+    private static final String AND = "AND";
+    private static final String OR = "OR";
+    private static final char PREFIX = '*';
+
+    private final Function<T, String> idOf;
+    private final ToLongFunction<T> versionOf;
+    private final List<Field<T>> fields;
+    // Searches share the read lock; indexing an entity takes the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Posting lists by word, in word order so a prefix query reads one range
+    private final NavigableMap<String, Postings> postings = new TreeMap<>();
+    // Current document of each indexed entity, by entity ID
+    private final Map<String, Document> documents = new HashMap<>();
+    // Entity ID of each current document, by document number
+    private final Map<Integer, String> idsByNumber = new HashMap<>();
+    private int nextNumber;
+
+    @SafeVarargs
+    public TextIndex(Function<T, String> idOf, ToLongFunction<T> versionOf, Field<T>... fields) {
+        this.idOf = idOf;
+        this.versionOf = versionOf;
+        // Copied element by element, so the varargs array itself is never kept
+        this.fields = new ArrayList<>(fields.length);
+        for (Field<T> field : fields) {
+            this.fields.add(field);
+        }
+    }
+
+    // Method to index an entity, replacing its previous version; an older version than the one indexed is ignored
+    public void put(T entity) {
+        String id = idOf.apply(entity);
+        long version = versionOf.applyAsLong(entity);
+        // Count the words outside the lock, weighted by the field they occur in
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (Field<T> field : fields) {
+            for (String word : words(field.text.apply(entity))) {
+                weights.merge(word, field.weight, Integer::sum);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            Document current = documents.get(id);
+            if (current != null) {
+                if (current.version > version) {
+                    return; // A newer version was indexed meanwhile
+                }
+                unindex(current);
+            }
+            Document document = new Document(nextNumber++, version, weights.keySet().toArray(new String[0]));
+            for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+                postings.computeIfAbsent(weight.getKey(), word -> new Postings()).add(document.number, weight.getValue());
+            }
+            documents.put(id, document);
+            idsByNumber.put(document.number, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Method to drop an entity from the index
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Document current = documents.remove(id);
+            if (current != null) {
+                unindex(current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Method to get the IDs of the best matches of a query, best first; documents that score the same keep index order
+    public List<String> search(String query, int limit) {
+        List<List<Term>> alternatives = parse(query);
+        List<String> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Conjunction> conjunctions = new ArrayList<>();
+            for (List<Term> terms : alternatives) {
+                Conjunction conjunction = conjunction(terms);
+                if (conjunction != null) {
+                    conjunction.next();
+                    conjunctions.add(conjunction);
+                }
+            }
+            // Alternatives by the highest score they can add, lowest first, with the running total of those scores
+            conjunctions.sort(Comparator.comparingDouble(Conjunction::bound));
+            float[] bounds = new float[conjunctions.size()];
+            float total = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                total += conjunctions.get(i).bound();
+                bounds[i] = total;
+            }
+            // Worst kept match on top: lowest score, then latest document
+            PriorityQueue<Hit> kept = new PriorityQueue<>(limit + 1,
+                    (a, b) -> a.score != b.score ? Float.compare(a.score, b.score) : Integer.compare(b.number, a.number));
+            // Alternatives before this one cannot together beat the worst kept match, since later documents lose ties.
+            // Their documents are no longer visited, only looked up when another alternative matches.
+            int essential = 0;
+            while (essential < conjunctions.size()) {
+                int number = Integer.MAX_VALUE;
+                for (int i = essential; i < conjunctions.size(); i++) {
+                    number = Math.min(number, conjunctions.get(i).number);
+                }
+                if (number == Integer.MAX_VALUE) {
+                    break; // Every alternative is exhausted
+                }
+                // A document matching several alternatives scores for each of them, added up in bound order
+                float score = 0;
+                for (int i = 0; i < conjunctions.size(); i++) {
+                    Conjunction conjunction = conjunctions.get(i);
+                    if (i < essential) {
+                        conjunction.advance(number);
+                    }
+                    if (conjunction.number == number) {
+                        score += conjunction.score;
+                        if (i >= essential) {
+                            conjunction.next();
+                        }
+                    }
+                }
+                if (kept.size() < limit) {
+                    kept.add(new Hit(number, score));
+                } else if (score > kept.peek().score) {
+                    kept.poll();
+                    kept.add(new Hit(number, score));
+                }
+                if (kept.size() == limit) {
+                    while (essential < bounds.length && bounds[essential] <= kept.peek().score) {
+                        essential++;
+                    }
+                }
+            }
+            List<Hit> best = new ArrayList<>(kept);
+            best.sort(Collections.reverseOrder(kept.comparator()));
+            for (Hit hit : best) {
+                ids.add(idsByNumber.get(hit.number));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ids;
+    }
+
+    // Helper method to split a query into alternatives (joined by OR), each a list of terms that must all match
+    private static List<List<Term>> parse(String query) {
+        List<List<Term>> alternatives = new ArrayList<>();
+        List<Term> terms = new ArrayList<>();
+        for (String token : query.trim().split("\\s+")) {
+            if (token.isEmpty()) {
+                continue; // A blank query
+            }
+            if (token.equals(OR)) {
+                if (!terms.isEmpty()) {
+                    alternatives.add(terms);
+                }
+                terms = new ArrayList<>();
+            } else if (!token.equals(AND)) {
+                boolean prefix = token.charAt(token.length() - 1) == PREFIX;
+                List<String> words = words(token);
+                // A token such as "covid-19" is several words; only the last can be a prefix
+                for (int i = 0; i < words.size(); i++) {
+                    terms.add(new Term(words.get(i), prefix && i == words.size() - 1));
+                }
+            }
+        }
+        if (!terms.isEmpty()) {
+            alternatives.add(terms);
+        }
+        return alternatives;
+    }
+
+    // Helper method to open the documents matching all the terms, or null if some term matches nothing
+    private Conjunction conjunction(List<Term> terms) {
+        List<Cursor> cursors = new ArrayList<>(terms.size());
+        for (Term term : terms) {
+            Cursor cursor = term.prefix ? prefixCursor(term.word) : wordCursor(postings.get(term.word));
+            if (cursor == null) {
+                return null;
+            }
+            cursors.add(cursor);
+        }
+        // Lead with the shortest list, so the others are mostly skipped through
+        cursors.sort(Comparator.comparingInt(cursor -> cursor.size));
+        return new Conjunction(cursors);
+    }
+
+    private Cursor wordCursor(Postings words) {
+        if (words == null) {
+            return null;
+        }
+        float idf = (float) Math.log(1 + (double) documents.size() / words.size);
+        return new Cursor(words.numbers, words.weights, idf, null, words.size, words.maxWeight * idf);
+    }
+
+    // Helper method to merge the posting lists of every word with the given prefix into one scored list
+    private Cursor prefixCursor(String prefix) {
+        int[] numbers = new int[0];
+        float[] scores = new float[0];
+        int size = 0;
+        for (Postings words : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            float idf = (float) Math.log(1 + (double) documents.size() / words.size);
+            int[] mergedNumbers = new int[size + words.size];
+            float[] mergedScores = new float[mergedNumbers.length];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size || j < words.size) {
+                if (j == words.size || (i < size && numbers[i] < words.numbers[j])) {
+                    mergedNumbers[count] = numbers[i];
+                    mergedScores[count++] = scores[i++];
+                } else if (i == size || numbers[i] > words.numbers[j]) {
+                    mergedNumbers[count] = words.numbers[j];
+                    mergedScores[count++] = words.weights[j++] * idf;
+                } else {
+                    mergedNumbers[count] = numbers[i];
+                    mergedScores[count++] = scores[i++] + words.weights[j++] * idf;
+                }
+            }
+            numbers = mergedNumbers;
+            scores = mergedScores;
+            size = count;
+        }
+        if (size == 0) {
+            return null;
+        }
+        float max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, scores[i]);
+        }
+        return new Cursor(numbers, null, 0, scores, size, max);
+    }
+
+    private void unindex(Document document) {
+        for (String word : document.words) {
+            Postings list = postings.get(word);
+            list.remove(document.number);
+            if (list.size == 0) {
+                postings.remove(word);
+            }
+        }
+        idsByNumber.remove(document.number);
+    }
+
+    // Helper method to split text into lowercase words
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * A text field of the entities, with how much a word found in it counts.
+     *
+     * @param <T> the type of the entities
+     */
+    public static final class Field<T> {
+        private final Function<T, String> text;
+        private final int weight;
+
+        public Field(Function<T, String> text, int weight) {
+            this.text = text;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Term {
+        private final String word;
+        private final boolean prefix;
+
+        Term(String word, boolean prefix) {
+            this.word = word;
+            this.prefix = prefix;
+        }
+    }
+
+    private static final class Document {
+        private final int number;
+        private final long version;
+        private final String[] words;
+
+        Document(int number, long version, String[] words) {
+            this.number = number;
+            this.version = version;
+            this.words = words;
+        }
+    }
+
+    private static final class Hit {
+        private final int number;
+        private final float score;
+
+        Hit(int number, float score) {
+            this.number = number;
+            this.score = score;
+        }
+    }
+
+    // The documents containing a word in document order, with the weighted number of times it occurs in each
+    private static final class Postings {
+        private int[] numbers = new int[4];
+        private int[] weights = new int[4];
+        private int size;
+        // Highest weight ever added; removals may leave it higher than any remaining weight
+        private int maxWeight;
+
+        // Document numbers only grow, so a new document always goes at the end
+        void add(int number, int weight) {
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            numbers[size] = number;
+            weights[size] = weight;
+            size++;
+            maxWeight = Math.max(maxWeight, weight);
+        }
+
+        void remove(int number) {
+            int at = Arrays.binarySearch(numbers, 0, size, number);
+            if (at >= 0) {
+                System.arraycopy(numbers, at + 1, numbers, at, size - at - 1);
+                System.arraycopy(weights, at + 1, weights, at, size - at - 1);
+                size--;
+            }
+        }
+    }
+
+    // A position in the scored documents of one term, which only moves forward
+    private static final class Cursor {
+        private final int[] numbers;
+        // Scored either as weight times IDF, for one word, or by a precomputed score, for a prefix
+        private final int[] weights;
+        private final float idf;
+        private final float[] scores;
+        private final int size;
+        private final float max;
+        private int at;
+
+        Cursor(int[] numbers, int[] weights, float idf, float[] scores, int size, float max) {
+            this.numbers = numbers;
+            this.weights = weights;
+            this.idf = idf;
+            this.scores = scores;
+            this.size = size;
+            this.max = max;
+        }
+
+        // Method to move to the first document numbered at least target, returning its number (MAX_VALUE past the end)
+        int seek(int target) {
+            if (at < size && numbers[at] < target) {
+                // Gallop forward, then binary search the last step
+                int step = 1;
+                int low = at;
+                int high = at + 1;
+                while (high < size && numbers[high] < target) {
+                    low = high;
+                    step <<= 1;
+                    high = low + step;
+                }
+                at = Arrays.binarySearch(numbers, low + 1, Math.min(high + 1, size), target);
+                if (at < 0) {
+                    at = -at - 1;
+                }
+            }
+            return at < size ? numbers[at] : Integer.MAX_VALUE;
+        }
+
+        float score() {
+            return scores != null ? scores[at] : weights[at] * idf;
+        }
+    }
+
+    // The documents matching every term of one alternative, visited in document order
+    private static final class Conjunction {
+        private final List<Cursor> cursors;
+        // Current matching document (MAX_VALUE once exhausted, -1 before the first) and its score
+        private int number = -1;
+        private float score;
+
+        Conjunction(List<Cursor> cursors) {
+            this.cursors = cursors;
+        }
+
+        // Method to move to the next document that every cursor contains
+        void next() {
+            int target = number + 1;
+            int agreed = 0;
+            // Move each cursor up to the target in turn; a cursor that lands past it raises the target for all
+            for (int i = 0; agreed < cursors.size(); i = (i + 1) % cursors.size()) {
+                int found = cursors.get(i).seek(target);
+                if (found == Integer.MAX_VALUE) {
+                    number = Integer.MAX_VALUE;
+                    return;
+                }
+                if (found == target) {
+                    agreed++;
+                } else {
+                    target = found;
+                    agreed = 1;
+                }
+            }
+            number = target;
+            score = 0;
+            for (Cursor cursor : cursors) {
+                score += cursor.score();
+            }
+        }
+
+        // Method to move to the first document numbered at least target that every cursor contains
+        void advance(int target) {
+            if (number < target) {
+                number = target - 1;
+                next();
+            }
+        }
+
+        // Method to get the highest score a document could get from this alternative
+        float bound() {
+            float bound = 0;
+            for (Cursor cursor : cursors) {
+                bound += cursor.max;
+            }
+            return bound;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.mycompany.csa_cw.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * An immutable, versioned copy of a collection that all readers share.
+ *
+ * Writers call {@link #invalidate()} after each change, which bumps the version.
+ * The first reader to see a new version copies the source once and publishes the
+ * copy; every later reader of that version gets the same list without copying.
+ *
+ * @param <T> the type of the elements
+ */
+public class VersionedSnapshot<T> {
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicReference<Snapshot<T>> published = new AtomicReference<>();
+
+    // Method to record that the source has changed; call after the change is visible in the source
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    // Method to get the current version, which changes whenever the source does
+    public long getVersion() {
+        return version.get();
+    }
+
+    // Method to get an unmodifiable snapshot that includes at least every change made before this call
+    public List<T> get(Supplier<? extends Collection<T>> source) {
+        long current = version.get();
+        Snapshot<T> snapshot = published.get();
+        if (snapshot != null && snapshot.version == current) {
+            return snapshot.items; // Shared, no copy
+        }
+        // Changes up to 'current' are already in the source, so this copy is at least that fresh
+        Snapshot<T> rebuilt = new Snapshot<>(current, Collections.unmodifiableList(new ArrayList<>(source.get())));
+        // Publish unless another reader already published the same or a newer version
+        while (snapshot == null || snapshot.version < current) {
+            if (published.compareAndSet(snapshot, rebuilt)) {
+                break;
+            }
+            snapshot = published.get();
+        }
+        return rebuilt.items;
+    }
+
+    private static final class Snapshot<T> {
+        private final long version;
+        private final List<T> items;
+
+        Snapshot(long version, List<T> items) {
+            this.version = version;
+            this.items = items;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.exception.ScheduleConflictException;
+import com.mycompany.csa_cw.model.Appointment;
+import com.mycompany.csa_cw.model.Doctor;
+import com.mycompany.csa_cw.model.Patient;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Race tests of the appointment booking: however single creates, batches and
+ * updates interleave, a doctor is never booked twice at overlapping times, and
+ * every refused booking is refused with a ScheduleConflictException.
+ */
+public class AppointmentDAOTest {
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 200;
+
+    private final AppointmentDAO appointmentDAO = new AppointmentDAO();
+    private final Doctor doctor = new Doctor("RACE1D", "Doctor One", "one@example.com", "1 Main Street", "General");
+    private final Doctor otherDoctor = new Doctor("RACE2D", "Doctor Two", "two@example.com", "2 Main Street", "General");
+    private final Patient patient = new Patient("RACE1P", "Patient One", "patient@example.com", "3 Main Street", "None", "Stable");
+
+    @Test
+    public void onlyOneOfManyBookingsOfTheSameSlotSucceeds() throws Exception {
+        LocalDate day = LocalDate.of(2030, 1, 1);
+        List<Callable<Boolean>> bookings = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            // Every start time is less than an appointment length from the others, so all of them clash
+            LocalTime time = LocalTime.of(10, 0).plusMinutes(t % 6 * 5);
+            bookings.add(() -> book(day, time, doctor));
+        }
+
+        assertEquals(1, successes(race(bookings)));
+        assertNoClashes(day);
+    }
+
+    @Test
+    public void aBatchAndASingleCreateOfTheSameSlotCannotBothSucceed() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            LocalDate day = LocalDate.of(2031, 1, 1).plusDays(round);
+            List<Callable<Boolean>> bookings = new ArrayList<>();
+            bookings.add(() -> appointmentDAO.addAppointments(Collections.singletonList(appointment(day, LocalTime.of(10, 0), doctor))).isEmpty());
+            bookings.add(() -> book(day, LocalTime.of(10, 10), doctor));
+
+            assertEquals(day.toString(), 1, successes(race(bookings)));
+            assertNoClashes(day);
+        }
+    }
+
+    @Test
+    public void updatesMovingOntoTheSameSlotCannotDoubleBookIt() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            LocalDate day = LocalDate.of(2032, 1, 1).plusDays(round);
+            List<Callable<Boolean>> moves = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                // Half of the appointments start with another doctor, so only the new doctor's lock guards their move
+                Appointment existing = appointment(day, LocalTime.of(12 + t, 0), t % 2 == 0 ? doctor : otherDoctor);
+                appointmentDAO.addAppointment(existing);
+                String id = existing.getId();
+                moves.add(() -> {
+                    try {
+                        appointmentDAO.updateAppointment(id, appointment(day, LocalTime.of(10, 0), doctor));
+                        return true;
+                    } catch (ScheduleConflictException e) {
+                        return false;
+                    }
+                });
+            }
+            moves.add(() -> book(day, LocalTime.of(10, 15), doctor));
+
+            assertEquals(day.toString(), 1, successes(race(moves)));
+            assertNoClashes(day);
+        }
+    }
+
+    // Helper method to book one appointment, returning false if it clashes
+    private boolean book(LocalDate day, LocalTime time, Doctor with) {
+        try {
+            appointmentDAO.addAppointment(appointment(day, time, with));
+            return true;
+        } catch (ScheduleConflictException e) {
+            return false;
+        }
+    }
+
+    private Appointment appointment(LocalDate day, LocalTime time, Doctor with) {
+        return new Appointment(null, day.toString(), time.toString(), with, patient);
+    }
+
+    // Helper method to run the tasks at the same moment, one per thread, and collect their results
+    private static List<Boolean> race(List<Callable<Boolean>> tasks) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (Callable<Boolean> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<Boolean> results = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int successes(List<Boolean> results) {
+        return Collections.frequency(results, Boolean.TRUE);
+    }
+
+    // Helper method to check that no two appointments of the same doctor on the day start less than an appointment length apart
+    private void assertNoClashes(LocalDate day) {
+        List<Appointment> booked = appointmentDAO.getAppointmentsByDate(day.toString());
+        for (int i = 0; i < booked.size(); i++) {
+            for (int j = i + 1; j < booked.size(); j++) {
+                Appointment first = booked.get(i);
+                Appointment second = booked.get(j);
+                if (first.getDoctor().getId().equals(second.getDoctor().getId())) {
+                    long apart = Math.abs(LocalTime.parse(first.getTime()).toSecondOfDay() - LocalTime.parse(second.getTime()).toSecondOfDay());
+                    assertTrue(first.getId() + " clashes with " + second.getId(), apart >= AppointmentDAO.APPOINTMENT_LENGTH.getSeconds());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.model.Billing;
+import com.mycompany.csa_cw.model.Patient;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Stress test of the running billing totals: many threads adding, updating
+ * and deleting billings of the same few patients at once must leave every
+ * total equal to the sum of that patient's stored billings.
+ */
+public class BillingDAOTest {
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 2000;
+    private static final int PATIENTS = 4;
+
+    private final BillingDAO billingDAO = new BillingDAO();
+
+    @Test
+    public void concurrentWritesLeaveNoDriftInTheTotals() throws Exception {
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 1; i <= PATIENTS; i++) {
+            patients.add(new Patient("STRESS" + i + "P", "Patient " + i, "patient@example.com", "1 Main Street", "None", "Stable"));
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    List<String> own = new ArrayList<>();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        Patient patient = patients.get(random.nextInt(PATIENTS));
+                        // Amounts such as 0.1 are not exact as doubles, so a total kept in doubles would drift
+                        double amount = random.nextInt(1000) / 10.0;
+                        int operation = own.isEmpty() ? 0 : random.nextInt(3);
+                        if (operation == 0) {
+                            Billing billing = new Billing(null, "Invoice", "Payment", amount, patient, null);
+                            billingDAO.addBilling(billing);
+                            own.add(billing.getId());
+                        } else if (operation == 1) {
+                            // Moving a billing to another patient changes two totals at once
+                            String id = own.get(random.nextInt(own.size()));
+                            billingDAO.updateBilling(id, new Billing(null, "Invoice", "Payment", amount, patient, null));
+                        } else {
+                            billingDAO.deleteBilling(own.remove(random.nextInt(own.size())));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (Patient patient : patients) {
+            BigDecimal expected = BigDecimal.ZERO;
+            for (Billing billing : billingDAO.getBillingsByPatientId(patient.getId())) {
+                expected = expected.add(BigDecimal.valueOf(billing.getOutstandingBalance()));
+            }
+            assertEquals(patient.getId(), expected.doubleValue(), billingDAO.getTotalBillByPatientId(patient.getId()), 0);
+        }
+        // Recomputing the totals from the stored billings finds nothing to correct
+        Map<String, Double> drift = billingDAO.rebuildTotals();
+        assertTrue(drift.toString(), drift.isEmpty());
+    }
+}
@@ -0,0 +1,109 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.persistence.Journal;
+import com.mycompany.csa_cw.persistence.JournalRecord;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that DAO changes are journaled before they are applied: an
+ * acknowledged change can be replayed, a batch is one record, and a change the
+ * journal refuses is never visible.
+ */
+public class DataStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PatientDAO patientDAO = new PatientDAO();
+
+    @After
+    public void detachJournal() throws IOException {
+        Journal journal = DataStore.detach();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    public void acknowledgedChangesAreInTheJournal() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        DataStore.attach(Journal.open(directory, true, record -> { }));
+        Patient patient = newPatient("Journaled Patient");
+        patientDAO.addPatient(patient);
+        patientDAO.deletePatient(patient.getId());
+        DataStore.detach().close();
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        Journal.open(directory, true, replayed::add).close();
+        assertEquals(2, replayed.size());
+        assertEquals(JournalRecord.Operation.PUT, replayed.get(0).getOperation());
+        assertEquals(patient.getId(), replayed.get(0).getId());
+        assertEquals(JournalRecord.Operation.DELETE, replayed.get(1).getOperation());
+    }
+
+    @Test
+    public void batchesAreJournaledAsOneRecord() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        DataStore.attach(Journal.open(directory, true, record -> { }));
+        List<Patient> batch = Arrays.asList(newPatient("Batch One"), newPatient("Batch Two"), newPatient("Batch Three"));
+        patientDAO.addPatients(batch);
+        DataStore.detach().close();
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        Journal.open(directory, true, replayed::add).close();
+        assertEquals(1, replayed.size());
+        assertEquals(JournalRecord.Operation.PUT_ALL, replayed.get(0).getOperation());
+        assertEquals(3, replayed.get(0).getEntity().size());
+
+        // Replaying the one record brings back the whole batch
+        for (Patient patient : batch) {
+            patientDAO.deletePatient(patient.getId());
+        }
+        DataStore.recover(replayed.get(0));
+        for (Patient patient : batch) {
+            assertEquals(patient.getName(), patientDAO.getPatientById(patient.getId()).getName());
+        }
+    }
+
+    @Test
+    public void changesTheJournalRefusesAreNotApplied() throws IOException {
+        Patient stored = newPatient("Stored Patient");
+        patientDAO.addPatient(stored);
+        Journal closed = Journal.open(folder.getRoot().toPath(), true, record -> { });
+        closed.close();
+        DataStore.attach(closed);
+
+        Patient refused = newPatient("Refused Patient");
+        try {
+            patientDAO.addPatient(refused);
+            fail("A closed journal must refuse the change");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertNull(patientDAO.getPatientById(refused.getId()));
+
+        try {
+            patientDAO.updatePatient(stored.getId(), newPatient("Renamed Patient"));
+            fail("A closed journal must refuse the change");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertEquals("Stored Patient", patientDAO.getPatientById(stored.getId()).getName());
+        assertEquals(1, patientDAO.getPatientById(stored.getId()).getVersion());
+    }
+
+    private static Patient newPatient(String name) {
+        return new Patient(null, name, "patient@example.com", "1 Main Street", "None", "Stable");
+    }
+}
@@ -0,0 +1,55 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.persistence.Database;
+import java.util.Properties;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that the sample data is put into a new database only once, so
+ * patients deleted from it stay deleted when the application restarts.
+ */
+public class JdbcPatientDAOTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Database database;
+
+    @After
+    public void closeDatabase() {
+        DAOFactory.useMemory();
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Test
+    public void deletedSamplePatientsAreNotSeededAgain() throws Exception {
+        String url = "jdbc:h2:" + folder.getRoot().getAbsolutePath() + "/csa_cw";
+        database = open(url);
+        DAOFactory.useDatabase(database);
+        assertNotNull(DAOFactory.patientDAO().getPatientById("003"));
+        DAOFactory.patientDAO().deletePatient("003");
+        DAOFactory.patientDAO().deletePatient("004");
+        assertTrue(DAOFactory.patientDAO().getAllPatients().isEmpty());
+        DAOFactory.useMemory();
+        database.close();
+
+        // Restart on the same database file
+        database = open(url);
+        DAOFactory.useDatabase(database);
+        assertTrue(DAOFactory.patientDAO().getAllPatients().isEmpty());
+    }
+
+    private static Database open(String url) {
+        Properties settings = new Properties();
+        settings.setProperty(Database.DRIVER, "org.h2.Driver");
+        settings.setProperty(Database.URL, url);
+        settings.setProperty(Database.USER, "sa");
+        return new Database(settings);
+    }
+}
@@ -0,0 +1,82 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.model.Patient;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests of the patient storage keyed by ID: every patient added is found by
+ * its ID, also when many are added at once, and updates and deletes act on
+ * exactly the patient with the given ID.
+ */
+public class PatientDAOTest {
+    private static final int THREADS = 8;
+    private static final int PATIENTS_PER_THREAD = 500;
+
+    private final PatientDAO patientDAO = new PatientDAO();
+
+    @Test
+    public void everyConcurrentlyAddedPatientIsFoundById() throws Exception {
+        int before = patientDAO.getAllPatients().size();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Patient>>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<Patient> added = new ArrayList<>();
+                    for (int i = 0; i < PATIENTS_PER_THREAD; i++) {
+                        Patient patient = new Patient(null, "Patient " + i, "patient@example.com", "1 Main Street", "None", "Stable");
+                        patientDAO.addPatient(patient);
+                        added.add(patient);
+                    }
+                    return added;
+                }));
+            }
+            start.countDown();
+            Set<String> ids = new HashSet<>();
+            for (Future<List<Patient>> future : futures) {
+                for (Patient patient : future.get(60, TimeUnit.SECONDS)) {
+                    assertTrue("Duplicate ID " + patient.getId(), ids.add(patient.getId()));
+                    assertSame(patient, patientDAO.getPatientById(patient.getId()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(before + THREADS * PATIENTS_PER_THREAD, patientDAO.getAllPatients().size());
+    }
+
+    @Test
+    public void updatesAndDeletesActOnThePatientWithTheId() {
+        // The stored patient keeps the ID it is updated under, whatever ID the new data carries
+        patientDAO.updatePatient("003", new Patient("999", "Alice Brown", "alice@example.com", "1 Main Street", "Fever", "Good"));
+        assertEquals("Alice Brown", patientDAO.getPatientById("003").getName());
+        assertEquals("003", patientDAO.getPatientById("003").getId());
+        assertNull(patientDAO.getPatientById("999"));
+        assertEquals("John Smith", patientDAO.getPatientById("004").getName());
+
+        Map<String, Patient> found = patientDAO.getPatientsById(Arrays.asList("003", "004", "missing"));
+        assertEquals(new HashSet<>(Arrays.asList("003", "004")), found.keySet());
+
+        patientDAO.deletePatient("003");
+        assertNull(patientDAO.getPatientById("003"));
+        assertEquals("John Smith", patientDAO.getPatientById("004").getName());
+        assertEquals(1, patientDAO.getPatientsById(Arrays.asList("003", "004")).size());
+    }
+}
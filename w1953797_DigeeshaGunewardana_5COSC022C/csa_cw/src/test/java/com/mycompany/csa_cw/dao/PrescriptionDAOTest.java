@@ -0,0 +1,68 @@
+package com.mycompany.csa_cw.dao;
+
+import com.mycompany.csa_cw.model.Doctor;
+import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.model.Prescription;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests that the lookups of prescriptions by patient and by doctor follow
+ * every add, update and delete, including updates that move a prescription
+ * to another patient or doctor.
+ */
+public class PrescriptionDAOTest {
+    private final PrescriptionDAO prescriptionDAO = new PrescriptionDAO();
+    private final Patient firstPatient = new Patient("REF1P", "Patient One", "one@example.com", "1 Main Street", "None", "Stable");
+    private final Patient secondPatient = new Patient("REF2P", "Patient Two", "two@example.com", "2 Main Street", "None", "Stable");
+    private final Doctor firstDoctor = new Doctor("REF1D", "Doctor One", "one@example.com", "3 Main Street", "General");
+    private final Doctor secondDoctor = new Doctor("REF2D", "Doctor Two", "two@example.com", "4 Main Street", "General");
+
+    @Test
+    public void lookupsByPatientAndDoctorFollowEveryWrite() {
+        Prescription first = prescription(firstPatient, firstDoctor);
+        Prescription second = prescription(firstPatient, secondDoctor);
+        prescriptionDAO.addPrescription(first);
+        prescriptionDAO.addPrescription(second);
+        assertEquals(ids(first, second), idsOf(prescriptionDAO.getPrescriptionsByPatientId("REF1P")));
+        assertEquals(ids(first), idsOf(prescriptionDAO.getPrescriptionsByDoctorId("REF1D")));
+        assertEquals(ids(second), idsOf(prescriptionDAO.getPrescriptionsByDoctorId("REF2D")));
+
+        // Moving a prescription to another patient and doctor updates both lookups on both sides
+        prescriptionDAO.updatePrescription(first.getId(), prescription(secondPatient, secondDoctor));
+        assertEquals(ids(second), idsOf(prescriptionDAO.getPrescriptionsByPatientId("REF1P")));
+        assertEquals(ids(first), idsOf(prescriptionDAO.getPrescriptionsByPatientId("REF2P")));
+        assertEquals(ids(), idsOf(prescriptionDAO.getPrescriptionsByDoctorId("REF1D")));
+        assertEquals(ids(first, second), idsOf(prescriptionDAO.getPrescriptionsByDoctorId("REF2D")));
+
+        prescriptionDAO.deletePrescription(second.getId());
+        assertEquals(ids(), idsOf(prescriptionDAO.getPrescriptionsByPatientId("REF1P")));
+        assertEquals(ids(first), idsOf(prescriptionDAO.getPrescriptionsByDoctorId("REF2D")));
+    }
+
+    @Test
+    public void unknownOrMissingReferencesFindNothing() {
+        assertEquals(ids(), idsOf(prescriptionDAO.getPrescriptionsByPatientId("UNKNOWN")));
+        assertEquals(ids(), idsOf(prescriptionDAO.getPrescriptionsByDoctorId(null)));
+    }
+
+    private static Prescription prescription(Patient patient, Doctor doctor) {
+        return new Prescription(null, "Paracetamol", "500 mg", "After meals", "5 days", patient, doctor);
+    }
+
+    private static List<String> ids(Prescription... prescriptions) {
+        List<String> ids = new ArrayList<>();
+        for (Prescription prescription : prescriptions) {
+            ids.add(prescription.getId());
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private static List<String> idsOf(List<Prescription> prescriptions) {
+        return ids(prescriptions.toArray(new Prescription[0]));
+    }
+}
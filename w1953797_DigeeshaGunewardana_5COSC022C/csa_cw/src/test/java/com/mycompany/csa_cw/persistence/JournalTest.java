@@ -0,0 +1,132 @@
+package com.mycompany.csa_cw.persistence;
+
+import com.mycompany.csa_cw.model.Patient;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Crash-recovery tests of the journal: replay after a write torn by a crash,
+ * and replay across rotated segments.
+ */
+public class JournalTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replayStopsAtATornLastRecordAndCutsItOff() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (Journal journal = Journal.open(directory, true, record -> fail("Nothing to replay"))) {
+            for (int i = 1; i <= 3; i++) {
+                journal.appendPut("Patient", i + "P", patient(i)).await();
+            }
+        }
+        Path segment = onlySegment(directory);
+        long intact = Files.size(segment);
+        // A crash in the middle of writing the fourth record leaves part of a line behind
+        Files.write(segment, "0badc0de 4 {\"operation\":\"PUT\",\"type\":\"Pat".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND);
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (Journal journal = Journal.open(directory, true, replayed::add)) {
+            assertEquals(intact, Files.size(segment));
+            assertEquals(3, journal.getLastSequence());
+            // New records follow the last intact one
+            journal.appendPut("Patient", "4P", patient(4)).await();
+        }
+        assertEquals(sequences(1, 3), sequencesOf(replayed));
+        assertEquals("3P", replayed.get(2).getId());
+
+        replayed.clear();
+        try (Journal journal = Journal.open(directory, true, replayed::add)) {
+            assertEquals(4, journal.getLastSequence());
+        }
+        assertEquals(sequences(1, 4), sequencesOf(replayed));
+        assertEquals("Patient 4", replayed.get(3).getEntity().get("name").asText());
+    }
+
+    @Test
+    public void replayFollowsRotatedSegments() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (Journal journal = Journal.open(directory, false, record -> fail("Nothing to replay"))) {
+            journal.appendPut("Patient", "1P", patient(1)).await();
+            journal.appendPut("Patient", "2P", patient(2)).await();
+            assertEquals(2, journal.rotate());
+            journal.appendDelete("Patient", "1P").await();
+            assertEquals(3, journal.rotate());
+            journal.appendPut("Patient", "3P", patient(3)).await();
+        }
+        assertEquals(3, segments(directory).size());
+
+        List<JournalRecord> replayed = new ArrayList<>();
+        try (Journal journal = Journal.open(directory, true, replayed::add)) {
+            assertEquals(4, journal.getLastSequence());
+        }
+        assertEquals(sequences(1, 4), sequencesOf(replayed));
+        assertEquals(JournalRecord.Operation.DELETE, replayed.get(2).getOperation());
+
+        // Records covered by a snapshot are skipped, and the segments holding only those can go
+        replayed.clear();
+        try (Journal journal = Journal.open(directory, true, 2, replayed::add)) {
+            journal.deleteSegmentsUpTo(2);
+        }
+        assertEquals(sequences(3, 4), sequencesOf(replayed));
+        assertEquals(2, segments(directory).size());
+    }
+
+    @Test
+    public void missingRecordsAreAnError() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        try (Journal journal = Journal.open(directory, true, record -> fail("Nothing to replay"))) {
+            journal.appendPut("Patient", "1P", patient(1)).await();
+            journal.rotate();
+            journal.appendPut("Patient", "2P", patient(2)).await();
+        }
+        Files.delete(segments(directory).get(0));
+        try {
+            Journal.open(directory, true, record -> { }).close();
+            fail("A journal whose first records are gone must not open");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("missing"));
+        }
+    }
+
+    static Patient patient(int number) {
+        return new Patient(number + "P", "Patient " + number, "patient" + number + "@example.com", number + " Main Street", "None", "Stable");
+    }
+
+    private static Path onlySegment(Path directory) throws IOException {
+        List<Path> segments = segments(directory);
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("journal-")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static List<Long> sequences(long from, long to) {
+        List<Long> sequences = new ArrayList<>();
+        for (long sequence = from; sequence <= to; sequence++) {
+            sequences.add(sequence);
+        }
+        return sequences;
+    }
+
+    private static List<Long> sequencesOf(List<JournalRecord> records) {
+        return records.stream().map(JournalRecord::getSequence).collect(Collectors.toList());
+    }
+}
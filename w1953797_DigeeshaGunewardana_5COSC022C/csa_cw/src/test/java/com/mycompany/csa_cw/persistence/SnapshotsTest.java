@@ -0,0 +1,118 @@
+package com.mycompany.csa_cw.persistence;
+
+import com.mycompany.csa_cw.dao.DAOFactory;
+import com.mycompany.csa_cw.dao.DataStore;
+import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.util.Json;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Crash-recovery test of the snapshots: a damaged newest snapshot is set aside
+ * and the data is rebuilt from the older one plus the journal behind it.
+ */
+public class SnapshotsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recoversFromTheOlderSnapshotWhenTheNewestIsCorrupt() throws IOException {
+        Path snapshots = folder.newFolder("snapshots").toPath();
+        Path journalDirectory = folder.newFolder("journal").toPath();
+        Patient first = new Patient("901P", "First Name", "first@example.com", "1 Main Street", "None", "Stable");
+        Patient renamed = new Patient("901P", "Second Name", "first@example.com", "1 Main Street", "None", "Stable");
+        Patient added = new Patient("902P", "Third Name", "third@example.com", "2 Main Street", "None", "Good");
+        try (Journal journal = Journal.open(journalDirectory, true, record -> { })) {
+            journal.appendPut(DataStore.PATIENT, "901P", first).await();
+            SnapshotFile.write(snapshots, 1, patients(first), Json.cborMapper()::writeValueAsBytes);
+            journal.appendPut(DataStore.PATIENT, "901P", renamed).await();
+            journal.appendPut(DataStore.PATIENT, "902P", added).await();
+        }
+        Path newest = SnapshotFile.write(snapshots, 3, patients(renamed, added), Json.cborMapper()::writeValueAsBytes);
+        flipByte(newest, Files.size(newest) / 2);
+
+        long covered = Snapshots.loadLatest(snapshots);
+        assertEquals(1, covered);
+        assertFalse(Files.exists(newest));
+        assertTrue(Files.exists(newest.resolveSibling(newest.getFileName() + ".corrupt")));
+        assertEquals("First Name", DAOFactory.patientDAO().getPatientById("901P").getName());
+
+        // The journal behind the older snapshot brings the data up to date
+        Journal.open(journalDirectory, true, covered, DataStore::recover).close();
+        assertEquals("Second Name", DAOFactory.patientDAO().getPatientById("901P").getName());
+        assertEquals("Third Name", DAOFactory.patientDAO().getPatientById("902P").getName());
+    }
+
+    @Test
+    public void deletedSampleDataStaysDeletedAfterARestart() throws IOException {
+        Path snapshots = folder.newFolder("snapshots").toPath();
+        Path journalDirectory = folder.newFolder("journal").toPath();
+        Patient sample = DAOFactory.patientDAO().getPatientById("003");
+        byte[] sampleJson = Json.mapper().writeValueAsBytes(sample);
+        try (Journal journal = Journal.open(journalDirectory, true, record -> { })) {
+            DataStore.attach(journal);
+            try {
+                Snapshots taker = new Snapshots(snapshots, journal, 0);
+                DAOFactory.patientDAO().deletePatient("003");
+                taker.take();
+                DAOFactory.patientDAO().addPatient(new Patient(null, "New Patient", "new@example.com", "3 Main Street", "None", "Good"));
+                // The second snapshot trims the journal segment holding the delete
+                taker.take();
+            } finally {
+                DataStore.detach();
+            }
+        }
+
+        // A restarted process starts with its sample data again
+        DataStore.load(DataStore.PATIENT, sampleJson, Json.mapper());
+        assertEquals(sample.getName(), DAOFactory.patientDAO().getPatientById("003").getName());
+
+        long covered = Snapshots.loadLatest(snapshots);
+        Journal.open(journalDirectory, true, covered, DataStore::recover).close();
+        assertNull(DAOFactory.patientDAO().getPatientById("003"));
+        assertEquals("New Patient", DAOFactory.patientDAO().searchPatientsByName("New Patient", 1).get(0).getName());
+    }
+
+    @Test
+    public void readsSnapshotsWrittenInJson() throws IOException {
+        Path snapshots = folder.newFolder("snapshots").toPath();
+        Patient patient = new Patient("903P", "Json Name", "json@example.com", "4 Main Street", "None", "Stable");
+        Path file = SnapshotFile.write(snapshots, 7, patients(patient), Json.mapper()::writeValueAsBytes);
+        // Mark the file as format version 1, whose entities are JSON
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write((ByteBuffer) ByteBuffer.allocate(4).putInt(1).flip(), 4);
+        }
+
+        assertEquals(7, Snapshots.loadLatest(snapshots));
+        assertEquals("Json Name", DAOFactory.patientDAO().getPatientById("903P").getName());
+    }
+
+    private static Map<String, Collection<?>> patients(Patient... patients) {
+        return Collections.singletonMap(DataStore.PATIENT, Arrays.asList(patients));
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer one = ByteBuffer.allocate(1);
+            channel.read(one, position);
+            one.put(0, (byte) ~one.get(0));
+            one.rewind();
+            channel.write(one, position);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.mycompany.csa_cw.resource;
+
+import com.mycompany.csa_cw.dao.DAOFactory;
+import com.mycompany.csa_cw.model.Appointment;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests that a batch of appointments posted before anything else has touched
+ * the appointments is never given the ID of a sample appointment. Surefire
+ * runs each test class in a fresh JVM, so this request is the first one.
+ */
+public class AppointmentBatchTest {
+    private final Requests requests = new Requests();
+
+    @Test
+    public void aBatchOnAColdStartKeepsTheSampleAppointment() {
+        Requests.Reply reply = requests.sendJson("POST", "appointments/batch?doctorId=003&patientId=003",
+                "[{\"date\":\"2025-01-02\",\"time\":\"10:00\"},{\"date\":\"2025-01-02\",\"time\":\"11:00\"}]");
+        assertTrue(reply.text(), reply.status < 300);
+
+        Appointment sample = DAOFactory.appointmentDAO().getAppointmentById("APP001");
+        assertEquals("2024-05-06", sample.getDate());
+        assertEquals("09:00", sample.getTime());
+        assertEquals(3, DAOFactory.appointmentDAO().getAllAppointments().size());
+    }
+}
@@ -0,0 +1,37 @@
+package com.mycompany.csa_cw.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests that appointment requests with a date or time that cannot be parsed
+ * are refused with 400 Bad Request rather than failing with a server error.
+ */
+public class AppointmentResourceTest {
+    private static final Requests requests = new Requests();
+
+    @Test
+    public void schedulingWithAnInvalidDateIsABadRequest() {
+        Requests.Reply reply = requests.sendJson("POST", "appointments?doctorId=003&patientId=003", "{\"date\":\"2024-13-45\",\"time\":\"09:00\"}");
+        assertEquals(400, reply.status);
+        assertTrue(reply.text(), reply.text().contains("Invalid appointment date or time"));
+
+        // The same appointment with a valid date is scheduled
+        reply = requests.sendJson("POST", "appointments?doctorId=003&patientId=003", "{\"date\":\"2024-12-30\",\"time\":\"09:00\"}");
+        assertEquals(201, reply.status);
+    }
+
+    @Test
+    public void updatingWithAnInvalidTimeIsABadRequest() {
+        Requests.Reply reply = requests.sendJson("PUT", "appointments/APP001?doctorId=004&patientId=004", "{\"date\":\"2024-05-06\",\"time\":\"25:00\"}");
+        assertEquals(400, reply.status);
+        assertTrue(reply.text(), reply.text().contains("Invalid appointment date or time"));
+    }
+
+    @Test
+    public void schedulingWithoutADateIsABadRequest() {
+        Requests.Reply reply = requests.sendJson("POST", "appointments?doctorId=003&patientId=003", "{\"time\":\"09:00\"}");
+        assertEquals(400, reply.status);
+    }
+}
@@ -0,0 +1,66 @@
+package com.mycompany.csa_cw.resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mycompany.csa_cw.model.Patient;
+import com.mycompany.csa_cw.util.Json;
+import java.io.IOException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests that the resources read and write CBOR when the client asks for it,
+ * and keep to JSON otherwise.
+ */
+public class CborTest {
+    private static final Requests requests = new Requests();
+    private static final ObjectMapper cbor = Json.cborMapper();
+
+    @Test
+    public void writesAnEntityAsCborWhenAskedFor() throws IOException {
+        Requests.Reply reply = requests.send("GET", "patients/003", "Accept", "application/cbor");
+        assertEquals(200, reply.status);
+        assertEquals("application/cbor", reply.header("Content-Type"));
+        Patient patient = cbor.readValue(reply.body, Patient.class);
+        assertEquals("003", patient.getId());
+        assertEquals("Alice Johnson", patient.getName());
+
+        // JSON is preferred here, so the same patient comes back as JSON
+        reply = requests.send("GET", "patients/003", "Accept", "application/json, application/cbor;q=0.5");
+        assertTrue(reply.header("Content-Type"), reply.header("Content-Type").startsWith("application/json"));
+        assertEquals("Alice Johnson", Json.mapper().readTree(reply.body).get("name").asText());
+    }
+
+    @Test
+    public void writesACollectionAsCbor() throws IOException {
+        Requests.Reply reply = requests.send("GET", "patients", "Accept", "application/cbor");
+        assertEquals(200, reply.status);
+        JsonNode patients = cbor.readTree(reply.body);
+        assertTrue(patients.isArray());
+        assertEquals("003", patients.get(0).get("id").asText());
+    }
+
+    @Test
+    public void readsACborBody() throws IOException {
+        Patient patient = new Patient(null, "Cora Binary", "cora@example.com", "2 Main Street", "None", "Stable");
+        Requests.Reply reply = requests.send("POST", "patients", "application/cbor", cbor.writeValueAsBytes(patient));
+        assertEquals(reply.text(), 201, reply.status);
+
+        reply = requests.send("GET", "patients", "Accept", "application/cbor");
+        boolean found = false;
+        for (JsonNode each : cbor.readTree(reply.body)) {
+            found |= "Cora Binary".equals(each.get("name").asText());
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    public void writesTheTotalBillAsCbor() throws IOException {
+        Requests.Reply json = requests.send("GET", "billings/total/003", "Accept", "application/json");
+        Requests.Reply reply = requests.send("GET", "billings/total/003", "Accept", "application/cbor");
+        assertEquals(200, reply.status);
+        assertEquals("application/cbor", reply.header("Content-Type"));
+        assertEquals(Json.mapper().readTree(json.body).get("totalBill").asDouble(), cbor.readTree(reply.body).get("totalBill").asDouble(), 0);
+    }
+}
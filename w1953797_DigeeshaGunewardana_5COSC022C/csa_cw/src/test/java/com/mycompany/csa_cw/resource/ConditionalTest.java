@@ -0,0 +1,53 @@
+package com.mycompany.csa_cw.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests of the entity tags: a client holding the current version is answered
+ * 304 Not Modified, and an update based on an older version is refused with
+ * 412 Precondition Failed.
+ */
+public class ConditionalTest {
+    private static final String PATIENT = "{\"name\":\"Alice Brown\",\"contactInformation\":\"alice@example.com\",\"address\":\"1 Main Street\"}";
+
+    private static final Requests requests = new Requests();
+
+    @Test
+    public void anUnchangedEntityIsNotSentAgain() {
+        Requests.Reply first = requests.send("GET", "patients/003", "Accept", "application/json");
+        assertEquals(200, first.status);
+        String tag = first.header("ETag");
+        assertNotNull(tag);
+
+        Requests.Reply again = requests.send("GET", "patients/003", "Accept", "application/json", "If-None-Match", tag);
+        assertEquals(304, again.status);
+        assertEquals(0, again.body.length);
+        assertEquals(tag, again.header("ETag"));
+
+        // Another representation of the same version has its own tag
+        Requests.Reply cbor = requests.send("GET", "patients/003", "Accept", Representation.APPLICATION_CBOR, "If-None-Match", tag);
+        assertEquals(200, cbor.status);
+        assertNotEquals(tag, cbor.header("ETag"));
+    }
+
+    @Test
+    public void anUpdateBasedOnAnOlderVersionIsRefused() {
+        String tag = requests.send("GET", "patients/004", "Accept", "application/json").header("ETag");
+
+        Requests.Reply update = requests.sendJson("PUT", "patients/004", PATIENT, "If-Match", tag);
+        assertEquals(200, update.status);
+        Requests.Reply current = requests.send("GET", "patients/004", "Accept", "application/json", "If-None-Match", tag);
+        assertEquals(200, current.status);
+        assertTrue(current.text(), current.text().contains("Alice Brown"));
+
+        // The tag read before the update no longer matches
+        assertEquals(412, requests.sendJson("PUT", "patients/004", PATIENT, "If-Match", tag).status);
+        // The tag of the current version matches, in any representation
+        String cborTag = requests.send("GET", "patients/004", "Accept", Representation.APPLICATION_CBOR).header("ETag");
+        assertEquals(200, requests.sendJson("PUT", "patients/004", PATIENT, "If-Match", cborTag).status);
+    }
+}
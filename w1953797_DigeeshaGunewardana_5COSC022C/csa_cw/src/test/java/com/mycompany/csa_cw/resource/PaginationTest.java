@@ -0,0 +1,38 @@
+package com.mycompany.csa_cw.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests paging through a collection endpoint with the limit and cursor
+ * parameters and the X-Next-Cursor and Link headers.
+ */
+public class PaginationTest {
+    private static final Requests requests = new Requests();
+
+    @Test
+    public void followsTheNextCursorToTheLastPage() {
+        Requests.Reply first = requests.send("GET", "patients?limit=1", "Accept", "application/json");
+        assertEquals(200, first.status);
+        assertTrue(first.text(), first.text().contains("\"003\""));
+        String cursor = first.header("X-Next-Cursor");
+        assertNotNull(cursor);
+        assertTrue(first.header("Link"), first.header("Link").contains("rel=\"next\""));
+
+        Requests.Reply second = requests.send("GET", "patients?limit=1&cursor=" + cursor, "Accept", "application/json");
+        assertEquals(200, second.status);
+        assertTrue(second.text(), second.text().contains("\"004\""));
+        assertFalse(second.text(), second.text().contains("\"003\""));
+        assertNull(second.header("X-Next-Cursor"));
+    }
+
+    @Test
+    public void aBadCursorOrLimitIsABadRequest() {
+        assertEquals(400, requests.send("GET", "patients?cursor=not-a-cursor!", "Accept", "application/json").status);
+        assertEquals(400, requests.send("GET", "patients?limit=0", "Accept", "application/json").status);
+    }
+}
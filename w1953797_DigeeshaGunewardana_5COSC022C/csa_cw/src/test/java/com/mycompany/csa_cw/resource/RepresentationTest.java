@@ -0,0 +1,92 @@
+package com.mycompany.csa_cw.resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests the expand and fields query parameters, which choose whether the
+ * patient and doctor of an entity are written whole or as IDs, and which
+ * properties of each entity are written.
+ */
+public class RepresentationTest {
+    private static final Requests requests = new Requests();
+    private static final ObjectMapper mapper = new ObjectMapper();
+    // The sample appointment, given doctor 003 and patient 004; it has neither to begin with
+    private static final String APPOINTMENT = "appointments/" + schedule();
+
+    @Test
+    public void writesThePatientAndDoctorAsIdsByDefault() throws IOException {
+        JsonNode appointment = get(APPOINTMENT);
+        assertEquals("003", appointment.get("doctorId").asText());
+        assertEquals("004", appointment.get("patientId").asText());
+        assertFalse(appointment.has("doctor"));
+        assertFalse(appointment.has("patient"));
+    }
+
+    @Test
+    public void writesAnExpandedDoctorWhole() throws IOException {
+        JsonNode appointment = get(APPOINTMENT + "?expand=doctor");
+        assertEquals("003", appointment.get("doctor").get("id").asText());
+        assertTrue(appointment.get("doctor").has("name"));
+        assertFalse(appointment.has("doctorId"));
+        // The patient is not named, so it stays an ID
+        assertEquals("004", appointment.get("patientId").asText());
+        assertFalse(appointment.has("patient"));
+    }
+
+    @Test
+    public void writesOnlyTheListedFields() throws IOException {
+        JsonNode appointment = get(APPOINTMENT + "?fields=id,date,patientId");
+        assertEquals(Arrays.asList("date", "id", "patientId"), sortedNames(appointment));
+
+        // Each entity of a collection is cut down the same way
+        JsonNode appointments = get("appointments?fields=id");
+        assertTrue(appointments.size() > 0);
+        for (JsonNode each : appointments) {
+            assertEquals(Arrays.asList("id"), sortedNames(each));
+        }
+    }
+
+    @Test
+    public void eachVariantHasItsOwnETag() {
+        Requests.Reply whole = requests.send("GET", APPOINTMENT, "Accept", "application/json");
+        Requests.Reply expanded = requests.send("GET", APPOINTMENT + "?expand=doctor", "Accept", "application/json");
+        assertNotEquals(whole.header("ETag"), expanded.header("ETag"));
+    }
+
+    @Test
+    public void expandingAnythingElseIsABadRequest() {
+        assertEquals(400, requests.send("GET", APPOINTMENT + "?expand=date", "Accept", "application/json").status);
+    }
+
+    private static String schedule() {
+        Requests.Reply reply = requests.sendJson("PUT", "appointments/APP001?doctorId=003&patientId=004", "{\"date\":\"2024-05-06\",\"time\":\"09:00\"}");
+        assertEquals(reply.text(), 200, reply.status);
+        return "APP001";
+    }
+
+    private static JsonNode get(String path) throws IOException {
+        Requests.Reply reply = requests.send("GET", path, "Accept", "application/json");
+        assertEquals(reply.text(), 200, reply.status);
+        return mapper.readTree(reply.body);
+    }
+
+    private static List<String> sortedNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        for (Iterator<String> it = node.fieldNames(); it.hasNext();) {
+            names.add(it.next());
+        }
+        names.sort(null);
+        return names;
+    }
+}
@@ -0,0 +1,78 @@
+package com.mycompany.csa_cw.resource;
+
+import com.mycompany.csa_cw.persistence.PersistenceLifecycle;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import javax.ws.rs.core.MediaType;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.jackson.JacksonFeature;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+
+/**
+ * Sends requests to the application in-process, configured as web.xml
+ * configures it but without the journal, and hands back the responses.
+ */
+final class Requests {
+    private static final URI BASE = URI.create("http://localhost/rest/");
+
+    private final ApplicationHandler application = new ApplicationHandler(new ResourceConfig()
+            .packages("com.mycompany.csa_cw")
+            .register(JacksonFeature.class)
+            .property(PersistenceLifecycle.JOURNAL_ENABLED, "false"));
+
+    // Method to send a request without a body; headers are given as name, value pairs
+    Reply send(String method, String path, String... headers) {
+        return send(method, path, null, null, headers);
+    }
+
+    // Method to send a request with a JSON body
+    Reply sendJson(String method, String path, String json, String... headers) {
+        return send(method, path, MediaType.APPLICATION_JSON, json.getBytes(StandardCharsets.UTF_8), headers);
+    }
+
+    Reply send(String method, String path, String contentType, byte[] body, String... headers) {
+        ContainerRequest request = new ContainerRequest(BASE, BASE.resolve(path), method, null, new MapPropertiesDelegate(), null);
+        for (int i = 0; i < headers.length; i += 2) {
+            request.header(headers[i], headers[i + 1]);
+        }
+        if (body != null) {
+            request.header("Content-Type", contentType);
+            request.setEntityStream(new ByteArrayInputStream(body));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            return new Reply(application.apply(request, out).get(), out.toByteArray());
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException("The request could not be handled: " + method + " " + path, e);
+        }
+    }
+
+    /**
+     * A response: its status, headers and body.
+     */
+    static final class Reply {
+        final int status;
+        final byte[] body;
+        private final ContainerResponse response;
+
+        Reply(ContainerResponse response, byte[] body) {
+            this.response = response;
+            this.status = response.getStatus();
+            this.body = body;
+        }
+
+        String header(String name) {
+            return response.getHeaderString(name);
+        }
+
+        String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.mycompany.csa_cw.resource;
+
+import com.mycompany.csa_cw.model.Patient;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests that the cached bytes are reused while the entity version or the
+ * collection snapshot is unchanged, and dropped once it changes or the entity
+ * is deleted.
+ */
+public class ResponseCacheTest {
+    private final ResponseCache cache = new ResponseCache();
+    private final Representation json = Representation.defaultJson();
+    private final Patient patient = new Patient("003", "Alice Johnson", "alice@example.com", "1 Main Street", "Fever", "Good");
+
+    @Test
+    public void anEntityIsReserializedOnlyWhenItsVersionChanges() {
+        byte[] first = cache.entity("003", 1, patient, json);
+        assertSame(first, cache.entity("003", 1, patient, json));
+
+        patient.setName("Alice Brown");
+        patient.setVersion(2);
+        byte[] second = cache.entity("003", 2, patient, json);
+        assertNotSame(first, second);
+        assertTrue(text(second), text(second).contains("Alice Brown"));
+        assertSame(second, cache.entity("003", 2, patient, json));
+    }
+
+    @Test
+    public void aDeletedEntityIsEvicted() {
+        byte[] first = cache.entity("003", 1, patient, json);
+        cache.evict("003");
+        assertNotSame(first, cache.entity("003", 1, patient, json));
+    }
+
+    @Test
+    public void aCollectionIsReserializedOnlyForANewSnapshot() {
+        List<Patient> snapshot = Arrays.asList(patient);
+        byte[] first = cache.collection(snapshot, json);
+        assertSame(first, cache.collection(snapshot, json));
+
+        // The DAOs hand out a new snapshot list after every write
+        List<Patient> next = new ArrayList<>(snapshot);
+        next.add(new Patient("004", "John Smith", "john@example.com", "2 Main Street", "Fever", "Bad"));
+        byte[] second = cache.collection(next, json);
+        assertNotSame(first, second);
+        assertTrue(text(second), text(second).contains("John Smith"));
+    }
+
+    private static String text(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
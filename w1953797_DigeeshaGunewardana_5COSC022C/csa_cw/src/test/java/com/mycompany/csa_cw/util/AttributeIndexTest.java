@@ -0,0 +1,77 @@
+package com.mycompany.csa_cw.util;
+
+import com.mycompany.csa_cw.model.Doctor;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests of the specialization and health status index: values are matched
+ * ignoring case and spaces, an entity moves with its value, older versions are
+ * ignored, and the counts leave out values no entity has any more.
+ */
+public class AttributeIndexTest {
+    private final AttributeIndex<Doctor> index = new AttributeIndex<>(Doctor::getId, Doctor::getVersion, Doctor::getSpecialization);
+
+    @Test
+    public void findsTheEntitiesWithAValueIgnoringCaseAndSpaces() {
+        index.put(doctor("D2", 1, "Cardiology"));
+        index.put(doctor("D1", 1, " cardiology "));
+        index.put(doctor("D3", 1, "Neurology"));
+        index.put(doctor("D4", 1, null));
+        assertEquals(Arrays.asList("D1", "D2"), index.ids("CARDIOLOGY"));
+        assertEquals(Arrays.asList("D3"), index.ids(" neurology"));
+        assertTrue(index.ids("Dermatology").isEmpty());
+        assertTrue(index.ids(null).isEmpty());
+    }
+
+    @Test
+    public void anUpdateMovesTheEntityAndAnOlderVersionIsIgnored() {
+        index.put(doctor("D1", 1, "Cardiology"));
+        index.put(doctor("D1", 2, "Neurology"));
+        assertTrue(index.ids("Cardiology").isEmpty());
+        assertEquals(Arrays.asList("D1"), index.ids("Neurology"));
+
+        // A copy read before the update is indexed late
+        index.put(doctor("D1", 1, "Cardiology"));
+        assertTrue(index.ids("Cardiology").isEmpty());
+        assertEquals(Arrays.asList("D1"), index.ids("Neurology"));
+
+        index.remove("D1");
+        assertTrue(index.ids("Neurology").isEmpty());
+    }
+
+    @Test
+    public void countsTheMostCommonValuesFirst() {
+        index.put(doctor("D1", 1, "Neurology"));
+        index.put(doctor("D2", 1, "cardiology"));
+        index.put(doctor("D3", 1, "Cardiology"));
+        index.put(doctor("D4", 1, "Dermatology"));
+        index.put(doctor("D5", 1, "Anaesthetics"));
+        index.remove("D5");
+
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("cardiology", 2);
+        expected.put("Dermatology", 1);
+        expected.put("Neurology", 1);
+        assertEquals(expected, index.counts());
+        assertEquals(Arrays.asList(expected.keySet().toArray()), Arrays.asList(index.counts().keySet().toArray()));
+
+        // Once every entity has left a value, it is shown as the next one to store it
+        index.remove("D2");
+        index.remove("D3");
+        index.put(doctor("D6", 1, "CARDIOLOGY"));
+        assertEquals(Collections.singletonList("D6"), index.ids("cardiology"));
+        assertTrue(index.counts().containsKey("CARDIOLOGY"));
+    }
+
+    private static Doctor doctor(String id, long version, String specialization) {
+        Doctor doctor = new Doctor(id, "Doctor " + id, "doctor@example.com", "1 Main Street", specialization);
+        doctor.setVersion(version);
+        return doctor;
+    }
+}
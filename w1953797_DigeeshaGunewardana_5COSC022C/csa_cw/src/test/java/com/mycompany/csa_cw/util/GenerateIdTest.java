@@ -0,0 +1,76 @@
+package com.mycompany.csa_cw.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests of GenerateId, including a stress test that many threads taking IDs
+ * from the same sequence at once never get the same ID twice.
+ */
+public class GenerateIdTest {
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 20000;
+
+    @Test
+    public void concurrentIdsAreUnique() throws Exception {
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                boolean batches = t % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    // Mix single IDs, which come from per-thread blocks, with batch reservations
+                    for (int i = 0; i < IDS_PER_THREAD; i += batches ? 10 : 1) {
+                        if (batches) {
+                            for (String id : GenerateId.generateAppointmentIds(10)) {
+                                assertTrue("Duplicate ID " + id, ids.add(id));
+                            }
+                        } else {
+                            String id = GenerateId.generateAppointmentId();
+                            assertTrue("Duplicate ID " + id, ids.add(id));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(THREADS * IDS_PER_THREAD, ids.size());
+    }
+
+    @Test
+    public void idsComeAfterObservedIds() {
+        GenerateId.observe("PRESC5000");
+        for (int i = 0; i < 100; i++) {
+            String id = GenerateId.generatePrescriptionId();
+            assertTrue(id, id.startsWith("PRESC"));
+            assertTrue(id, Long.parseLong(id.substring("PRESC".length())) > 5000);
+        }
+    }
+
+    @Test
+    public void idsHaveTheSequenceForm() {
+        String id = GenerateId.generatePatientId();
+        assertTrue(id, id.matches("\\d{3,}P"));
+        assertFalse(GenerateId.generateDoctorId().equals(GenerateId.generateDoctorId()));
+    }
+}
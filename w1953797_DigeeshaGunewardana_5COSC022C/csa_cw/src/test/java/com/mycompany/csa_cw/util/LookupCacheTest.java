@@ -0,0 +1,116 @@
+package com.mycompany.csa_cw.util;
+
+import com.mycompany.csa_cw.model.Doctor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests of the doctor and patient lookup cache: hits skip the loader, an older
+ * version never replaces a newer one, deleted IDs stay deleted, a batch lookup
+ * loads only its misses, and the least recently used entry goes first once the
+ * cache is full.
+ */
+public class LookupCacheTest {
+    private final Map<String, Doctor> stored = new HashMap<>();
+    private final List<String> loads = new ArrayList<>();
+    private final Function<String, Doctor> loader = id -> {
+        loads.add(id);
+        return stored.get(id);
+    };
+
+    @Test
+    public void aHitDoesNotLoadAgain() {
+        LookupCache<Doctor> cache = new LookupCache<>(10, Doctor::getVersion);
+        Doctor doctor = store("D1", 1);
+        assertSame(doctor, cache.get("D1", loader));
+        assertSame(doctor, cache.get("D1", loader));
+        assertEquals(Arrays.asList("D1"), loads);
+
+        // An ID with no entity is not cached, so it is found once it is added
+        assertNull(cache.get("D2", loader));
+        Doctor added = store("D2", 1);
+        assertSame(added, cache.get("D2", loader));
+    }
+
+    @Test
+    public void anOlderVersionDoesNotReplaceANewerOne() {
+        LookupCache<Doctor> cache = new LookupCache<>(10, Doctor::getVersion);
+        Doctor newer = doctor("D1", 2);
+        cache.put("D1", newer);
+        // A reader that loaded the doctor just before the update caches it late
+        cache.put("D1", doctor("D1", 1));
+        assertSame(newer, cache.get("D1", loader));
+    }
+
+    @Test
+    public void aDeletedIdStaysDeleted() {
+        LookupCache<Doctor> cache = new LookupCache<>(10, Doctor::getVersion);
+        store("D1", 1);
+        cache.get("D1", loader);
+        cache.remove("D1");
+        // A late put of a loaded copy does not bring it back
+        cache.put("D1", doctor("D1", 1));
+        assertNull(cache.get("D1", loader));
+        assertTrue(cache.getAll(Arrays.asList("D1"), ids -> new ArrayList<>(), Doctor::getId).isEmpty());
+    }
+
+    @Test
+    public void theLeastRecentlyUsedEntryIsDroppedFirst() {
+        LookupCache<Doctor> cache = new LookupCache<>(2, Doctor::getVersion);
+        store("D1", 1);
+        store("D2", 1);
+        store("D3", 1);
+        cache.get("D1", loader);
+        cache.get("D2", loader);
+        cache.get("D1", loader); // D2 is now the least recently used
+        cache.get("D3", loader);
+        loads.clear();
+        cache.get("D1", loader);
+        cache.get("D2", loader);
+        assertEquals(Arrays.asList("D2"), loads);
+    }
+
+    @Test
+    public void getAllLoadsOnlyTheMissesInOneCall() {
+        LookupCache<Doctor> cache = new LookupCache<>(10, Doctor::getVersion);
+        store("D1", 1);
+        store("D2", 1);
+        store("D3", 1);
+        cache.get("D1", loader);
+        cache.remove("D3");
+        List<List<String>> batches = new ArrayList<>();
+        Map<String, Doctor> found = cache.getAll(Arrays.asList("D1", "D2", "D3"), ids -> {
+            batches.add(new ArrayList<>(ids));
+            List<Doctor> doctors = new ArrayList<>();
+            for (String id : ids) {
+                doctors.add(stored.get(id));
+            }
+            return doctors;
+        }, Doctor::getId);
+        assertEquals(Arrays.asList(Arrays.asList("D2")), batches);
+        assertEquals(2, found.size());
+        assertSame(stored.get("D1"), found.get("D1"));
+        assertSame(stored.get("D2"), found.get("D2"));
+    }
+
+    private Doctor store(String id, long version) {
+        Doctor doctor = doctor(id, version);
+        stored.put(id, doctor);
+        return doctor;
+    }
+
+    private static Doctor doctor(String id, long version) {
+        Doctor doctor = new Doctor(id, "Doctor " + id, "doctor@example.com", "1 Main Street", "General");
+        doctor.setVersion(version);
+        return doctor;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mycompany.csa_cw.util;
+
+import com.mycompany.csa_cw.model.Patient;
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the typo-tolerant name search, indexed on patient names as the
+ * patient DAO indexes them.
+ */
+public class NameIndexTest {
+    private final NameIndex<Patient> index = new NameIndex<>(Patient::getId, Patient::getVersion, Patient::getName);
+
+    @Before
+    public void indexPatients() {
+        index.put(patient("P1", 1, "John Smith"));
+        index.put(patient("P2", 1, "Alexandra Brown"));
+        index.put(patient("P3", 1, "Jon Doe"));
+    }
+
+    @Test
+    public void aSwappedPairOfLettersIsOneEdit() {
+        // Without transpositions each of these would be two edits, too many for five letters
+        assertEquals(Collections.singletonList("P1"), index.search("Smtih", 10));
+        assertEquals(Collections.singletonList("P2"), index.search("Brwon", 10));
+    }
+
+    @Test
+    public void longerWordsAllowMoreEdits() {
+        // Four letters allow one edit, not two
+        assertEquals(Collections.singletonList("P1"), index.search("Jxhn", 10));
+        assertEquals(Collections.emptyList(), index.search("Jxxn", 10));
+        // Nine letters allow two edits, not three
+        assertEquals(Collections.singletonList("P2"), index.search("Alaxandre", 10));
+        assertEquals(Collections.emptyList(), index.search("Elaxandre", 10));
+        // Two letters must match exactly
+        assertEquals(Collections.emptyList(), index.search("Xo", 10));
+    }
+
+    @Test
+    public void matchesTheStartOfNameWords() {
+        assertEquals(Arrays.asList("P3", "P1"), index.search("Jo", 10));
+        assertEquals(Collections.singletonList("P1"), index.search("Jo Smi", 10));
+        assertEquals(Collections.singletonList("P2"), index.search("alex b", 10));
+        // Fewest edits first: "Jon" is exact for P3 and one edit from the start of "John"
+        assertEquals(Arrays.asList("P3", "P1"), index.search("Jon", 10));
+    }
+
+    @Test
+    public void ignoresCase() {
+        assertEquals(Collections.singletonList("P1"), index.search("JOHN smith", 10));
+        assertEquals(Collections.singletonList("P1"), index.search("john SMITH", 10));
+    }
+
+    @Test
+    public void aRenamedOrRemovedPatientIsNoLongerFoundByTheOldName() {
+        index.put(patient("P1", 2, "Mary Smith"));
+        assertEquals(Collections.emptyList(), index.search("John Smith", 10));
+        assertEquals(Collections.singletonList("P1"), index.search("Mary", 10));
+
+        index.remove("P1");
+        assertEquals(Collections.emptyList(), index.search("Mary", 10));
+        assertEquals(Collections.emptyList(), index.search("Smith", 10));
+    }
+
+    private static Patient patient(String id, long version, String name) {
+        Patient patient = new Patient(id, name, "patient@example.com", "1 Main Street", "None", "Stable");
+        patient.setVersion(version);
+        return patient;
+    }
+}
@@ -0,0 +1,74 @@
+package com.mycompany.csa_cw.util;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests that the occupancy index finds the free slots around a doctor's
+ * appointments, sees changes once they are invalidated, and keeps a bounded
+ * number of days while still answering correctly for days it has dropped.
+ */
+public class OccupancyIndexTest {
+    private static final int MAX_DAYS = 100;
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 6);
+
+    @Test
+    public void skipsEverySlotAnAppointmentOverlaps() {
+        // A 30-minute appointment starting off a slot boundary covers 09:00 to 09:35 in whole slots
+        OccupancyIndex index = new OccupancyIndex(Duration.ofMinutes(30),
+                (doctorId, day) -> Collections.singletonList(DAY.atTime(9, 2)));
+        List<LocalDateTime> free = index.freeSlots("D1", DAY.atTime(8, 30), DAY.atTime(10, 35), 3);
+        assertEquals(Arrays.asList(DAY.atTime(8, 30), DAY.atTime(9, 35), DAY.atTime(10, 5)), free);
+    }
+
+    @Test
+    public void seesAChangeOnceItIsInvalidated() {
+        List<LocalDateTime> starts = new ArrayList<>();
+        OccupancyIndex index = new OccupancyIndex(Duration.ofMinutes(30),
+                (doctorId, day) -> doctorId.equals("D1") ? new ArrayList<>(starts) : Collections.emptyList());
+        assertEquals(Collections.singletonList(DAY.atTime(9, 0)), index.freeSlots("D1", DAY.atTime(9, 0), DAY.atTime(10, 0), 1));
+
+        starts.add(DAY.atTime(9, 0));
+        // Until the change is reported, the day built before it is still used
+        assertEquals(Collections.singletonList(DAY.atTime(9, 0)), index.freeSlots("D1", DAY.atTime(9, 0), DAY.atTime(10, 0), 1));
+        index.invalidate("D1", DAY.atTime(9, 0));
+        assertEquals(Collections.singletonList(DAY.atTime(9, 30)), index.freeSlots("D1", DAY.atTime(9, 0), DAY.atTime(10, 0), 1));
+        // Other doctors are not affected
+        assertEquals(Collections.singletonList(DAY.atTime(9, 0)), index.freeSlots("D2", DAY.atTime(9, 0), DAY.atTime(10, 0), 1));
+    }
+
+    @Test
+    public void anAppointmentBeforeMidnightCoversTheNextMorning() {
+        OccupancyIndex index = new OccupancyIndex(Duration.ofMinutes(30),
+                (doctorId, day) -> Collections.singletonList(DAY.minusDays(1).atTime(23, 45)));
+        List<LocalDateTime> free = index.freeSlots("D1", DAY.atStartOfDay(), DAY.atTime(1, 0), 1);
+        assertEquals(Collections.singletonList(DAY.atTime(0, 15)), free);
+    }
+
+    @Test
+    public void keepsAtMostTheMaximumNumberOfDays() {
+        LocalDate today = LocalDate.now();
+        // Every doctor has one appointment at 09:00 each day
+        OccupancyIndex index = new OccupancyIndex(Duration.ofMinutes(30),
+                (doctorId, day) -> Collections.singletonList(day.atTime(9, 0)), MAX_DAYS);
+        for (int i = -250; i < 250; i++) {
+            LocalDate day = today.plusDays(i);
+            index.freeSlots("D1", day.atTime(9, 0), day.atTime(10, 0), 1);
+            assertTrue(index.size() <= MAX_DAYS);
+        }
+
+        // A dropped day is rebuilt when it is searched again
+        LocalDate dropped = today.minusDays(250);
+        List<LocalDateTime> free = index.freeSlots("D1", dropped.atTime(9, 0), dropped.atTime(10, 0), 1);
+        assertEquals(Collections.singletonList(dropped.atTime(9, 30)), free);
+    }
+}
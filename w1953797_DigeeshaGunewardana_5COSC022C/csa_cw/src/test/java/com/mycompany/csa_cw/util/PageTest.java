@@ -0,0 +1,75 @@
+package com.mycompany.csa_cw.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Tests of cursor paging in ID order: the pages cover every entity exactly
+ * once, cursors are safe in a URL, and writes elsewhere do not shift the
+ * pages that follow a cursor.
+ */
+public class PageTest {
+    private final NavigableMap<String, String> byId = new TreeMap<>();
+
+    @Test
+    public void pagesCoverEveryEntityOnce() {
+        for (String id : Arrays.asList("a", "b", "c", "d", "e", "f", "g")) {
+            byId.put(id, id);
+        }
+        List<String> seen = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            Page<String> page = Page.of(byId, cursor, 3);
+            seen.addAll(page.getItems());
+            sizes.add(page.getItems().size());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(new ArrayList<>(byId.keySet()), seen);
+        assertEquals(Arrays.asList(3, 3, 1), sizes);
+    }
+
+    @Test
+    public void aFullLastPageHasNoNextCursor() {
+        byId.put("a", "a");
+        byId.put("b", "b");
+        assertNull(Page.of(byId, null, 2).getNextCursor());
+    }
+
+    @Test
+    public void cursorsAreUrlSafeAndSurviveWritesElsewhere() {
+        // "?>?" in plain Base64 is "Pz4/", which a URL would need escaped
+        for (String id : Arrays.asList("?>?", "a", "b", "c")) {
+            byId.put(id, id);
+        }
+        String cursor = Page.of(byId, null, 1).getNextCursor();
+        assertTrue(cursor, cursor.matches("[A-Za-z0-9_-]+"));
+        assertEquals("?>?", Page.afterId(cursor));
+
+        // Removing the entity the cursor points at, or adding one before it, does not change the next page
+        cursor = Page.of(byId, null, 2).getNextCursor();
+        byId.remove("a");
+        byId.put("0", "0");
+        assertEquals(Arrays.asList("b", "c"), Page.of(byId, cursor, 2).getItems());
+    }
+
+    @Test
+    public void aFetchedListWithOneExtraEntityHasANextPage() {
+        Page<String> page = Page.of(Arrays.asList("a", "b", "c"), 2, id -> id);
+        assertEquals(Arrays.asList("a", "b"), page.getItems());
+        assertEquals("b", Page.afterId(page.getNextCursor()));
+        assertNull(Page.of(Arrays.asList("a", "b"), 2, id -> id).getNextCursor());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aCursorThisClassDidNotProduceIsRefused() {
+        Page.of(byId, "not a cursor!", 2);
+    }
+}
@@ -0,0 +1,69 @@
+package com.mycompany.csa_cw.util;
+
+import com.mycompany.csa_cw.model.MedicalRecord;
+import java.util.Arrays;
+import java.util.Collections;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Tests of the ranked keyword search over medical records, indexed with the
+ * same fields and weights as the medical record DAO.
+ */
+public class TextIndexTest {
+    private final TextIndex<MedicalRecord> index = new TextIndex<>(MedicalRecord::getId, MedicalRecord::getVersion,
+            new TextIndex.Field<>(MedicalRecord::getDiagnoses, 2),
+            new TextIndex.Field<>(MedicalRecord::getTreatments, 1));
+
+    @Test
+    public void ranksByHowOftenAndWhereTheWordsOccur() {
+        index.put(record("A", 1, "Malaria", "Rest"));
+        index.put(record("B", 1, "Viral fever", "Malaria prophylaxis"));
+        index.put(record("C", 1, "Malaria, suspected malaria", "Quinine"));
+        index.put(record("D", 1, "Asthma", "Inhaler"));
+
+        // A diagnosis counts twice as much as a treatment
+        assertEquals(Arrays.asList("C", "A", "B"), index.search("malaria", 10));
+        assertEquals(Arrays.asList("C", "A"), index.search("malaria", 2));
+        assertEquals(Arrays.asList("B", "C"), index.search("viral fever OR quinine", 10));
+        assertEquals(Collections.singletonList("B"), index.search("malaria AND fever", 10));
+        assertEquals(Arrays.asList("C", "A", "B"), index.search("MAL*", 10));
+    }
+
+    @Test
+    public void reindexesAnUpdatedEntity() {
+        index.put(record("A", 1, "Malaria", "Rest"));
+        index.put(record("A", 2, "Influenza", "Rest"));
+        assertEquals(Collections.emptyList(), index.search("malaria", 10));
+        assertEquals(Collections.singletonList("A"), index.search("influenza", 10));
+
+        // An older version arriving late does not replace the newer one
+        index.put(record("A", 1, "Malaria", "Rest"));
+        assertEquals(Collections.emptyList(), index.search("malaria", 10));
+        assertEquals(Collections.singletonList("A"), index.search("influenza", 10));
+    }
+
+    @Test
+    public void removedEntitiesAreNotFound() {
+        index.put(record("A", 1, "Malaria", "Rest"));
+        index.put(record("B", 1, "Malaria", "Quinine"));
+        index.remove("A");
+        assertEquals(Collections.singletonList("B"), index.search("malaria", 10));
+        index.remove("B");
+        assertEquals(Collections.emptyList(), index.search("malaria", 10));
+    }
+
+    @Test
+    public void anEmptyQueryMatchesNothing() {
+        index.put(record("A", 1, "Malaria", "Rest"));
+        assertEquals(Collections.emptyList(), index.search("", 10));
+        assertEquals(Collections.emptyList(), index.search("   ", 10));
+        assertEquals(Collections.emptyList(), index.search("OR", 10));
+    }
+
+    private static MedicalRecord record(String id, long version, String diagnoses, String treatments) {
+        MedicalRecord record = new MedicalRecord(id, null, diagnoses, treatments);
+        record.setVersion(version);
+        return record;
+    }
+}
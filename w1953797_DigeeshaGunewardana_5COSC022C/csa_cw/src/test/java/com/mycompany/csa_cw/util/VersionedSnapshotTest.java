@@ -0,0 +1,47 @@
+package com.mycompany.csa_cw.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ * Tests that readers share one copy of the collection until it changes, and
+ * that a copy taken after a change includes it.
+ */
+public class VersionedSnapshotTest {
+    private final List<String> source = new ArrayList<>(Arrays.asList("a", "b"));
+    private final AtomicInteger copies = new AtomicInteger();
+    private final VersionedSnapshot<String> snapshot = new VersionedSnapshot<>();
+
+    @Test
+    public void readersShareOneCopyUntilTheSourceChanges() {
+        List<String> first = snapshot.get(this::copySource);
+        List<String> second = snapshot.get(this::copySource);
+        assertSame(first, second);
+        assertEquals(1, copies.get());
+
+        source.add("c");
+        snapshot.invalidate();
+        List<String> third = snapshot.get(this::copySource);
+        assertNotSame(first, third);
+        assertEquals(Arrays.asList("a", "b", "c"), third);
+        assertEquals(2, copies.get());
+        // The earlier copy is not affected by the change
+        assertEquals(Arrays.asList("a", "b"), first);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void theSharedCopyCannotBeModified() {
+        snapshot.get(this::copySource).add("x");
+    }
+
+    private List<String> copySource() {
+        copies.incrementAndGet();
+        return source;
+    }
+}